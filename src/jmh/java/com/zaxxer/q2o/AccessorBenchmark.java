@@ -0,0 +1,90 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing a field of {@link BenchmarkEntity} through {@link Field#get(Object)}/{@link Field#set(Object, Object)}, as q2o did before {@link AttributeAccessor}, and through the {@link java.lang.invoke.MethodHandle}s of {@link AttributeAccessor}, boxed and of the primitive type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessorBenchmark {
+
+   private final BenchmarkEntity entity = BenchmarkEntity.newInstance(1);
+   private Field nameField;
+   private Field amountField;
+   private AttributeAccessor nameAccessor;
+   private AttributeAccessor amountAccessor;
+   private long amount;
+
+   @Setup(Level.Trial)
+   public void setUp() throws NoSuchFieldException {
+      nameField = BenchmarkEntity.class.getDeclaredField("name");
+      nameField.setAccessible(true);
+      amountField = BenchmarkEntity.class.getDeclaredField("amount");
+      amountField.setAccessible(true);
+      nameAccessor = AttributeAccessor.forField(nameField);
+      amountAccessor = AttributeAccessor.forField(amountField);
+   }
+
+   @Benchmark
+   public Object fieldGetString() throws IllegalAccessException {
+      return nameField.get(entity);
+   }
+
+   @Benchmark
+   public Object fieldSetString() throws IllegalAccessException {
+      nameField.set(entity, "name");
+      return entity;
+   }
+
+   @Benchmark
+   public Object fieldGetLong() throws IllegalAccessException {
+      return amountField.get(entity);
+   }
+
+   @Benchmark
+   public Object fieldSetLong() throws IllegalAccessException {
+      amountField.set(entity, ++amount);
+      return entity;
+   }
+
+   @Benchmark
+   public Object handleGetString() throws Throwable {
+      return nameAccessor.get(entity);
+   }
+
+   @Benchmark
+   public Object handleSetString() throws Throwable {
+      nameAccessor.set(entity, "name");
+      return entity;
+   }
+
+   @Benchmark
+   public Object handleGetLong() throws Throwable {
+      return amountAccessor.get(entity);
+   }
+
+   @Benchmark
+   public Object handleSetLong() throws Throwable {
+      amountAccessor.set(entity, ++amount);
+      return entity;
+   }
+
+   @Benchmark
+   public long handleGetPrimitiveLong() throws Throwable {
+      return amountAccessor.getLong(entity);
+   }
+
+   @Benchmark
+   public Object handleSetPrimitiveLong() throws Throwable {
+      amountAccessor.setLong(entity, ++amount);
+      return entity;
+   }
+}
@@ -0,0 +1,37 @@
+package com.zaxxer.q2o;
+
+import org.sansorm.DataSources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory H2 database with table BENCHMARK, q2o initialized without transaction manager.
+ */
+final class BenchmarkDatabase {
+
+   private BenchmarkDatabase() {
+   }
+
+   /**
+    * @param rows number of rows to insert, ids are 1 to rows.
+    */
+   static void setUp(final int rows) {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Q2Sql.executeUpdate("DROP TABLE IF EXISTS BENCHMARK");
+      Q2Sql.executeUpdate(BenchmarkEntity.CREATE_TABLE);
+      final List<BenchmarkEntity> entities = new ArrayList<>();
+      for (int i = 1; i <= rows; i++) {
+         entities.add(BenchmarkEntity.newInstance(i));
+         if (entities.size() == 10_000 || i == rows) {
+            Q2ObjList.insertBatched(entities);
+            entities.clear();
+         }
+      }
+   }
+
+   static void tearDown() {
+      Q2Sql.executeUpdate("DROP TABLE BENCHMARK");
+      q2o.deinitialize();
+   }
+}
@@ -0,0 +1,47 @@
+package com.zaxxer.q2o;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * Entity used by all benchmarks. See {@link BenchmarkDatabase} for its table.
+ */
+@Table(name = "BENCHMARK")
+public class BenchmarkEntity {
+   static final String CREATE_TABLE = "CREATE TABLE BENCHMARK ("
+      + " id INTEGER NOT NULL IDENTITY PRIMARY KEY"
+      + ", name VARCHAR(128)"
+      + ", amount BIGINT"
+      + ", ratio DOUBLE"
+      + ", price DECIMAL(10,2)"
+      + ", created TIMESTAMP"
+      + ")";
+
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   int id;
+   @Column(name = "name")
+   String name;
+   @Column(name = "amount")
+   long amount;
+   @Column(name = "ratio")
+   double ratio;
+   @Column(name = "price")
+   double price;
+   @Column(name = "created")
+   Timestamp created;
+
+   static BenchmarkEntity newInstance(final int i) {
+      BenchmarkEntity entity = new BenchmarkEntity();
+      entity.name = "name " + i;
+      entity.amount = i * 10L;
+      entity.ratio = i / 3d;
+      entity.price = i + 0.25;
+      entity.created = new Timestamp(1_500_000_000_000L + i);
+      return entity;
+   }
+}
@@ -0,0 +1,166 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+import org.sansorm.testutils.DummyResultSet;
+import org.sansorm.testutils.DummyResultSetMetaData;
+
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions of {@link DatabaseValueToFieldType}, and mapping of result sets served by the org.sansorm.testutils JDBC stubs, so that no driver time is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+   private static final String[] COLUMNS = {"id", "name", "amount", "ratio", "price", "created"};
+   private static final String[] TYPE_NAMES = {"INTEGER", "VARCHAR", "BIGINT", "DOUBLE", "DECIMAL", "TIMESTAMP"};
+   private static final int[] TYPES = {Types.INTEGER, Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.DECIMAL, Types.TIMESTAMP};
+   private static final int ROWS = 1000;
+
+   private final DatabaseValueToFieldType converter = new DatabaseValueToFieldType();
+   private final Timestamp timestamp = new Timestamp(1_500_000_000_000L);
+   private final BigDecimal decimal = new BigDecimal("12.25");
+   private Introspected introspected;
+   private AttributeInfo idInfo;
+   private AttributeInfo amountInfo;
+   private AttributeInfo priceInfo;
+   private AttributeInfo createdInfo;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      introspected = Introspected.getInstance(BenchmarkEntity.class);
+      idInfo = introspected.getFieldColumnInfo("id");
+      amountInfo = introspected.getFieldColumnInfo("amount");
+      priceInfo = introspected.getFieldColumnInfo("price");
+      createdInfo = introspected.getFieldColumnInfo("created");
+   }
+
+   @Benchmark
+   public Object integerToInt() {
+      return converter.adaptValueToFieldType(idInfo, 42, "INTEGER", introspected);
+   }
+
+   @Benchmark
+   public Object integerToLong() {
+      return converter.adaptValueToFieldType(amountInfo, 42, "INTEGER", introspected);
+   }
+
+   @Benchmark
+   public Object bigDecimalToDouble() {
+      return converter.adaptValueToFieldType(priceInfo, decimal, "DECIMAL", introspected);
+   }
+
+   @Benchmark
+   public Object timestampToTimestamp() {
+      return converter.adaptValueToFieldType(createdInfo, timestamp, "TIMESTAMP", introspected);
+   }
+
+   /**
+    * Per {@link #ROWS} rows.
+    */
+   @Benchmark
+   public List<BenchmarkEntity> mapResultSet() throws SQLException {
+      return Q2ObjList.fromResultSet(new StubResultSet(), BenchmarkEntity.class);
+   }
+
+   /**
+    * {@link #ROWS} rows of table BENCHMARK, already positioned on the first one as {@link ResultSetToObjectProcessor#process(Class)} expects.
+    */
+   private final class StubResultSet extends DummyResultSet {
+      private int row = 1;
+      private boolean wasNull;
+
+      @Override
+      public boolean next() {
+         return ++row <= ROWS;
+      }
+
+      @Override
+      public ResultSetMetaData getMetaData() {
+         return new DummyResultSetMetaData() {
+            @Override
+            public int getColumnCount() {
+               return COLUMNS.length;
+            }
+
+            @Override
+            public String getColumnName(final int column) {
+               return COLUMNS[column - 1];
+            }
+
+            @Override
+            public String getColumnLabel(final int column) {
+               return COLUMNS[column - 1];
+            }
+
+            @Override
+            public String getTableName(final int column) {
+               return "BENCHMARK";
+            }
+
+            @Override
+            public String getColumnTypeName(final int column) {
+               return TYPE_NAMES[column - 1];
+            }
+
+            @Override
+            public int getColumnType(final int column) {
+               return TYPES[column - 1];
+            }
+         };
+      }
+
+      @Override
+      public Object getObject(final int columnIndex) {
+         wasNull = false;
+         switch (columnIndex) {
+            case 1:
+               return row;
+            case 2:
+               return "name";
+            case 3:
+               return row * 10L;
+            case 4:
+               return row / 3d;
+            case 5:
+               return decimal;
+            default:
+               return timestamp;
+         }
+      }
+
+      @Override
+      public int getInt(final int columnIndex) {
+         wasNull = false;
+         return row;
+      }
+
+      @Override
+      public long getLong(final int columnIndex) {
+         wasNull = false;
+         return row * 10L;
+      }
+
+      @Override
+      public double getDouble(final int columnIndex) {
+         wasNull = false;
+         return row / 3d;
+      }
+
+      @Override
+      public boolean wasNull() {
+         return wasNull;
+      }
+   }
+}
@@ -0,0 +1,75 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single object reads and writes, and batched inserts, against in-memory H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrudBenchmark {
+
+   private static final int ROWS = 1000;
+   private static final int BATCH_SIZE = 100;
+
+   private BenchmarkEntity existing;
+   private List<BenchmarkEntity> batch;
+   private int i;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      BenchmarkDatabase.setUp(ROWS);
+      existing = Q2Obj.byId(BenchmarkEntity.class, ROWS / 2);
+   }
+
+   @Setup(Level.Invocation)
+   public void newBatch() {
+      batch = new ArrayList<>(BATCH_SIZE);
+      for (int j = 0; j < BATCH_SIZE; j++) {
+         batch.add(BenchmarkEntity.newInstance(j));
+      }
+   }
+
+   @TearDown(Level.Iteration)
+   public void deleteInserted() {
+      Q2Sql.executeUpdate("DELETE FROM BENCHMARK WHERE id > ?", ROWS);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      BenchmarkDatabase.tearDown();
+   }
+
+   @Benchmark
+   public BenchmarkEntity byId() {
+      return Q2Obj.byId(BenchmarkEntity.class, ++i % ROWS + 1);
+   }
+
+   @Benchmark
+   public BenchmarkEntity insert() {
+      return Q2Obj.insert(BenchmarkEntity.newInstance(++i));
+   }
+
+   @Benchmark
+   public BenchmarkEntity update() {
+      existing.amount = ++i;
+      return Q2Obj.update(existing);
+   }
+
+   /**
+    * Per {@link #BATCH_SIZE} objects.
+    */
+   @Benchmark
+   public List<BenchmarkEntity> insertBatched() {
+      Q2ObjList.insertBatched(batch);
+      return batch;
+   }
+}
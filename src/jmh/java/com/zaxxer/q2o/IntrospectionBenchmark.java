@@ -0,0 +1,27 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of {@link Introspected#getInstance(Class)}, i.e. the reflective introspection on first use of an entity class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1000)
+@Measurement(iterations = 1000)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+   @Setup(Level.Invocation)
+   public void evict() {
+      Introspected.descriptorMap.remove(BenchmarkEntity.class);
+   }
+
+   @Benchmark
+   public Introspected getInstance() {
+      return Introspected.getInstance(BenchmarkEntity.class);
+   }
+}
@@ -0,0 +1,46 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Left;
+import org.openjdk.jmh.annotations.*;
+import org.sansorm.DataSources;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping 1.000 rows of a one-to-one join (test entities {@link Left} and {@link com.zaxxer.q2o.entities.Right}) against in-memory H2. Run with "-prof gc": per row only the two entities and the column values should be allocated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+
+   private static final int ROWS = 1000;
+   private static final String SQL = "SELECT * FROM LEFT_TABLE, RIGHT_TABLE WHERE LEFT_TABLE.rightId = RIGHT_TABLE.id";
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Q2Sql.executeUpdate("CREATE TABLE RIGHT_TABLE (id INTEGER NOT NULL PRIMARY KEY, type VARCHAR(128))");
+      Q2Sql.executeUpdate("CREATE TABLE LEFT_TABLE (id INTEGER NOT NULL PRIMARY KEY, type VARCHAR(128), rightId INTEGER NULL)");
+      for (int i = 1; i <= ROWS; i++) {
+         Q2Sql.executeUpdate("INSERT INTO RIGHT_TABLE VALUES (?, ?)", i, "right " + i);
+         Q2Sql.executeUpdate("INSERT INTO LEFT_TABLE VALUES (?, ?, ?)", i, "left " + i, i);
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      Q2Sql.executeUpdate("DROP TABLE LEFT_TABLE");
+      Q2Sql.executeUpdate("DROP TABLE RIGHT_TABLE");
+      q2o.deinitialize();
+   }
+
+   @Benchmark
+   public List<Left> fromSelect() {
+      return Q2ObjList.fromSelect(Left.class, SQL);
+   }
+}
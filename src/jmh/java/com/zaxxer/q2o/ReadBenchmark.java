@@ -0,0 +1,36 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Q2ObjList.fromClause() against in-memory H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+   @Param({"10", "1000", "100000"})
+   int rows;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      BenchmarkDatabase.setUp(rows);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      BenchmarkDatabase.tearDown();
+   }
+
+   @Benchmark
+   public List<BenchmarkEntity> fromClause() {
+      return Q2ObjList.fromClause(BenchmarkEntity.class, "id <= ?", rows);
+   }
+}
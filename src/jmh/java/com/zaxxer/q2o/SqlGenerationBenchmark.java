@@ -0,0 +1,35 @@
+package com.zaxxer.q2o;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of generated SQL on a cache hit. Run with "-prof gc": they should allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlGenerationBenchmark {
+
+   private static final String CLAUSE = "name = ?";
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      OrmReader.generateSelectFromWhereClause(BenchmarkEntity.class, CLAUSE, true);
+      OrmReader.getColumnsCsv(BenchmarkEntity.class, "BENCHMARK");
+   }
+
+   @Benchmark
+   public String selectFromClause() {
+      return OrmReader.generateSelectFromWhereClause(BenchmarkEntity.class, CLAUSE, true);
+   }
+
+   @Benchmark
+   public String columnsCsv() {
+      return OrmReader.getColumnsCsv(BenchmarkEntity.class, "BENCHMARK");
+   }
+}
@@ -0,0 +1,297 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * Reads and writes an attribute through {@link MethodHandle}s bound once at introspection time, instead of {@link Field#get(Object)}/{@link Method#invoke(Object, Object...)} with their per call access checks.
+ * <p>
+ * Primitive int, long and double attributes additionally get handles of their exact type, so that {@link #getInt(Object)}, {@link #setInt(Object, int)} etc. do not box.
+ * <p>
+ * Fields of classes compiled with {@link com.zaxxer.q2o.processor.EntityIndexProcessor} are accessed through their {@link GeneratedAccessor} instead, which spares binding the handles when the class is introspected.
+ *
+ * @see FieldInfo
+ * @see PropertyInfo
+ */
+final class AttributeAccessor {
+   private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+   private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+   private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+   private static final Logger logger = LoggerFactory.getLogger(AttributeAccessor.class);
+   private static final ClassValue<Optional<GeneratedAccessor>> GENERATED = new ClassValue<Optional<GeneratedAccessor>>() {
+      @Override
+      protected Optional<GeneratedAccessor> computeValue(final Class<?> type) {
+         return generatedAccessorOf(type);
+      }
+   };
+
+   /**
+    * Type (Object)Object. Null if accessed through {@link #generated}.
+    */
+   @Nullable
+   private final MethodHandle getter;
+   /**
+    * Type (Object,Object)void. Null if accessed through {@link #generated}.
+    */
+   @Nullable
+   private final MethodHandle setter;
+   @Nullable
+   private final GeneratedAccessor generated;
+   private final int generatedIndex;
+   /**
+    * Type (Object)int, (Object)long or (Object)double. Null if the attribute is not of one of these types.
+    */
+   @Nullable
+   private final MethodHandle primitiveGetter;
+   /**
+    * Type (Object,int)void, (Object,long)void or (Object,double)void. Null if the attribute is not of one of these types.
+    */
+   @Nullable
+   private final MethodHandle primitiveSetter;
+   private final Class<?> type;
+   /**
+    * As in messages of {@link Field#set(Object, Object)}, e. g. "field com.example.Customer.name".
+    */
+   private final String member;
+
+   private AttributeAccessor(final MethodHandle getter, final MethodHandle setter, final Class<?> type, final String member) {
+      this.type = type;
+      this.member = member;
+      this.generated = null;
+      this.generatedIndex = -1;
+      if (type == int.class || type == long.class || type == double.class) {
+         primitiveGetter = getter.asType(MethodType.methodType(type, Object.class));
+         primitiveSetter = setter.asType(MethodType.methodType(void.class, Object.class, type));
+      }
+      else {
+         primitiveGetter = null;
+         primitiveSetter = null;
+      }
+      this.getter = getter.asType(GETTER_TYPE);
+      this.setter = type.isPrimitive()
+         ? MethodHandles.filterArguments(setter, 1, MethodHandles.insertArguments(Widening.filterFor(type), 0, member)).asType(SETTER_TYPE)
+         : setter.asType(SETTER_TYPE);
+   }
+
+   private AttributeAccessor(final GeneratedAccessor generated, final int generatedIndex, final Class<?> type, final String member) {
+      this.type = type;
+      this.member = member;
+      this.generated = generated;
+      this.generatedIndex = generatedIndex;
+      this.getter = null;
+      this.setter = null;
+      this.primitiveGetter = null;
+      this.primitiveSetter = null;
+   }
+
+   /**
+    * @param field must be accessible and not final.
+    */
+   static AttributeAccessor forField(final Field field) {
+      final String member = "field " + field.getDeclaringClass().getName() + "." + field.getName();
+      final GeneratedAccessor generated = GENERATED.get(field.getDeclaringClass()).orElse(null);
+      if (generated != null) {
+         final int index = generated.indexOf(field.getName());
+         if (index >= 0) {
+            return new AttributeAccessor(generated, index, field.getType(), member);
+         }
+      }
+      try {
+         return new AttributeAccessor(LOOKUP.unreflectGetter(field), LOOKUP.unreflectSetter(field), field.getType(), member);
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   static AttributeAccessor forProperty(final Method readMethod, final Method writeMethod) {
+      try {
+         readMethod.setAccessible(true);
+         writeMethod.setAccessible(true);
+         return new AttributeAccessor(LOOKUP.unreflect(readMethod), LOOKUP.unreflect(writeMethod), readMethod.getReturnType(),
+            "property " + writeMethod.getDeclaringClass().getName() + "." + writeMethod.getName());
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * @throws Throwable whatever the getter throws.
+    */
+   Object get(final Object target) throws Throwable {
+      if (generated != null) {
+         return generated.get(generatedIndex, target);
+      }
+      return (Object) getter.invokeExact(target);
+   }
+
+   /**
+    * @throws IllegalArgumentException as {@link Field#set(Object, Object)} does, if the value is not assignable to the attribute's type. Also with null and a primitive type.
+    * @throws Throwable whatever the setter throws.
+    */
+   void set(final Object target, final Object value) throws Throwable {
+      if (value != null && !type.isPrimitive() && !type.isInstance(value)) {
+         throw Widening.illegal(type, member, value);
+      }
+      if (generated != null) {
+         generated.set(generatedIndex, target, value);
+         return;
+      }
+      setter.invokeExact(target, value);
+   }
+
+   /**
+    * @return The instance of type's {@link GeneratedAccessor#nameOf(String) accessor class}, if it was generated.
+    */
+   private static Optional<GeneratedAccessor> generatedAccessorOf(final Class<?> type) {
+      final ClassLoader classLoader = type.getClassLoader();
+      if (classLoader == null) {
+         return Optional.empty();
+      }
+      try {
+         final Class<?> accessorClass = Class.forName(GeneratedAccessor.nameOf(type.getName()), true, classLoader);
+         return Optional.of((GeneratedAccessor) accessorClass.getConstructor().newInstance());
+      }
+      catch (ClassNotFoundException e) {
+         return Optional.empty();
+      }
+      catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+         logger.warn("Generated accessor of {} not usable, accessing its fields through MethodHandles", type.getName(), e);
+         return Optional.empty();
+      }
+   }
+
+   /**
+    * @return true if {@link #getInt(Object)}/{@link #setInt(Object, int)} etc. for the attribute's type are applicable.
+    */
+   boolean hasPrimitiveAccessors() {
+      return primitiveGetter != null;
+   }
+
+   int getInt(final Object target) throws Throwable {
+      return (int) primitiveGetter.invokeExact(target);
+   }
+
+   void setInt(final Object target, final int value) throws Throwable {
+      primitiveSetter.invokeExact(target, value);
+   }
+
+   long getLong(final Object target) throws Throwable {
+      return (long) primitiveGetter.invokeExact(target);
+   }
+
+   void setLong(final Object target, final long value) throws Throwable {
+      primitiveSetter.invokeExact(target, value);
+   }
+
+   double getDouble(final Object target) throws Throwable {
+      return (double) primitiveGetter.invokeExact(target);
+   }
+
+   void setDouble(final Object target, final double value) throws Throwable {
+      primitiveSetter.invokeExact(target, value);
+   }
+
+   /**
+    * Unboxing with widening primitive conversion (JLS 5.1.2), the conversions {@link Field#set(Object, Object)} applies. {@link MethodHandle#asType(MethodType)} would only unbox the primitive type's own wrapper.
+    */
+   static final class Widening {
+
+      private Widening() {
+      }
+
+      /**
+       * @return handle of type (String,Object)primitiveType, the String being the member for exception messages.
+       */
+      static MethodHandle filterFor(final Class<?> primitiveType) {
+         try {
+            final String name = "to" + Character.toUpperCase(primitiveType.getName().charAt(0)) + primitiveType.getName().substring(1);
+            return LOOKUP.findStatic(Widening.class, name, MethodType.methodType(primitiveType, String.class, Object.class));
+         }
+         catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+         }
+      }
+
+      static boolean toBoolean(final String member, final Object value) {
+         if (value instanceof Boolean) {
+            return (Boolean) value;
+         }
+         throw illegal(boolean.class, member, value);
+      }
+
+      static char toChar(final String member, final Object value) {
+         if (value instanceof Character) {
+            return (Character) value;
+         }
+         throw illegal(char.class, member, value);
+      }
+
+      static byte toByte(final String member, final Object value) {
+         if (value instanceof Byte) {
+            return (Byte) value;
+         }
+         throw illegal(byte.class, member, value);
+      }
+
+      static short toShort(final String member, final Object value) {
+         if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).shortValue();
+         }
+         throw illegal(short.class, member, value);
+      }
+
+      static int toInt(final String member, final Object value) {
+         if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+         }
+         if (value instanceof Character) {
+            return (Character) value;
+         }
+         throw illegal(int.class, member, value);
+      }
+
+      static long toLong(final String member, final Object value) {
+         if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+         }
+         if (value instanceof Character) {
+            return (Character) value;
+         }
+         throw illegal(long.class, member, value);
+      }
+
+      static float toFloat(final String member, final Object value) {
+         if (value instanceof Float || value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).floatValue();
+         }
+         if (value instanceof Character) {
+            return (Character) value;
+         }
+         throw illegal(float.class, member, value);
+      }
+
+      static double toDouble(final String member, final Object value) {
+         if (value instanceof Double || value instanceof Float || value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).doubleValue();
+         }
+         if (value instanceof Character) {
+            return (Character) value;
+         }
+         throw illegal(double.class, member, value);
+      }
+
+      static IllegalArgumentException illegal(final Class<?> type, final String member, final Object value) {
+         return new IllegalArgumentException("Can not set " + type.getName() + " " + member + " to " + (value == null ? "null value" : value.getClass().getName()));
+      }
+   }
+}
@@ -2,6 +2,7 @@ package com.zaxxer.q2o;
 
 import com.zaxxer.q2o.converters.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.persistence.*;
 import java.lang.reflect.Field;
@@ -35,9 +36,13 @@ abstract class AttributeInfo {
    protected AttributeConverter converter;
    protected String caseSensitiveColumnName;
    protected boolean isGeneratedId;
+   private GeneratedValue generatedValueAnnotation;
+   private SequenceGenerator sequenceGeneratorAnnotation;
+   private TableGenerator tableGeneratorAnnotation;
    boolean isIdField;
    protected boolean isJoinColumn;
    protected boolean isTransient;
+   protected boolean isVersion;
    protected boolean isEnumerated;
    protected boolean isColumnAnnotated;
    protected String delimitedName;
@@ -55,6 +60,10 @@ abstract class AttributeInfo {
    private String tableName;
    private boolean isTemporalAnnotated;
    private TemporalType temporalType;
+   /**
+    * Bound by the subclass at introspection time. null if the attribute is not to be considered.
+    */
+   protected AttributeAccessor accessor;
 
    AttributeInfo(final Field field, final Class<?> ownerClazz)
    {
@@ -218,8 +227,12 @@ abstract class AttributeInfo {
       final Id idAnnotation = extractIdAnnotation();
       if (idAnnotation != null) {
          isIdField = true;
-         GeneratedValue generatedAnnotation = extractGeneratedValueAnnotation();
-         isGeneratedId = (generatedAnnotation != null);
+         generatedValueAnnotation = extractGeneratedValueAnnotation();
+         isGeneratedId = (generatedValueAnnotation != null);
+         if (isGeneratedId) {
+            sequenceGeneratorAnnotation = extractSequenceGeneratorAnnotation();
+            tableGeneratorAnnotation = extractTableGeneratorAnnotation();
+         }
       }
 
       final Enumerated enumAnnotation = extractEnumeratedAnnotation();
@@ -231,6 +244,7 @@ abstract class AttributeInfo {
       if (joinColumnAnnotation != null) {
          isJoinColumn = true;
       }
+      isVersion = extractVersionAnnotation() != null;
       final Transient transientAnnotation = extractTransientAnnotation();
       if (transientAnnotation != null) {
          isTransient = true;
@@ -364,8 +378,14 @@ abstract class AttributeInfo {
 
    protected abstract GeneratedValue extractGeneratedValueAnnotation();
 
+   protected abstract SequenceGenerator extractSequenceGeneratorAnnotation();
+
+   protected abstract TableGenerator extractTableGeneratorAnnotation();
+
    protected abstract Id extractIdAnnotation();
 
+   protected abstract Version extractVersionAnnotation();
+
    private void processConvertAnnotation()
    {
       final Convert convertAnnotation = extractConvertAnnotation();
@@ -473,6 +493,7 @@ abstract class AttributeInfo {
          ", isIdField=" + isIdField +
          ", isJoinColumn=" + isJoinColumn +
          ", isTransient=" + isTransient +
+         ", isVersion=" + isVersion +
          ", isEnumerated=" + isEnumerated +
          ", isColumnAnnotated=" + isColumnAnnotated +
          ", delimitedName='" + delimitedName + '\'' +
@@ -504,6 +525,15 @@ abstract class AttributeInfo {
       return converter;
    }
 
+   /**
+    * @return the name element of the {@literal @}JoinColumn annotation, null if there is none.
+    */
+   @Nullable
+   String getJoinColumnName()
+   {
+      return joinColumnAnnotation != null ? joinColumnAnnotation.name() : null;
+   }
+
    boolean isSelfJoinField()
    {
       return isJoinColumn && type == ownerClazz;
@@ -560,6 +590,30 @@ abstract class AttributeInfo {
       return isEnumerated;
    }
 
+   /**
+    * @return null if not a generated id.
+    */
+   GeneratedValue getGeneratedValueAnnotation()
+   {
+      return generatedValueAnnotation;
+   }
+
+   /**
+    * @return The @SequenceGenerator on the generated id's field or getter. null if there is none.
+    */
+   SequenceGenerator getSequenceGeneratorAnnotation()
+   {
+      return sequenceGeneratorAnnotation;
+   }
+
+   /**
+    * @return The @TableGenerator on the generated id's field or getter. null if there is none.
+    */
+   TableGenerator getTableGeneratorAnnotation()
+   {
+      return tableGeneratorAnnotation;
+   }
+
    /**
     * @return null: no @Column annotation. true: @Column annotation. false @Column with
     * updatable = false or join with second table.
@@ -607,11 +661,98 @@ abstract class AttributeInfo {
 
    abstract void setValue(final Object target, final Object value) throws IllegalAccessException;
 
+   /**
+    * @return true if the attribute is of type int, long or double and its value needs no conversion (no converter, not enumerated, no join column). Only then {@link #getInt(Object)}, {@link #setInt(Object, int)} etc. are applicable. They do not box.
+    */
+   boolean hasPrimitiveAccessors()
+   {
+      return accessor != null && accessor.hasPrimitiveAccessors() && converter == null && !isEnumerated && !isJoinColumn;
+   }
+
+   int getInt(final Object target)
+   {
+      try {
+         return accessor.getInt(target);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   void setInt(final Object target, final int value)
+   {
+      try {
+         accessor.setInt(target, value);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   long getLong(final Object target)
+   {
+      try {
+         return accessor.getLong(target);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   void setLong(final Object target, final long value)
+   {
+      try {
+         accessor.setLong(target, value);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   double getDouble(final Object target)
+   {
+      try {
+         return accessor.getDouble(target);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   void setDouble(final Object target, final double value)
+   {
+      try {
+         accessor.setDouble(target, value);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   protected static RuntimeException unchecked(final Throwable t)
+   {
+      if (t instanceof RuntimeException) {
+         return (RuntimeException) t;
+      }
+      if (t instanceof Error) {
+         throw (Error) t;
+      }
+      return new RuntimeException(t);
+   }
+
    boolean isTransient()
    {
       return isTransient;
    }
 
+   /**
+    * @return true if annotated with @Version.
+    */
+   boolean isVersion()
+   {
+      return isVersion;
+   }
+
    protected Object idValueToParentEntity(final Class<?> clazz, final Object value) throws IllegalAccessException, InstantiationException
    {
       return idValueToParentEntity(clazz.newInstance(), value);
@@ -0,0 +1,190 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent cache bounded by size with CLOCK (second chance) eviction, for q2o's internal caches of SQL texts, result plans and parameter types, and of query results. Lookups take no lock: a hit only sets the entry's referenced bit. When an insertion exceeds the size, one thread at a time sweeps the entries in insertion order, evicting the first not referenced since the last sweep.
+ * <p>
+ * Removed and replaced entries stay in the clock until a sweep reaches them. So that churn without evictions does not grow it, they are dropped once the clock holds twice as many entries as the cache may.
+ */
+final class BoundedCache<K, V> {
+
+   private final int maxSize;
+   private final ConcurrentHashMap<K, Node<K, V>> map;
+   private final Queue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger clockLength = new AtomicInteger();
+   private final ReentrantLock evictionLock = new ReentrantLock();
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
+
+   BoundedCache(final int maxSize) {
+      this.maxSize = maxSize;
+      this.map = new ConcurrentHashMap<>();
+   }
+
+   @Nullable
+   V get(final K key) {
+      final Node<K, V> node = map.get(key);
+      if (node == null) {
+         misses.increment();
+         return null;
+      }
+      node.markReferenced();
+      hits.increment();
+      return node.value;
+   }
+
+   /**
+    * Unlike ConcurrentHashMap.computeIfAbsent() the function is called without lock, so threads missing the same key concurrently may each call it. The value of the first one to finish is kept.
+    */
+   V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+      final V cached = get(key);
+      if (cached != null) {
+         return cached;
+      }
+      final Node<K, V> node = new Node<>(key, mappingFunction.apply(key));
+      final Node<K, V> existing = map.putIfAbsent(key, node);
+      if (existing != null) {
+         return existing.value;
+      }
+      added(node);
+      return node.value;
+   }
+
+   void put(final K key, final V value) {
+      final Node<K, V> node = new Node<>(key, value);
+      map.put(key, node);
+      added(node);
+   }
+
+   /**
+    * Removes key only if it is still mapped to value.
+    */
+   void remove(final K key, final V value) {
+      map.computeIfPresent(key, (k, node) -> node.value == value ? null : node);
+   }
+
+   /**
+    * Removes the entries whose value matches filter.
+    */
+   void removeIf(final Predicate<? super V> filter) {
+      if (map.values().removeIf(node -> filter.test(node.value))) {
+         evictionLock.lock();
+         try {
+            dropStaleNodes();
+         }
+         finally {
+            evictionLock.unlock();
+         }
+      }
+   }
+
+   int size() {
+      return map.size();
+   }
+
+   /**
+    * Removes all entries and resets the counters.
+    */
+   void clear() {
+      evictionLock.lock();
+      try {
+         map.clear();
+         clock.clear();
+         clockLength.set(0);
+      }
+      finally {
+         evictionLock.unlock();
+      }
+      hits.reset();
+      misses.reset();
+      evictions.reset();
+   }
+
+   CacheStatistics getStatistics() {
+      return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), map.size());
+   }
+
+   /**
+    * @return The number of entries in the clock, including removed ones not dropped yet. For tests.
+    */
+   int clockLength() {
+      return clockLength.get();
+   }
+
+   private void added(final Node<K, V> node) {
+      clock.add(node);
+      clockLength.incrementAndGet();
+      if ((map.size() > maxSize || clockLength.get() > 2 * maxSize) && evictionLock.tryLock()) {
+         try {
+            if (clockLength.get() > 2 * maxSize) {
+               dropStaleNodes();
+            }
+            while (map.size() > maxSize) {
+               final Node<K, V> candidate = clock.poll();
+               if (candidate == null) {
+                  break;
+               }
+               clockLength.decrementAndGet();
+               if (map.get(candidate.key) != candidate) {
+                  continue;
+               }
+               if (candidate.referenced) {
+                  candidate.referenced = false;
+                  clock.add(candidate);
+                  clockLength.incrementAndGet();
+               }
+               else if (map.remove(candidate.key, candidate)) {
+                  evictions.increment();
+               }
+            }
+         }
+         finally {
+            evictionLock.unlock();
+         }
+      }
+   }
+
+   /**
+    * Drops the nodes of removed or replaced entries from the clock. To be called with evictionLock held, as only its holder takes nodes out of the clock.
+    */
+   private void dropStaleNodes() {
+      clock.removeIf(node -> {
+         if (map.get(node.key) == node) {
+            return false;
+         }
+         clockLength.decrementAndGet();
+         return true;
+      });
+   }
+
+   private static final class Node<K, V> {
+      final K key;
+      final V value;
+      volatile boolean referenced;
+
+      Node(final K key, final V value) {
+         this.key = key;
+         this.value = value;
+      }
+
+      /**
+       * Writes only if not yet set, so hits on a hot entry do not keep invalidating its cache line on other cores.
+       */
+      void markReferenced() {
+         if (!referenced) {
+            referenced = true;
+         }
+      }
+   }
+}
@@ -0,0 +1,287 @@
+package com.zaxxer.q2o;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Iterator;
+
+/**
+ * Inserts entities with PostgreSQL's COPY FROM STDIN or MySQL's LOAD DATA LOCAL INFILE instead of INSERT statements, see {@link q2o#setBulkLoad(boolean)}. The entities are encoded as CSV while the driver reads the stream, so they are never all held in memory as text.
+ * <p>
+ * MySQL needs "allowLoadLocalInfile=true" in the connection properties. As LOAD DATA LOCAL turns conversion errors, truncations and duplicate keys into warnings, any warning, or fewer rows loaded than sent, fails the load. Generated ids are not fetched.
+ */
+final class BulkLoader {
+
+   private static final String[] MYSQL_STATEMENT_CLASSES = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement", "org.mariadb.jdbc.MariaDbStatement"};
+   private static final int ROWS_PER_BUFFER = 1000;
+   /**
+    * Of the warnings of a failed LOAD DATA LOCAL, the number put into the exception's message.
+    */
+   private static final int WARNINGS_IN_MESSAGE = 5;
+
+   private BulkLoader() {
+   }
+
+   /**
+    * @return false if bulk loading is not possible with the connection's database or the entity's attribute types. Nothing was inserted then.
+    */
+   static <T> boolean load(final Connection connection, final Introspected introspected, final AttributeInfo[] fcInfos, final Iterable<T> iterable) throws SQLException {
+      for (final AttributeInfo fcInfo : fcInfos) {
+         final Class<?> type = fcInfo.getType();
+         if (type == byte[].class || Blob.class.isAssignableFrom(type) || Clob.class.isAssignableFrom(type) || fcInfo.isSelfJoinField()) {
+            return false;
+         }
+      }
+
+      final Dialect dialect = Dialect.of(connection);
+      if (dialect == Dialect.POSTGRESQL) {
+         PostgresCopy.copy(connection, introspected, fcInfos, iterable);
+         return true;
+      }
+      else if (dialect == Dialect.MYSQL) {
+         return loadDataLocal(connection, introspected, fcInfos, iterable);
+      }
+      return false;
+   }
+
+   static String createSqlForCopy(final Introspected introspected, final AttributeInfo[] fcInfos) {
+      return "COPY " + introspected.getDelimitedTableName() + " (" + columns(fcInfos) + ") FROM STDIN WITH (FORMAT csv)";
+   }
+
+   static String createSqlForLoadData(final Introspected introspected, final AttributeInfo[] fcInfos) {
+      return "LOAD DATA LOCAL INFILE 'q2o' INTO TABLE " + introspected.getDelimitedTableName()
+         + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'"
+         + " (" + columns(fcInfos) + ")";
+   }
+
+   private static String columns(final AttributeInfo[] fcInfos) {
+      final StringBuilder columns = new StringBuilder();
+      for (final AttributeInfo fcInfo : fcInfos) {
+         columns.append(fcInfo.getDelimitedColumnName()).append(',');
+      }
+      return columns.deleteCharAt(columns.length() - 1).toString();
+   }
+
+   /**
+    * Sets the CSV stream with setLocalInfileInputStream() of the driver's statement class, so no file is involved.
+    *
+    * @return false if the driver is none of MySQL Connector/J 5 or 8 and MariaDB Connector/J.
+    */
+   private static <T> boolean loadDataLocal(final Connection connection, final Introspected introspected, final AttributeInfo[] fcInfos, final Iterable<T> iterable) throws SQLException {
+      try (final Statement stmt = connection.createStatement()) {
+         for (final String className : MYSQL_STATEMENT_CLASSES) {
+            final Class<?> statementClass;
+            try {
+               statementClass = Class.forName(className);
+            }
+            catch (ClassNotFoundException e) {
+               continue;
+            }
+            if (!stmt.isWrapperFor(statementClass)) {
+               continue;
+            }
+            final CsvInputStream<T> csv = new CsvInputStream<>(iterable.iterator(), fcInfos, Dialect.MYSQL);
+            try {
+               final Method setStream = statementClass.getMethod("setLocalInfileInputStream", InputStream.class);
+               setStream.invoke(stmt.unwrap(statementClass), csv);
+            }
+            catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+               throw new RuntimeException(e);
+            }
+            stmt.execute(createSqlForLoadData(introspected, fcInfos));
+            checkLoaded(stmt, csv.getRows(), introspected);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * @throws SQLException if the statement has warnings, or loaded fewer rows than were sent. The rows loaded stay inserted unless the transaction is rolled back.
+    */
+   private static void checkLoaded(final Statement stmt, final int rows, final Introspected introspected) throws SQLException {
+      final SQLWarning warnings = stmt.getWarnings();
+      final int loaded = stmt.getUpdateCount();
+      if (warnings == null && (loaded < 0 || loaded == rows)) {
+         return;
+      }
+      final StringBuilder message = new StringBuilder("LOAD DATA LOCAL into ").append(introspected.getTableName())
+         .append(" loaded ").append(loaded).append(" of ").append(rows).append(" rows");
+      int count = 0;
+      for (SQLWarning warning = warnings; warning != null; warning = warning.getNextWarning()) {
+         if (count++ < WARNINGS_IN_MESSAGE) {
+            message.append(count == 1 ? ", warnings: " : "; ").append(warning.getMessage());
+         }
+      }
+      if (count > WARNINGS_IN_MESSAGE) {
+         message.append("; and ").append(count - WARNINGS_IN_MESSAGE).append(" more");
+      }
+      final SQLException exception = new SQLException(message.toString());
+      if (warnings != null) {
+         exception.setNextException(warnings);
+      }
+      throw exception;
+   }
+
+   static <T> InputStream csv(final Iterable<T> iterable, final AttributeInfo[] fcInfos, final Dialect dialect) {
+      return new CsvInputStream<>(iterable.iterator(), fcInfos, dialect);
+   }
+
+   /**
+    * Loaded only on PostgreSQL, so the driver is needed on the classpath only then.
+    */
+   private static final class PostgresCopy {
+      static <T> void copy(final Connection connection, final Introspected introspected, final AttributeInfo[] fcInfos, final Iterable<T> iterable) throws SQLException {
+         final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+         try {
+            copyManager.copyIn(createSqlForCopy(introspected, fcInfos), csv(iterable, fcInfos, Dialect.POSTGRESQL));
+         }
+         catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+
+   /**
+    * One line per entity. Values are taken as {@link FieldValueToDatabaseType} would set them as parameters. PostgreSQL's CSV format writes null as an unquoted empty field and doubles quotes in strings, MySQL's writes null as \N and escapes with backslashes.
+    */
+   private static final class CsvInputStream<T> extends InputStream {
+      private final Iterator<T> iterator;
+      private final AttributeInfo[] fcInfos;
+      private final int[] sqlTypes;
+      private final boolean isMySql;
+      private final StringBuilder lines = new StringBuilder();
+      private byte[] buffer = new byte[0];
+      private int position;
+      private int rows;
+
+      CsvInputStream(final Iterator<T> iterator, final AttributeInfo[] fcInfos, final Dialect dialect) {
+         this.iterator = iterator;
+         this.fcInfos = fcInfos;
+         this.isMySql = dialect == Dialect.MYSQL;
+         this.sqlTypes = new int[fcInfos.length];
+         for (int i = 0; i < fcInfos.length; i++) {
+            sqlTypes[i] = ParameterTypes.ofAttribute(fcInfos[i]);
+         }
+      }
+
+      /**
+       * @return The number of lines read so far.
+       */
+      int getRows() {
+         return rows;
+      }
+
+      @Override
+      public int read() {
+         if (!fill()) {
+            return -1;
+         }
+         return buffer[position++] & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] bytes, final int offset, final int length) {
+         if (length == 0) {
+            return 0;
+         }
+         if (!fill()) {
+            return -1;
+         }
+         final int count = Math.min(length, buffer.length - position);
+         System.arraycopy(buffer, position, bytes, offset, count);
+         position += count;
+         return count;
+      }
+
+      /**
+       * @return false if all entities were read.
+       */
+      private boolean fill() {
+         if (position < buffer.length) {
+            return true;
+         }
+         lines.setLength(0);
+         for (int count = 0; count < ROWS_PER_BUFFER && iterator.hasNext(); count++) {
+            appendLine(iterator.next());
+            rows++;
+         }
+         buffer = lines.toString().getBytes(StandardCharsets.UTF_8);
+         position = 0;
+         return buffer.length > 0;
+      }
+
+      private void appendLine(final T item) {
+         for (int i = 0; i < fcInfos.length; i++) {
+            if (i > 0) {
+               lines.append(',');
+            }
+            appendValue(FieldValueToDatabaseType.getValue(item, fcInfos[i], sqlTypes[i]));
+         }
+         lines.append('\n');
+      }
+
+      private void appendValue(final Object value) {
+         if (value == null) {
+            if (isMySql) {
+               lines.append("\\N");
+            }
+         }
+         else if (value instanceof Boolean) {
+            lines.append(isMySql ? ((Boolean) value ? "1" : "0") : value.toString());
+         }
+         else if (value instanceof BigDecimal) {
+            lines.append(((BigDecimal) value).toPlainString());
+         }
+         else if (value instanceof Number) {
+            lines.append(value);
+         }
+         else if (value instanceof java.util.Date && !(value instanceof Timestamp || value instanceof java.sql.Date || value instanceof Time)) {
+            appendQuoted(new Timestamp(((java.util.Date) value).getTime()).toString());
+         }
+         else {
+            appendQuoted(value.toString());
+         }
+      }
+
+      private void appendQuoted(final String value) {
+         lines.append('"');
+         for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (isMySql) {
+               switch (c) {
+               case '\\':
+               case '"':
+                  lines.append('\\').append(c);
+                  break;
+               case '\n':
+                  lines.append("\\n");
+                  break;
+               case '\r':
+                  lines.append("\\r");
+                  break;
+               case '\0':
+                  lines.append("\\0");
+                  break;
+               default:
+                  lines.append(c);
+               }
+            }
+            else {
+               if (c == '"') {
+                  lines.append('"');
+               }
+               lines.append(c);
+            }
+         }
+         lines.append('"');
+      }
+   }
+}
@@ -0,0 +1,116 @@
+package com.zaxxer.q2o;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write generation of an entity class in {@link SecondLevelCache}, or of all tables in {@link QueryResultCache}, so values read while a write happens are not cached.
+ * <p>
+ * A reader takes {@link #generation()} before it queries, puts what it read, and takes it out again if {@link #isUnchangedSince(long)} is false afterwards. A writer calls {@link #written(Connection, Runnable)} after it executed its statements. Only reads on connections in auto-commit mode put, see {@link #mayPut(Connection)}, so nothing read inside a transaction, which may be rolled back, is seen by other threads.
+ * <p>
+ * A write in a transaction of the {@link javax.transaction.TransactionManager} registered with q2o is invalidated again after the transaction completed, and until then nothing is put. q2o does not see the commit of other transactions, e.g. of a connection passed by the application, so values read between such a write and its commit stay cached until they expire.
+ */
+final class CacheGuard {
+
+   private static final Logger logger = LoggerFactory.getLogger(CacheGuard.class);
+
+   private final AtomicLong generation = new AtomicLong();
+   private final AtomicInteger uncommittedWrites = new AtomicInteger();
+
+   /**
+    * To take before the query whose result is put.
+    */
+   long generation() {
+      return generation.get();
+   }
+
+   /**
+    * @return false if a write happened since generationBefore was taken, or one has not been committed yet.
+    */
+   boolean isUnchangedSince(final long generationBefore) {
+      return uncommittedWrites.get() == 0 && generation.get() == generationBefore;
+   }
+
+   /**
+    * Runs invalidation, and if connection is in a transaction of the registered {@link javax.transaction.TransactionManager}, again when the transaction completed.
+    */
+   void written(final Connection connection, final Runnable invalidation) {
+      invalidate(invalidation);
+      if (isAutoCommit(connection)) {
+         return;
+      }
+      final Transaction transaction = TransactionHelper.getActiveTransaction();
+      if (transaction == null) {
+         return;
+      }
+      uncommittedWrites.incrementAndGet();
+      try {
+         transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+               try {
+                  invalidate(invalidation);
+               }
+               finally {
+                  uncommittedWrites.decrementAndGet();
+               }
+            }
+         });
+      }
+      catch (RollbackException | SystemException | IllegalStateException e) {
+         uncommittedWrites.decrementAndGet();
+         logger.warn("Could not register cache invalidation at transaction completion", e);
+      }
+   }
+
+   /**
+    * Runs invalidation, e.g. when the cache is cleared.
+    */
+   void written(final Runnable invalidation) {
+      invalidate(invalidation);
+   }
+
+   /**
+    * In this order, so a reader putting after invalidation ran sees the new generation.
+    */
+   private void invalidate(final Runnable invalidation) {
+      generation.incrementAndGet();
+      invalidation.run();
+   }
+
+   /**
+    * @return true if values read with connection may be cached: it is in auto-commit mode, so they are committed.
+    */
+   static boolean mayPut(final Connection connection) {
+      return isAutoCommit(connection);
+   }
+
+   /**
+    * @return true if cached values may be returned for reads with connection: in auto-commit mode, or in a transaction of the registered {@link javax.transaction.TransactionManager}, whose writes are tracked until it completed. Else the transaction may have written a value not yet committed, which another thread could have cached in its old state.
+    */
+   static boolean mayGet(final Connection connection) {
+      return isAutoCommit(connection) || TransactionHelper.getActiveTransaction() != null;
+   }
+
+   private static boolean isAutoCommit(final Connection connection) {
+      try {
+         return connection.getAutoCommit();
+      }
+      catch (SQLException e) {
+         return false;
+      }
+   }
+}
@@ -0,0 +1,72 @@
+package com.zaxxer.q2o;
+
+/**
+ * Snapshot of the counters of one of q2o's internal caches.
+ *
+ * @see q2o#getResultPlanCacheStatistics()
+ */
+public final class CacheStatistics {
+
+   private final long hits;
+   private final long misses;
+   private final long evictions;
+   private final int size;
+
+   CacheStatistics(final long hits, final long misses, final int size) {
+      this(hits, misses, 0, size);
+   }
+
+   CacheStatistics(final long hits, final long misses, final long evictions, final int size) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.size = size;
+   }
+
+   public long getHits() {
+      return hits;
+   }
+
+   public long getMisses() {
+      return misses;
+   }
+
+   /**
+    * @return number of entries removed to stay within the cache's size bound.
+    */
+   public long getEvictions() {
+      return evictions;
+   }
+
+   /**
+    * @return number of entries currently held.
+    */
+   public int getSize() {
+      return size;
+   }
+
+   /**
+    * @return hits / (hits + misses), 0 if there were no lookups yet.
+    */
+   public double getHitRatio() {
+      final long lookups = hits + misses;
+      return lookups == 0 ? 0d : (double) hits / lookups;
+   }
+
+   @Override
+   public String toString() {
+      return "CacheStatistics{" +
+         "hits=" + hits +
+         ", misses=" + misses +
+         ", evictions=" + evictions +
+         ", size=" + size +
+         '}';
+   }
+
+   /**
+    * @return The sums of both caches' counters.
+    */
+   CacheStatistics plus(final CacheStatistics other) {
+      return new CacheStatistics(hits + other.hits, misses + other.misses, evictions + other.evictions, size + other.size);
+   }
+}
@@ -0,0 +1,76 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * Immutable open addressing hash table with case insensitive String keys, as compared by {@link String#CASE_INSENSITIVE_ORDER}. A lookup hashes and compares the key char by char, so it neither allocates a case folded copy nor walks a tree.
+ */
+final class CaseInsensitiveIndex<V> {
+
+   private final String[] keys;
+   private final Object[] values;
+   private final int mask;
+   private final int size;
+
+   /**
+    * @param entries Keys equal ignoring case are kept once, the first one wins.
+    */
+   CaseInsensitiveIndex(final Map<String, ? extends V> entries) {
+      int capacity = 4;
+      while (capacity < entries.size() * 2) {
+         capacity <<= 1;
+      }
+      keys = new String[capacity];
+      values = new Object[capacity];
+      mask = capacity - 1;
+      int count = 0;
+      for (final Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+         final String key = entry.getKey();
+         int slot = hash(key) & mask;
+         while (keys[slot] != null && !keys[slot].equalsIgnoreCase(key)) {
+            slot = (slot + 1) & mask;
+         }
+         if (keys[slot] == null) {
+            keys[slot] = key;
+            values[slot] = entry.getValue();
+            count++;
+         }
+      }
+      size = count;
+   }
+
+   @Nullable
+   V get(@Nullable final String key) {
+      if (key == null) {
+         return null;
+      }
+      int slot = hash(key) & mask;
+      String candidate;
+      while ((candidate = keys[slot]) != null) {
+         if (candidate.equalsIgnoreCase(key)) {
+            @SuppressWarnings("unchecked")
+            final V value = (V) values[slot];
+            return value;
+         }
+         slot = (slot + 1) & mask;
+      }
+      return null;
+   }
+
+   int size() {
+      return size;
+   }
+
+   /**
+    * Equal for keys equal ignoring case. Folds each char like {@link String#CASE_INSENSITIVE_ORDER}.
+    */
+   private static int hash(final String key) {
+      int h = 0;
+      for (int i = 0; i < key.length(); i++) {
+         h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+      }
+      return h ^ (h >>> 16);
+   }
+}
@@ -0,0 +1,17 @@
+package com.zaxxer.q2o;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} holding database resources until it is exhausted or closed. Use it within try-with-resources if you may stop iterating early.
+ *
+ * @see Q2ObjList#iterateFromClause(Class, String, Object...)
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+   /**
+    * Releases the result set, statement and, if acquired for this iterator, the connection. Does not throw SQLExceptions. Calling it more than once has no effect.
+    */
+   @Override
+   void close();
+}
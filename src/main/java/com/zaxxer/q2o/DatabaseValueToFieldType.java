@@ -32,12 +32,27 @@ class DatabaseValueToFieldType {
     * @return type corrected value
     */
    Object adaptValueToFieldType(@NotNull final AttributeInfo fcInfo, final Object value, final ResultSetMetaData metaData, final Introspected introspected, final int colIdx) {
-      String columnTypeName = null;
+      final String columnTypeName;
+      try {
+         columnTypeName = metaData.getColumnTypeName(colIdx);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      return adaptValueToFieldType(fcInfo, value, columnTypeName, introspected);
+   }
+
+   /**
+    * As {@link #adaptValueToFieldType(AttributeInfo, Object, ResultSetMetaData, Introspected, int)} but with the column's type name already known, e. g. from a {@link ResultPlan}.
+    *
+    * @param columnTypeName as {@link ResultSetMetaData#getColumnTypeName(int)}
+    * @return type corrected value
+    */
+   Object adaptValueToFieldType(@NotNull final AttributeInfo fcInfo, final Object value, final String columnTypeName, final Introspected introspected) {
       Class<?> fieldType = null;
       try {
          fieldType = fcInfo.getType();
          Object typeCorrectedValue;
-         columnTypeName = metaData.getColumnTypeName(colIdx);
 
          if (value != null && fcInfo.getConverter() != null) {
             typeCorrectedValue = applyConverter(fcInfo, value, introspected, columnTypeName, fieldType);
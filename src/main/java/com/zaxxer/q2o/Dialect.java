@@ -0,0 +1,67 @@
+package com.zaxxer.q2o;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The databases q2o generates vendor specific SQL for, e.g. upserts, or knows limits of, e.g. for multi row inserts. Determined from the connection's DatabaseMetaData, or MYSQL if {@link q2o#setMySqlMode(boolean)} was set.
+ */
+enum Dialect {
+   H2(32767),
+   POSTGRESQL(32767),
+   MYSQL(65535),
+   SQLITE(999),
+   // Stays below the 2100 parameters of sp_executesql, which drivers may need some of.
+   SQLSERVER(2000),
+   // Has no multi row VALUES lists.
+   ORACLE(0),
+   OTHER(0);
+
+   /**
+    * SQL Server accepts at most 1000 rows in a VALUES list.
+    */
+   private static final int SQLSERVER_MAX_VALUES_ROWS = 1000;
+
+   private final int maxParameters;
+
+   /**
+    * @param maxParameters The maximum number of parameters q2o puts into one statement. 0 if multi row VALUES lists are not known to be supported.
+    */
+   Dialect(final int maxParameters) {
+      this.maxParameters = maxParameters;
+   }
+
+   /**
+    * @return The number of rows of columnCount columns that fit into one "INSERT ... VALUES (...),(...)" statement. 0 if not supported.
+    */
+   int getMaxRowsPerInsert(final int columnCount) {
+      final int rows = maxParameters / Math.max(1, columnCount);
+      return this == SQLSERVER ? Math.min(rows, SQLSERVER_MAX_VALUES_ROWS) : rows;
+   }
+
+   static Dialect of(final Connection connection) throws SQLException {
+      if (q2o.isMySqlMode()) {
+         return MYSQL;
+      }
+      final String productName = connection.getMetaData().getDatabaseProductName().toLowerCase();
+      if (productName.contains("h2")) {
+         return H2;
+      }
+      else if (productName.contains("postgresql")) {
+         return POSTGRESQL;
+      }
+      else if (productName.contains("mysql") || productName.contains("mariadb")) {
+         return MYSQL;
+      }
+      else if (productName.contains("sqlite")) {
+         return SQLITE;
+      }
+      else if (productName.contains("microsoft sql server")) {
+         return SQLSERVER;
+      }
+      else if (productName.contains("oracle")) {
+         return ORACLE;
+      }
+      return OTHER;
+   }
+}
@@ -0,0 +1,155 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the updatable attributes' values of entities as read from or last written to the database, see {@link q2o#setDirtyTracking(boolean)}. Entities are held by identity and weakly, so equals()/hashCode() of the entity do not matter and snapshots go with the entity.
+ * <p>
+ * int, long and double attributes with {@link AttributeInfo#hasPrimitiveAccessors()} are kept unboxed in a long[]. java.util.Date and byte[] values are copied, other values are kept by reference, so changes within mutable objects of other types are not detected.
+ */
+final class DirtyTracker {
+
+   private static final Map<IdentityKey, Snapshot> snapshots = new ConcurrentHashMap<>();
+   private static final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+   private DirtyTracker() {
+   }
+
+   static void capture(final Introspected introspected, final Object target) {
+      expungeCollected();
+      snapshots.put(new IdentityKey(target, collected), new Snapshot(introspected, target));
+   }
+
+   /**
+    * @return The indexes into {@link Introspected#getUpdatableFcInfos()} of the attributes changed since the last {@link #capture(Introspected, Object)}. null if there is no snapshot of target.
+    */
+   @Nullable
+   static BitSet changedAttributes(final Introspected introspected, final Object target) {
+      final Snapshot snapshot = snapshots.get(new IdentityKey(target, null));
+      if (snapshot == null || snapshot.introspected != introspected) {
+         return null;
+      }
+      return snapshot.changedAttributes(target);
+   }
+
+   static void clear() {
+      snapshots.clear();
+      expungeCollected();
+   }
+
+   private static void expungeCollected() {
+      Object key;
+      while ((key = collected.poll()) != null) {
+         snapshots.remove(key);
+      }
+   }
+
+   private static Object valueOf(final AttributeInfo fcInfo, final Object target) {
+      try {
+         return copy(fcInfo.getValue(target));
+      }
+      catch (IllegalAccessException | InvocationTargetException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static Object copy(final Object value) {
+      if (value instanceof Date) {
+         return ((Date) value).clone();
+      }
+      else if (value instanceof byte[]) {
+         return ((byte[]) value).clone();
+      }
+      return value;
+   }
+
+   private static long primitiveOf(final AttributeInfo fcInfo, final Object target) {
+      final Class<?> type = fcInfo.getType();
+      if (type == int.class) {
+         return fcInfo.getInt(target);
+      }
+      else if (type == long.class) {
+         return fcInfo.getLong(target);
+      }
+      return Double.doubleToRawLongBits(fcInfo.getDouble(target));
+   }
+
+   private static final class Snapshot {
+      private final Introspected introspected;
+      /**
+       * Values of attributes with primitive accessors, by index into the updatable attributes. Unused elsewhere.
+       */
+      private final long[] primitives;
+      /**
+       * Values of the other attributes. Unused where the value is in {@link #primitives}.
+       */
+      private final Object[] values;
+
+      Snapshot(final Introspected introspected, final Object target) {
+         this.introspected = introspected;
+         final AttributeInfo[] fcInfos = introspected.getUpdatableFcInfos();
+         primitives = new long[fcInfos.length];
+         values = new Object[fcInfos.length];
+         for (int i = 0; i < fcInfos.length; i++) {
+            if (fcInfos[i].hasPrimitiveAccessors()) {
+               primitives[i] = primitiveOf(fcInfos[i], target);
+            }
+            else {
+               values[i] = valueOf(fcInfos[i], target);
+            }
+         }
+      }
+
+      BitSet changedAttributes(final Object target) {
+         final AttributeInfo[] fcInfos = introspected.getUpdatableFcInfos();
+         final BitSet changed = new BitSet(fcInfos.length);
+         for (int i = 0; i < fcInfos.length; i++) {
+            final boolean equal = fcInfos[i].hasPrimitiveAccessors()
+               ? primitives[i] == primitiveOf(fcInfos[i], target)
+               : Objects.deepEquals(values[i], valueOf(fcInfos[i], target));
+            if (!equal) {
+               changed.set(i);
+            }
+         }
+         return changed;
+      }
+   }
+
+   /**
+    * Equal if the referents are the same object. A key for lookups is created without queue and dropped after use.
+    */
+   private static final class IdentityKey extends WeakReference<Object> {
+      private final int hashCode;
+
+      IdentityKey(final Object referent, @Nullable final ReferenceQueue<Object> queue) {
+         super(referent, queue);
+         this.hashCode = System.identityHashCode(referent);
+      }
+
+      @Override
+      public int hashCode() {
+         return hashCode;
+      }
+
+      @Override
+      public boolean equals(final Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof IdentityKey)) {
+            return false;
+         }
+         final Object referent = get();
+         return referent != null && referent == ((IdentityKey) obj).get();
+      }
+   }
+}
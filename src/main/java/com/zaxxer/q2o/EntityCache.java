@@ -0,0 +1,43 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Storage of the second level cache of entities by id, see {@link q2o#setEntityCache(EntityCache)}. Implement it to use another eviction strategy or cache library. q2o puts and gets copies, so implementations may hold the entities as they are.
+ * <p>
+ * Implementations must be thread safe.
+ */
+public interface EntityCache {
+
+   /**
+    * @param id The id's values, in case of a composite key in the order of the @Id attributes. Integral numbers are Longs.
+    * @return null if not cached or expired.
+    */
+   @Nullable
+   Object get(Class<?> clazz, List<Object> id);
+
+   void put(Class<?> clazz, List<Object> id, Object entity);
+
+   void evict(Class<?> clazz, List<Object> id);
+
+   /**
+    * Evicts all entities of clazz, e.g. after a DELETE by a WHERE clause.
+    */
+   void evictAll(Class<?> clazz);
+
+   void clear();
+
+   int size();
+
+   /**
+    * @param maxSize The number of entities held at most. The least recently used one is evicted first.
+    * @param timeToLiveMillis The time after which an entity expires after it was put. Must be positive: it bounds how long changes q2o does not see remain unnoticed, see {@link q2o#setEntityCache(EntityCache)}.
+    * @return A cache bounded by size and time.
+    * @throws IllegalArgumentException if timeToLiveMillis is not positive.
+    */
+   static EntityCache lru(final int maxSize, final long timeToLiveMillis) {
+      return new LruEntityCache(maxSize, timeToLiveMillis);
+   }
+}
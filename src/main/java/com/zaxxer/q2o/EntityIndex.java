@@ -0,0 +1,87 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.processor.EntityIndexProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The entity classes recorded at compile time by {@link EntityIndexProcessor}. If {@link q2o#setEntityIndex(boolean)} is set, they are introspected when q2o is initialized, so the first request using them does not pay for the reflection. Classes not in the index, or failing to load, are still introspected on first use.
+ */
+final class EntityIndex {
+
+   private static final Logger logger = LoggerFactory.getLogger(EntityIndex.class);
+   private static final AtomicBoolean warmedUp = new AtomicBoolean();
+
+   private EntityIndex() {
+   }
+
+   /**
+    * Warms up the indexed entities of the context class loader, see {@link WarmUp}, once per initialization of q2o, as {@link q2o#deinitialize()} discards the generated statements. Does nothing unless {@link q2o#setEntityIndex(boolean)} is set.
+    */
+   static void introspectIndexedEntities() {
+      if (!q2o.isEntityIndex() || !warmedUp.compareAndSet(false, true)) {
+         return;
+      }
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader() != null
+         ? Thread.currentThread().getContextClassLoader()
+         : EntityIndex.class.getClassLoader();
+      final List<Class<?>> classes = load(classLoader);
+      if (!classes.isEmpty()) {
+         WarmUp.warmUp(classes);
+      }
+   }
+
+   /**
+    * Lets the next initialization warm up the indexed entities again. Called by {@link q2o#deinitialize()}.
+    */
+   static void reset() {
+      warmedUp.set(false);
+   }
+
+   /**
+    * @return The classes listed in all {@link EntityIndexProcessor#INDEX} resources of classLoader, without those that can not be loaded.
+    */
+   static List<Class<?>> load(final ClassLoader classLoader) {
+      final Set<String> names = new LinkedHashSet<>();
+      try {
+         final Enumeration<URL> indexes = classLoader.getResources(EntityIndexProcessor.INDEX);
+         while (indexes.hasMoreElements()) {
+            final URL index = indexes.nextElement();
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+               String line;
+               while ((line = reader.readLine()) != null) {
+                  if (!line.trim().isEmpty()) {
+                     names.add(line.trim());
+                  }
+               }
+            }
+         }
+      }
+      catch (IOException e) {
+         logger.warn("Could not read {}", EntityIndexProcessor.INDEX, e);
+      }
+
+      final List<Class<?>> classes = new ArrayList<>(names.size());
+      for (final String name : names) {
+         try {
+            classes.add(Class.forName(name, false, classLoader));
+         }
+         catch (ClassNotFoundException | LinkageError e) {
+            logger.debug("Indexed entity {} not loadable", name, e);
+         }
+      }
+      return classes;
+   }
+}
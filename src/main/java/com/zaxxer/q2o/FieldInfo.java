@@ -13,6 +13,7 @@ class FieldInfo extends AttributeInfo {
    FieldInfo(final Field field, final Class clazz) {
       super(field, clazz);
       field.setAccessible(true);
+      accessor = AttributeAccessor.forField(field);
    }
 
    protected void extractFieldName(final Field accessibleObject) {
@@ -69,23 +70,38 @@ class FieldInfo extends AttributeInfo {
       return field.getDeclaredAnnotation(GeneratedValue.class);
    }
 
+   @Override
+   protected SequenceGenerator extractSequenceGeneratorAnnotation() {
+      return field.getDeclaredAnnotation(SequenceGenerator.class);
+   }
+
+   @Override
+   protected TableGenerator extractTableGeneratorAnnotation() {
+      return field.getDeclaredAnnotation(TableGenerator.class);
+   }
+
+   @Override
+   protected Version extractVersionAnnotation() {
+      return field.getDeclaredAnnotation(Version.class);
+   }
+
    Object getValue(final Object target) throws IllegalAccessException, InvocationTargetException {
+      final Object obj = get(target);
       if (!isSelfJoinField()) {
-         return field.get(target);
+         return obj;
       }
-      Object obj = field.get(target);
       return idValueFromEntity(obj);
    }
 
    void setValue(final Object target, final Object value) throws IllegalAccessException {
       try {
          if (!isSelfJoinField()) {
-            field.set(target, value);
+            set(target, value);
          }
          else {
             final Object obj = value != null ? idValueToParentEntity(target, value)
                                              : value;
-            field.set(target, obj);
+            set(target, obj);
          }
       }
       catch (InstantiationException e) {
@@ -94,6 +110,24 @@ class FieldInfo extends AttributeInfo {
       }
    }
 
+   private Object get(final Object target) {
+      try {
+         return accessor.get(target);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
+   private void set(final Object target, final Object value) {
+      try {
+         accessor.set(target, value);
+      }
+      catch (Throwable t) {
+         throw unchecked(t);
+      }
+   }
+
    @Override
    protected Column extractColumnAnnotation() {
       return field.getDeclaredAnnotation(Column.class);
@@ -0,0 +1,61 @@
+package com.zaxxer.q2o;
+
+/**
+ * Reads and writes the fields of an entity class with plain field access, generated at compile time by {@link com.zaxxer.q2o.processor.EntityIndexProcessor} into the entity's package as {@link #nameOf(String)}. q2o uses it instead of binding {@link java.lang.invoke.MethodHandle}s when introspecting the class, see {@link AttributeAccessor}. Private fields, fields inherited from classes not compiled with the processor, and properties are still accessed through MethodHandles.
+ * <p>
+ * Not meant to be implemented by applications.
+ */
+public interface GeneratedAccessor {
+
+   /**
+    * @return The index of the field to pass to {@link #get(int, Object)} and {@link #set(int, Object, Object)}. -1 if not accessible by this accessor.
+    */
+   int indexOf(String fieldName);
+
+   Object get(int index, Object target);
+
+   /**
+    * Primitive fields are set with the unboxing and widening conversions of {@link java.lang.reflect.Field#set(Object, Object)}, see {@link #toInt(Object, String)} etc. Reference values must be of the field's type.
+    */
+   void set(int index, Object target, Object value);
+
+   /**
+    * @param binaryName Of the entity class, e.g. "com.example.Customer$Address".
+    * @return Binary name of the entity's accessor class, e.g. "com.example.Customer_Address_Q2oAccessor".
+    */
+   static String nameOf(final String binaryName) {
+      return binaryName.replace('$', '_') + "_Q2oAccessor";
+   }
+
+   static boolean toBoolean(final Object value, final String member) {
+      return AttributeAccessor.Widening.toBoolean(member, value);
+   }
+
+   static char toChar(final Object value, final String member) {
+      return AttributeAccessor.Widening.toChar(member, value);
+   }
+
+   static byte toByte(final Object value, final String member) {
+      return AttributeAccessor.Widening.toByte(member, value);
+   }
+
+   static short toShort(final Object value, final String member) {
+      return AttributeAccessor.Widening.toShort(member, value);
+   }
+
+   static int toInt(final Object value, final String member) {
+      return AttributeAccessor.Widening.toInt(member, value);
+   }
+
+   static long toLong(final Object value, final String member) {
+      return AttributeAccessor.Widening.toLong(member, value);
+   }
+
+   static float toFloat(final Object value, final String member) {
+      return AttributeAccessor.Widening.toFloat(member, value);
+   }
+
+   static double toDouble(final Object value, final String member) {
+      return AttributeAccessor.Widening.toDouble(member, value);
+   }
+}
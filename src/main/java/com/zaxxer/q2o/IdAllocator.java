@@ -0,0 +1,409 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.TableGenerator;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import javax.sql.DataSource;
+import javax.transaction.Transaction;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Assigns the ids of an entity whose @GeneratedValue refers to a @SequenceGenerator or @TableGenerator before it is inserted, so no generated keys need to be fetched. Each trip to the database reserves allocationSize ids, which are handed out from a pool per generator without locking.
+ * <p>
+ * A sequence must be incremented by allocationSize, which is checked on its first use, as JPA's default allocationSize of 50 rarely matches. Its next value is the first id of the reserved block. A generator table holds the last reserved id per pkColumnValue. Its row is created with initialValue if missing. Defaults for unspecified table, column names and pkColumnValue are "Q2O_SEQUENCES", "SEQ_NAME", "SEQ_VALUE" and the generator's name.
+ * <p>
+ * The table is updated, and the sequence's increment read, on a connection of its own in auto-commit mode, so a reservation survives the rollback of the caller's transaction. Ids handed out in a transaction rolled back are lost, not reused.
+ */
+final class IdAllocator {
+
+   private static final String DEFAULT_TABLE = "Q2O_SEQUENCES";
+   private static final String DEFAULT_PK_COLUMN = "SEQ_NAME";
+   private static final String DEFAULT_VALUE_COLUMN = "SEQ_VALUE";
+
+   /**
+    * Keyed by {@link #key}, so entities sharing a generator share its ids.
+    */
+   private static final Map<String, AtomicReference<Block>> pools = new ConcurrentHashMap<>();
+   /**
+    * The {@link #key}s of the sequences whose increment was checked.
+    */
+   private static final Set<String> checkedSequences = ConcurrentHashMap.newKeySet();
+
+   private final String key;
+   private final int allocationSize;
+   @Nullable
+   private final SequenceGenerator sequenceGenerator;
+   @Nullable
+   private final TableGenerator tableGenerator;
+
+   private IdAllocator(@Nullable final SequenceGenerator sequenceGenerator, @Nullable final TableGenerator tableGenerator) {
+      this.sequenceGenerator = sequenceGenerator;
+      this.tableGenerator = tableGenerator;
+      if (sequenceGenerator != null) {
+         this.key = "sequence:" + qualify(sequenceGenerator.catalog(), sequenceGenerator.schema(), sequenceName());
+         this.allocationSize = Math.max(1, sequenceGenerator.allocationSize());
+      }
+      else {
+         this.key = "table:" + qualify(tableGenerator.catalog(), tableGenerator.schema(), tableName()) + ':' + pkColumnValue();
+         this.allocationSize = Math.max(1, tableGenerator.allocationSize());
+      }
+   }
+
+   /**
+    * @return null if the id is not generated from a sequence or table. It is then taken from the database's generated keys.
+    */
+   @Nullable
+   static IdAllocator of(final Class<?> clazz, final AttributeInfo idFcInfo) {
+      final GeneratedValue generatedValue = idFcInfo.getGeneratedValueAnnotation();
+      if (generatedValue == null || generatedValue.strategy() == GenerationType.IDENTITY) {
+         return null;
+      }
+      final String generator = generatedValue.generator();
+      if (generatedValue.strategy() != GenerationType.TABLE) {
+         final SequenceGenerator sequenceGenerator = findSequenceGenerator(clazz, idFcInfo, generator);
+         if (sequenceGenerator != null) {
+            return new IdAllocator(sequenceGenerator, null);
+         }
+      }
+      if (generatedValue.strategy() != GenerationType.SEQUENCE) {
+         final TableGenerator tableGenerator = findTableGenerator(clazz, idFcInfo, generator);
+         if (tableGenerator != null) {
+            return new IdAllocator(null, tableGenerator);
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @param generator The name of @GeneratedValue's generator. If empty any @SequenceGenerator is taken.
+    */
+   @Nullable
+   private static SequenceGenerator findSequenceGenerator(final Class<?> clazz, final AttributeInfo idFcInfo, final String generator) {
+      final SequenceGenerator onAttribute = idFcInfo.getSequenceGeneratorAnnotation();
+      if (onAttribute != null && (generator.isEmpty() || generator.equals(onAttribute.name()))) {
+         return onAttribute;
+      }
+      for (Class<?> cls = clazz; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+         final SequenceGenerator onClass = cls.getDeclaredAnnotation(SequenceGenerator.class);
+         if (onClass != null && (generator.isEmpty() || generator.equals(onClass.name()))) {
+            return onClass;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @param generator The name of @GeneratedValue's generator. If empty any @TableGenerator is taken.
+    */
+   @Nullable
+   private static TableGenerator findTableGenerator(final Class<?> clazz, final AttributeInfo idFcInfo, final String generator) {
+      final TableGenerator onAttribute = idFcInfo.getTableGeneratorAnnotation();
+      if (onAttribute != null && (generator.isEmpty() || generator.equals(onAttribute.name()))) {
+         return onAttribute;
+      }
+      for (Class<?> cls = clazz; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+         final TableGenerator onClass = cls.getDeclaredAnnotation(TableGenerator.class);
+         if (onClass != null && (generator.isEmpty() || generator.equals(onClass.name()))) {
+            return onClass;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Sets the next id if target's id is null or not positive. Ids set by the application are kept.
+    */
+   void assignId(final Connection connection, final Introspected introspected, final Object target) throws SQLException {
+      final AttributeInfo fcInfo = introspected.getGeneratedIdFcInfo();
+      try {
+         final Object id = fcInfo.getValue(target);
+         if (id != null && !(id instanceof Number && ((Number) id).longValue() <= 0)) {
+            return;
+         }
+         fcInfo.setValue(target, toIdType(fcInfo.getType(), next(connection)));
+      }
+      catch (IllegalAccessException | InvocationTargetException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Lock-free: Threads take ids from the current block by incrementing its counter. The thread which finds it exhausted reserves a new block. If threads do so concurrently, each takes an id from its own block, and the block not published is dropped.
+    */
+   long next(final Connection connection) throws SQLException {
+      final AtomicReference<Block> pool = pools.computeIfAbsent(key, k -> new AtomicReference<>());
+      final Block current = pool.get();
+      if (current != null) {
+         final long id = current.next.getAndIncrement();
+         if (id < current.end) {
+            return id;
+         }
+      }
+      final Block reserved = reserve(connection);
+      final long id = reserved.next.getAndIncrement();
+      pool.compareAndSet(current, reserved);
+      return id;
+   }
+
+   private Block reserve(final Connection connection) throws SQLException {
+      final long first = sequenceGenerator != null ? nextSequenceValue(connection) : withOwnConnection(connection, this::incrementTable) + 1;
+      return new Block(first, first + allocationSize);
+   }
+
+   /**
+    * Sequences are not transactional, so the caller's connection is used.
+    */
+   private long nextSequenceValue(final Connection connection) throws SQLException {
+      final String sequence = qualify(sequenceGenerator.catalog(), sequenceGenerator.schema(), sequenceName());
+      final Dialect dialect = Dialect.of(connection);
+      if (allocationSize > 1 && !checkedSequences.contains(key)) {
+         checkIncrement(withOwnConnection(connection, own -> sequenceIncrement(own, dialect, sequence)));
+         checkedSequences.add(key);
+      }
+      final String sql;
+      switch (dialect) {
+      case POSTGRESQL:
+         sql = "SELECT nextval('" + sequence + "')";
+         break;
+      case ORACLE:
+         sql = "SELECT " + sequence + ".NEXTVAL FROM DUAL";
+         break;
+      case SQLITE:
+         throw new RuntimeException("SQLite has no sequences: " + sequence);
+      default:
+         sql = "SELECT NEXT VALUE FOR " + sequence;
+      }
+      try (final PreparedStatement stmt = connection.prepareStatement(sql);
+           final ResultSet rs = stmt.executeQuery()) {
+         if (!rs.next()) {
+            throw new RuntimeException("No value returned by: " + sql);
+         }
+         return rs.getLong(1);
+      }
+   }
+
+   private void checkIncrement(@Nullable final Long increment) {
+      if (increment == null) {
+         throw new RuntimeException("Can not find the increment of sequence " + sequenceName() + " to check it against allocationSize " + allocationSize
+            + " of @SequenceGenerator " + sequenceGenerator.name() + ". Set allocationSize to 1 to take one id per trip.");
+      }
+      if (increment != allocationSize) {
+         throw new RuntimeException("Sequence " + sequenceName() + " is incremented by " + increment + ", but allocationSize of @SequenceGenerator "
+            + sequenceGenerator.name() + " is " + allocationSize + ". Ids would collide with those of other writers.");
+      }
+   }
+
+   /**
+    * @return null if the sequence is not found.
+    */
+   @Nullable
+   private Long sequenceIncrement(final Connection connection, final Dialect dialect, final String sequence) throws SQLException {
+      final String schema = sequenceGenerator.schema();
+      final String sql;
+      switch (dialect) {
+      case ORACLE:
+         sql = "SELECT INCREMENT_BY FROM ALL_SEQUENCES WHERE SEQUENCE_NAME = UPPER(?)" + (schema.isEmpty() ? "" : " AND SEQUENCE_OWNER = UPPER(?)");
+         break;
+      case MYSQL:
+         // A MariaDB sequence is a table of one row.
+         sql = "SELECT increment FROM " + sequence;
+         break;
+      default:
+         sql = "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)" + (schema.isEmpty() ? "" : " AND UPPER(SEQUENCE_SCHEMA) = UPPER(?)");
+      }
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         if (dialect != Dialect.MYSQL) {
+            stmt.setString(1, sequenceName());
+            if (!schema.isEmpty()) {
+               stmt.setString(2, schema);
+            }
+         }
+         try (final ResultSet rs = stmt.executeQuery()) {
+            Long increment = null;
+            while (rs.next()) {
+               // A character or sql_variant column on some databases.
+               increment = Long.valueOf(rs.getString(1).trim());
+               if (increment == allocationSize) {
+                  break;
+               }
+            }
+            return increment;
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException("Can not read the increment of sequence " + sequence + ": " + e.getMessage()
+            + ". Set allocationSize of @SequenceGenerator " + sequenceGenerator.name() + " to 1 to take one id per trip.", e);
+      }
+   }
+
+   /**
+    * Runs work on a connection of the DataSource q2o was initialized with, in auto-commit mode, with the current transaction suspended. So what work writes is committed, even if connection's transaction rolls back. On connection itself if it is in auto-commit mode.
+    */
+   private static <R> R withOwnConnection(final Connection connection, final SqlFunction<R> work) throws SQLException {
+      if (connection.getAutoCommit()) {
+         return work.execute(connection);
+      }
+      final DataSource dataSource = q2o.dataSource;
+      if (dataSource == null) {
+         throw new RuntimeException("Ids of a @TableGenerator or @SequenceGenerator are reserved on a connection of their own when inserting in a transaction. Initialize q2o with a DataSource.");
+      }
+      final Transaction suspended = TransactionHelper.getActiveTransaction() != null ? TransactionHelper.suspend() : null;
+      try (final Connection own = dataSource.getConnection()) {
+         final boolean autoCommit = own.getAutoCommit();
+         if (!autoCommit) {
+            own.setAutoCommit(true);
+         }
+         try {
+            return work.execute(own);
+         }
+         finally {
+            if (!autoCommit) {
+               own.setAutoCommit(false);
+            }
+         }
+      }
+      finally {
+         if (suspended != null) {
+            TransactionHelper.resume(suspended);
+         }
+      }
+   }
+
+   /**
+    * Compare-and-set of the table's value, so concurrent reservations do not overlap without needing a row lock.
+    *
+    * @return The last id reserved before.
+    */
+   private long incrementTable(final Connection connection) throws SQLException {
+      final String table = qualify(tableGenerator.catalog(), tableGenerator.schema(), tableName());
+      final String pkColumn = tableGenerator.pkColumnName().isEmpty() ? DEFAULT_PK_COLUMN : tableGenerator.pkColumnName();
+      final String valueColumn = tableGenerator.valueColumnName().isEmpty() ? DEFAULT_VALUE_COLUMN : tableGenerator.valueColumnName();
+      final String select = "SELECT " + valueColumn + " FROM " + table + " WHERE " + pkColumn + "=?";
+      final String update = "UPDATE " + table + " SET " + valueColumn + "=? WHERE " + pkColumn + "=? AND " + valueColumn + "=?";
+      while (true) {
+         Long last = selectTableValue(connection, select);
+         if (last == null) {
+            SQLException insertFailure = null;
+            try (final PreparedStatement stmt = connection.prepareStatement("INSERT INTO " + table + " (" + pkColumn + "," + valueColumn + ") VALUES (?,?)")) {
+               stmt.setString(1, pkColumnValue());
+               stmt.setLong(2, tableGenerator.initialValue());
+               stmt.executeUpdate();
+            }
+            catch (SQLException e) {
+               if (!isDuplicateKey(e)) {
+                  throw e;
+               }
+               // Inserted concurrently, read again.
+               insertFailure = e;
+            }
+            last = selectTableValue(connection, select);
+            if (last == null) {
+               throw insertFailure != null ? insertFailure : new SQLException("Row " + pkColumnValue() + " of " + table + " not found after inserting it.");
+            }
+         }
+         try (final PreparedStatement stmt = connection.prepareStatement(update)) {
+            stmt.setLong(1, last + allocationSize);
+            stmt.setString(2, pkColumnValue());
+            stmt.setLong(3, last);
+            if (stmt.executeUpdate() == 1) {
+               return last;
+            }
+         }
+      }
+   }
+
+   @Nullable
+   private Long selectTableValue(final Connection connection, final String select) throws SQLException {
+      try (final PreparedStatement stmt = connection.prepareStatement(select)) {
+         stmt.setString(1, pkColumnValue());
+         try (final ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+         }
+      }
+   }
+
+   /**
+    * @return true if e is a violation of a unique constraint, SQL state class 23, or SQLite's SQLITE_CONSTRAINT, which reports no SQL state.
+    */
+   private static boolean isDuplicateKey(final SQLException e) {
+      return (e.getSQLState() != null && e.getSQLState().startsWith("23"))
+         || (e.getMessage() != null && e.getMessage().contains("SQLITE_CONSTRAINT"));
+   }
+
+   private String sequenceName() {
+      return sequenceGenerator.sequenceName().isEmpty() ? sequenceGenerator.name() : sequenceGenerator.sequenceName();
+   }
+
+   private String tableName() {
+      return tableGenerator.table().isEmpty() ? DEFAULT_TABLE : tableGenerator.table();
+   }
+
+   private String pkColumnValue() {
+      return tableGenerator.pkColumnValue().isEmpty() ? tableGenerator.name() : tableGenerator.pkColumnValue();
+   }
+
+   private static String qualify(final String catalog, final String schema, final String name) {
+      final StringBuilder qualified = new StringBuilder();
+      if (!catalog.isEmpty()) {
+         qualified.append(catalog).append('.');
+      }
+      if (!schema.isEmpty()) {
+         qualified.append(schema).append('.');
+      }
+      return qualified.append(name).toString();
+   }
+
+   private static Object toIdType(final Class<?> type, final long id) {
+      if (type == long.class || type == Long.class) {
+         return id;
+      }
+      else if (type == int.class || type == Integer.class) {
+         return Math.toIntExact(id);
+      }
+      else if (type == BigInteger.class) {
+         return BigInteger.valueOf(id);
+      }
+      else if (type == BigDecimal.class) {
+         return BigDecimal.valueOf(id);
+      }
+      else if (type == String.class) {
+         return String.valueOf(id);
+      }
+      throw new RuntimeException("Id type " + type.getName() + " is not supported with @SequenceGenerator or @TableGenerator.");
+   }
+
+   /**
+    * Drops the reserved ids, e.g. because the database is another one after {@link q2o#deinitialize()}.
+    */
+   static void clearPools() {
+      pools.clear();
+      checkedSequences.clear();
+   }
+
+   /**
+    * Ids from next (incl.) to end (excl.).
+    */
+   private static final class Block {
+      final AtomicLong next;
+      final long end;
+
+      Block(final long first, final long end) {
+         this.next = new AtomicLong(first);
+         this.end = end;
+      }
+   }
+}
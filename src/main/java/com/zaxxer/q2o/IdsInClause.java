@@ -0,0 +1,126 @@
+package com.zaxxer.q2o;
+
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A condition on the ids of a list of objects with the ids bound as statement parameters, unlike the literal ones of {@link OrmBase#idsAsInClause(Class, List)}. To keep the number of distinct SQL texts low, so that server side statement caches are hit, the parameter lists are padded to power of two sizes by repeating the last id. Longer lists are split into chunks of at most {@link q2o#getMaxInClauseParameters()} parameters, each a condition of its own.
+ * <p>
+ * With {@link q2o#setInClauseArrayBinding(boolean)} a single id column on PostgreSQL is compared with "= ANY(?)" and all ids are bound as one array.
+ */
+final class IdsInClause {
+
+   private final String condition;
+   private final Object[] args;
+
+   private IdsInClause(final String condition, final Object[] args) {
+      this.condition = condition;
+      this.args = args;
+   }
+
+   /**
+    * @return Without "WHERE", e.g. "id IN (?,?,?,?)".
+    */
+   String getCondition() {
+      return condition;
+   }
+
+   Object[] getArgs() {
+      return args;
+   }
+
+   /**
+    * @return The conditions, one per chunk. Empty if there are no objects.
+    */
+   static <T> List<IdsInClause> forObjects(final Connection connection, final Introspected introspected, final List<T> objects) throws SQLException {
+      final List<Object[]> ids = new ArrayList<>(objects.size());
+      for (final T object : objects) {
+         ids.add(introspected.getActualIds(object));
+      }
+      return forIds(connection, introspected.getIdColumnNames(), ids);
+   }
+
+   /**
+    * @param idColumnNames As used in the SQL.
+    * @param ids One array of idColumnNames.length values per row.
+    */
+   static List<IdsInClause> forIds(final Connection connection, final String[] idColumnNames, final List<Object[]> ids) throws SQLException {
+      final List<IdsInClause> clauses = new ArrayList<>();
+      if (ids.isEmpty()) {
+         return clauses;
+      }
+      if (idColumnNames.length == 1 && q2o.isInClauseArrayBinding() && Dialect.of(connection) == Dialect.POSTGRESQL) {
+         final IdsInClause arrayClause = asArray(connection, idColumnNames[0], ids);
+         if (arrayClause != null) {
+            clauses.add(arrayClause);
+            return clauses;
+         }
+      }
+
+      final int maxRows = Math.max(1, q2o.getMaxInClauseParameters() / idColumnNames.length);
+      for (int from = 0; from < ids.size(); from += maxRows) {
+         final List<Object[]> chunk = ids.subList(from, Math.min(from + maxRows, ids.size()));
+         clauses.add(asList(idColumnNames, chunk, Math.min(bucketSize(chunk.size()), maxRows)));
+      }
+      return clauses;
+   }
+
+   /**
+    * @return The smallest power of two not less than rows.
+    */
+   static int bucketSize(final int rows) {
+      return rows <= 1 ? 1 : Integer.highestOneBit(rows - 1) << 1;
+   }
+
+   /**
+    * "id IN (?,?)" for a single id column, "(id1=? AND id2=?) OR (id1=? AND id2=?)" for a composite one.
+    */
+   private static IdsInClause asList(final String[] idColumnNames, final List<Object[]> chunk, final int rows) {
+      final Object[] args = new Object[rows * idColumnNames.length];
+      final StringBuilder sql = new StringBuilder();
+      if (idColumnNames.length == 1) {
+         sql.append(idColumnNames[0]).append(" IN (");
+         for (int row = 0; row < rows; row++) {
+            args[row] = chunk.get(Math.min(row, chunk.size() - 1))[0];
+            sql.append("?,");
+         }
+         sql.setLength(sql.length() - 1);
+         sql.append(')');
+      }
+      else {
+         sql.append('(');
+         for (int row = 0; row < rows; row++) {
+            final Object[] rowIds = chunk.get(Math.min(row, chunk.size() - 1));
+            sql.append('(');
+            for (int column = 0; column < idColumnNames.length; column++) {
+               args[row * idColumnNames.length + column] = rowIds[column];
+               sql.append(idColumnNames[column]).append("=? AND ");
+            }
+            sql.setLength(sql.length() - 5);
+            sql.append(") OR ");
+         }
+         sql.setLength(sql.length() - 4);
+         sql.append(')');
+      }
+      return new IdsInClause(sql.toString(), args);
+   }
+
+   /**
+    * @return null if the ids' SQL type is not known.
+    */
+   private static IdsInClause asArray(final Connection connection, final String idColumnName, final List<Object[]> ids) throws SQLException {
+      final int sqlType = ParameterTypes.ofValue(ids.get(0)[0]);
+      if (sqlType == ParameterTypes.UNKNOWN) {
+         return null;
+      }
+      final Object[] elements = new Object[ids.size()];
+      for (int i = 0; i < elements.length; i++) {
+         elements[i] = ids.get(i)[0];
+      }
+      final String typeName = JDBCType.valueOf(sqlType).getName().toLowerCase();
+      return new IdsInClause(idColumnName + " = ANY(?)", new Object[]{connection.createArrayOf(typeName, elements)});
+   }
+}
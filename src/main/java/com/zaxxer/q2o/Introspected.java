@@ -17,6 +17,7 @@
 package com.zaxxer.q2o;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +26,7 @@ import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -47,6 +49,14 @@ final class Introspected {
     * Fields in case insensitive lexicographic order
     */
    private final TreeMap<String, List<AttributeInfo>> columnToField;
+   /**
+    * The {@link AttributeInfo} {@link #getFieldColumnInfo(String)} returns for each column, built from {@link #columnToField} at introspection.
+    */
+   private CaseInsensitiveIndex<AttributeInfo> columnIndex;
+   /**
+    * Built on first use, because it needs the instances of the related entities, which can not be looked up while this one is introspected.
+    */
+   private volatile Relations relations;
 
    private final Map<String, AttributeInfo> propertyToField;
    private final List<AttributeInfo> allFcInfos;
@@ -59,6 +69,10 @@ final class Introspected {
    private final HashMap<Class<?>, AttributeInfo> actualTypeToFieldColumnInfo = new HashMap<Class<?>, AttributeInfo>();
 
    private boolean isGeneratedId;
+   private IdAllocator idAllocator;
+   private AttributeInfo versionFcInfo;
+   private int versionUpdatableIndex = -1;
+   private boolean isCacheable;
    private String tableName;
 
    // We use arrays because iteration is much faster
@@ -83,7 +97,7 @@ final class Introspected {
       jpaAnnotations.add(AttributeOverride.class);
       jpaAnnotations.add(AttributeOverrides.class);
       jpaAnnotations.add(Basic.class);
-//         jpaAnnotations.add(Cacheable.class);
+      jpaAnnotations.add(Cacheable.class);
       jpaAnnotations.add(CollectionTable.class);
       jpaAnnotations.add(Column.class);
       jpaAnnotations.add(ColumnResult.class);
@@ -156,12 +170,12 @@ final class Introspected {
       jpaAnnotations.add(QueryHint.class);
 //         jpaAnnotations.add(SecondaryTable.class);
 //         jpaAnnotations.add(SecondaryTables.class);
-//         jpaAnnotations.add(SequenceGenerator.class);
+      jpaAnnotations.add(SequenceGenerator.class);
       jpaAnnotations.add(SqlResultSetMapping.class);
       jpaAnnotations.add(SqlResultSetMappings.class);
       jpaAnnotations.add(StoredProcedureParameter.class);
 //         jpaAnnotations.add(Table.class);
-//         jpaAnnotations.add(TableGenerator.class);
+      jpaAnnotations.add(TableGenerator.class);
       jpaAnnotations.add(Temporal.class);
       jpaAnnotations.add(Transient.class);
 //         jpaAnnotations.add(UniqueConstraint.class);
@@ -196,6 +210,8 @@ final class Introspected {
    Introspected introspect() {
       if (!initialized) {
          extractClassTableName();
+         final Cacheable cacheable = clazz.getAnnotation(Cacheable.class);
+         isCacheable = cacheable != null && cacheable.value();
          tableNameToClassCaseInsensitive.put(tableName, clazz);
 
          AttributeInfo fcInfo = null;
@@ -228,11 +244,15 @@ final class Introspected {
                   if (fcInfo.isIdField) {
                      // Is it a problem that Class.getDeclaredFields() claims the fields are returned unordered?  We count on order.
                      idFcInfos.add(fcInfo);
-                     isGeneratedId = isGeneratedId || fcInfo.isGeneratedId;
-                     if (isGeneratedId && idFcInfos.size() > 1) {
+                     if (fcInfo.isGeneratedId) {
+                        idAllocator = IdAllocator.of(clazz, fcInfo);
+                     }
+                     // Ids from a sequence or table are assigned before the insert and so are inserted like not generated ones.
+                     isGeneratedId = isGeneratedId || (fcInfo.isGeneratedId && idAllocator == null);
+                     if ((isGeneratedId || idAllocator != null) && idFcInfos.size() > 1) {
                         throw new IllegalStateException("Cannot have multiple @Id annotations and @GeneratedValue at the same time.");
                      }
-                     if (!fcInfo.isGeneratedId) {
+                     if (!fcInfo.isGeneratedId || idAllocator != null) {
                         if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
                            insertableFcInfos.add(fcInfo);
                         }
@@ -245,6 +265,10 @@ final class Introspected {
                      if (fcInfo.isSelfJoinField()) {
                         selfJoinFCInfo = fcInfo;
                      }
+                     if (fcInfo.isVersion()) {
+                        checkVersion(fcInfo);
+                        versionFcInfo = fcInfo;
+                     }
                      if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
                         insertableFcInfos.add(fcInfo);
                      }
@@ -259,6 +283,7 @@ final class Introspected {
             }
 
             precalculateColumnInfos(idFcInfos);
+            indexColumns();
 
          }
          catch (Exception e) {
@@ -271,6 +296,18 @@ final class Introspected {
       return this;
    }
 
+   private static void checkVersion(final AttributeInfo fcInfo) {
+      final Class<?> type = fcInfo.getType();
+      if (type != int.class && type != Integer.class && type != long.class && type != Long.class
+         && type != short.class && type != Short.class && type != Timestamp.class) {
+         throw new IllegalStateException("@Version is supported for int, long, short, their wrappers and java.sql.Timestamp only: " + fcInfo.getName());
+      }
+      // Every update writes the next version.
+      if (fcInfo.isUpdatable() != null && !fcInfo.isUpdatable()) {
+         throw new IllegalStateException("@Version attribute must be updatable: " + fcInfo.getName());
+      }
+   }
+
    private void addToAllFcInfosByTableName(final AttributeInfo fcInfo) {
       String tableName = fcInfo.getTableName();
       ArrayList<AttributeInfo> attributeInfos = allFcInfosByTableName.computeIfAbsent(tableName, tblName -> new ArrayList<>());
@@ -281,58 +318,30 @@ final class Introspected {
     * @return new entity representing this table
     */
    Object getTableTarget(String tableName) throws IllegalAccessException, InstantiationException {
-      Class<?> cls = tableNameToClassCaseInsensitive.get(tableName);
-      if (cls != null) {
-         Introspected i = getInstance(cls);
-         return i.clazz.newInstance();
-      }
-      else {
-         for (Class<?> c : tableNameToClassCaseInsensitive.values()) {
-            Introspected introspected = getInstance(c);
-            if (introspected != this) {
-               Object target = introspected.getTableTarget(tableName);
-               if (target != null) {
-                  return target;
-               }
-            }
-         }
-      }
-      return null;
+      Class<?> cls = getTableClass(tableName);
+      return cls != null ? cls.newInstance() : null;
+   }
+
+   /**
+    * @return the class of the entity representing this table, null if not reachable from this entity.
+    */
+   @Nullable
+   Class<?> getTableClass(String tableName) {
+      return relations().reachableTableToClass.get(tableName);
    }
 
    AttributeInfo getFieldColumnInfo(String tableName, String columnName) {
       logger.debug("tableName={} columnName={}", tableName, columnName);
-      Class<?> cls = tableNameToClassCaseInsensitive.get(tableName);
-      if (cls == null && joinedEntity != null) {
-         return joinedEntity.getFieldColumnInfo(tableName, columnName);
-      }
-      else if (cls == null) {
+      Introspected introspected = relations().tableToIntrospected.get(tableName);
+      if (introspected == null) {
          logger.warn("{} is not reachable from {}", tableName, getTableName());
          return null;
       }
-      else {
-         Introspected introspected = getInstance(cls);
-         return introspected.getFieldColumnInfo(columnName);
-      }
+      return introspected.getFieldColumnInfo(columnName);
    }
 
    AttributeInfo getFieldColumnInfo(Class<?> actualType) {
-      AttributeInfo info = actualTypeToFieldColumnInfo.get(actualType);
-      if (info != null) {
-         return info;
-      }
-      else {
-         for (Class<?> cls : tableNameToClassCaseInsensitive.values()) {
-            Introspected introspected = getInstance(cls);
-            if (introspected != this) {
-               AttributeInfo fieldColumnInfo = introspected.getFieldColumnInfo(actualType);
-               if (fieldColumnInfo != null) {
-                  return fieldColumnInfo;
-               }
-            }
-         }
-      }
-      return null;
+      return relations().actualTypeToFieldColumnInfo.get(actualType);
    }
 
    /**
@@ -341,16 +350,75 @@ final class Introspected {
     * @param columnName case insensitive column name without delimiters.
     */
    AttributeInfo getFieldColumnInfo(final String columnName) {
-      List<AttributeInfo> attributeInfos = columnToField.get(columnName);
       // If objectFromSelect() did more fields retrieve as are defined on the entity.
-      if (attributeInfos != null) {
-         for (AttributeInfo attributeInfo : attributeInfos) {
+      return columnIndex.get(columnName);
+   }
+
+   private void indexColumns() {
+      final Map<String, AttributeInfo> columns = new HashMap<>();
+      for (Map.Entry<String, List<AttributeInfo>> entry : columnToField.entrySet()) {
+         for (AttributeInfo attributeInfo : entry.getValue()) {
             if (attributeInfo.isSelfJoinField() || !attributeInfo.isJoinColumn) {
-               return attributeInfo;
+               columns.put(entry.getKey(), attributeInfo);
+               break;
+            }
+         }
+      }
+      columnIndex = new CaseInsensitiveIndex<>(columns);
+   }
+
+   private Relations relations() {
+      Relations r = relations;
+      if (r == null) {
+         r = new Relations(this);
+         relations = r;
+      }
+      return r;
+   }
+
+   /**
+    * Flattens the searches through related entities into indexes. Where several entities map the same table or type, the first one found searching depth first from this entity wins. The index keeps the first of keys equal ignoring case.
+    */
+   private static final class Relations {
+      /**
+       * Tables of this entity and its second tables, also of joined entities.
+       */
+      final CaseInsensitiveIndex<Introspected> tableToIntrospected;
+      /**
+       * Tables of all entities reachable from this one.
+       */
+      final CaseInsensitiveIndex<Class<?>> reachableTableToClass;
+      final Map<Class<?>, AttributeInfo> actualTypeToFieldColumnInfo = new HashMap<>();
+
+      Relations(final Introspected introspected) {
+         final Map<String, Introspected> tables = new LinkedHashMap<>();
+         final Set<Introspected> joined = Collections.newSetFromMap(new IdentityHashMap<>());
+         for (Introspected i = introspected; i != null && joined.add(i); i = i.joinedEntity) {
+            for (Map.Entry<String, Class<?>> entry : i.tableNameToClassCaseInsensitive.entrySet()) {
+               tables.putIfAbsent(entry.getKey(), getInstance(entry.getValue()));
+            }
+         }
+         tableToIntrospected = new CaseInsensitiveIndex<>(tables);
+
+         final Map<String, Class<?>> reachableTables = new LinkedHashMap<>();
+         addReachable(introspected, new HashSet<>(), reachableTables);
+         reachableTableToClass = new CaseInsensitiveIndex<>(reachableTables);
+      }
+
+      private void addReachable(final Introspected introspected, final Set<Class<?>> visited, final Map<String, Class<?>> reachableTables) {
+         visited.add(introspected.clazz);
+         for (Map.Entry<String, Class<?>> entry : introspected.tableNameToClassCaseInsensitive.entrySet()) {
+            reachableTables.putIfAbsent(entry.getKey(), entry.getValue());
+         }
+         for (Map.Entry<Class<?>, AttributeInfo> entry : introspected.actualTypeToFieldColumnInfo.entrySet()) {
+            actualTypeToFieldColumnInfo.putIfAbsent(entry.getKey(), entry.getValue());
+         }
+         for (Class<?> cls : introspected.tableNameToClassCaseInsensitive.values()) {
+            if (!visited.contains(cls)) {
+               addReachable(getInstance(cls), visited, reachableTables);
             }
          }
       }
-      return null;
    }
 
    /**
@@ -598,10 +666,43 @@ final class Introspected {
       return delimitedColumnsSansIds;
    }
 
+   /**
+    * @return false if the id is generated but assigned by {@link #getIdAllocator()}.
+    */
    boolean hasGeneratedId() {
       return isGeneratedId;
    }
 
+   /**
+    * @return true if the class is annotated with @Cacheable, so it is held in the {@link EntityCache}, if one is set.
+    */
+   boolean isCacheable() {
+      return isCacheable;
+   }
+
+   /**
+    * @return The @Version attribute. null if there is none.
+    */
+   @Nullable
+   AttributeInfo getVersionFcInfo() {
+      return versionFcInfo;
+   }
+
+   /**
+    * @return The index of the @Version attribute in {@link #getUpdatableFcInfos()}. -1 if there is none.
+    */
+   int getVersionUpdatableIndex() {
+      return versionUpdatableIndex;
+   }
+
+   /**
+    * @return The allocator of the ids generated from a @SequenceGenerator or @TableGenerator. null if there is none.
+    */
+   @Nullable
+   IdAllocator getIdAllocator() {
+      return idAllocator;
+   }
+
    /**
     * Get the insertable column names for this object.
     *
@@ -646,6 +747,9 @@ final class Introspected {
       ArrayList<AttributeInfo> uniqueInfos = new ArrayList<>();
       for (int i = 0; i < updatableFcInfos.size(); i++) {
          updatableFcInfosArray[i] = updatableFcInfos.get(i);
+         if (updatableFcInfos.get(i) == versionFcInfo) {
+            versionUpdatableIndex = i;
+         }
          String delimitedColumnName = updatableFcInfos.get(i).getDelimitedColumnName();
          if (!uniqueColNames.contains(delimitedColumnName)) {
             uniqueColNames.add(delimitedColumnName);
@@ -710,6 +814,10 @@ final class Introspected {
       }
    }
 
+   Class<?> getClazz() {
+      return clazz;
+   }
+
    /**
     * Get the table name defined for the introspected class.
     *
@@ -723,6 +831,14 @@ final class Introspected {
       return tableName;
    }
 
+   /**
+    * @return null if there is no such property, or it is not mapped.
+    */
+   @Nullable
+   AttributeInfo getFieldColumnInfoForProperty(final String propertyName) {
+      return propertyToField.get(propertyName);
+   }
+
    /**
     * Get the delimited column name for the specified property name, or {@code null} if
     * no such property exists.
@@ -0,0 +1,209 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Column index to (entity, field, parent field) assignment for a result set containing columns of joined tables. Each table gets a slot, an index into the entities of a row, so mapping a row needs no table name lookups: {@link ResultSetToObjectProcessor} keeps one array of slots and clears it per row. Slot 0 is the target entity's table.
+ * <p>
+ * Resolved together with its {@link ResultPlan}, so once per result set shape.
+ */
+final class JoinPlan {
+   /**
+    * Slot of the columns to skip.
+    */
+   static final int IGNORED = -1;
+   static final int TARGET_SLOT = 0;
+
+   private final int[] slots;
+   /**
+    * Indexed by JDBC column index. false for columns of the target entity's table, and for columns without table name.
+    */
+   private final boolean[] ofJoinedTable;
+   /**
+    * Indexed by JDBC column index. Determines how the column's value is read, see {@link ResultSetToObjectProcessor}.
+    */
+   private final AttributeInfo[] readInfos;
+   /**
+    * Indexed by JDBC column index. The field of the slot's entity the value is written to.
+    */
+   private final AttributeInfo[] fcInfos;
+   private final String[] columnTypeNames;
+   /**
+    * Indexed by JDBC column index. The field referencing the slot's entity from its parent, null if there is none.
+    */
+   private final AttributeInfo[] parentInfos;
+   private final int[] parentSlots;
+   /**
+    * Indexed by slot. The class instantiated when the slot is first used in a row. Null for {@link #TARGET_SLOT}.
+    */
+   private final Class<?>[] slotClasses;
+   /**
+    * Indexed by slot. The JDBC column index of the slot entity's id, 0 if the id is not selected or composite.
+    */
+   private final int[] idColumns;
+   /**
+    * true if any joined table's entities are collected in a {@literal @}OneToMany field of their parent, so a parent spans several rows.
+    */
+   private final boolean hasOneToMany;
+
+   JoinPlan(final ResultSetMetaData metaData, final Introspected introspected, final Set<String> ignoredColumns, final int columnCount) throws SQLException {
+      slots = new int[columnCount + 1];
+      ofJoinedTable = new boolean[columnCount + 1];
+      readInfos = new AttributeInfo[columnCount + 1];
+      fcInfos = new AttributeInfo[columnCount + 1];
+      columnTypeNames = new String[columnCount + 1];
+      parentInfos = new AttributeInfo[columnCount + 1];
+      parentSlots = new int[columnCount + 1];
+      final List<String> slotTables = new ArrayList<>();
+      final List<Class<?>> classes = new ArrayList<>();
+      final List<AttributeInfo> idInfos = new ArrayList<>();
+      final List<Integer> idColumnList = new ArrayList<>();
+      slotTables.add(introspected.getTableName().toUpperCase());
+      classes.add(null);
+      boolean oneToMany = false;
+
+      // In the order the columns are processed, so a slot's class is the one of the first column using it, as with the former per row table name map.
+      for (int colIdx = columnCount; colIdx > 0; colIdx--) {
+         final String columnName = metaData.getColumnName(colIdx);
+         if (OrmBase.isIgnoredColumn(ignoredColumns, columnName)) {
+            slots[colIdx] = IGNORED;
+            continue;
+         }
+         columnTypeNames[colIdx] = metaData.getColumnTypeName(colIdx);
+         // tableName is empty when aliases as in "SELECT (t.string_from_number + 1) as string_from_number " were used. See org.sansorm.QueryTest.testConverterLoad().
+         final String tableName = Optional.ofNullable(metaData.getTableName(colIdx)).orElse("");
+         AttributeInfo fcInfo = null;
+         if (!tableName.isEmpty()) {
+            fcInfo = introspected.getFieldColumnInfo(tableName, columnName);
+         }
+         // OneToOneTest.flattenedTableJoin()
+         readInfos[colIdx] = fcInfo != null ? fcInfo : introspected.getFieldColumnInfo(columnName);
+
+         if (tableName.isEmpty() || tableName.equalsIgnoreCase(introspected.getTableName())) {
+            slots[colIdx] = TARGET_SLOT;
+            fcInfos[colIdx] = readInfos[colIdx];
+            parentSlots[colIdx] = IGNORED;
+            addIdColumn(TARGET_SLOT, colIdx, fcInfos[colIdx], idInfos, idColumnList);
+            continue;
+         }
+
+         ofJoinedTable[colIdx] = true;
+         final Class<?> tableClass = introspected.getTableClass(tableName);
+         // tableClass is null if target does not correspond with an actual table. See com.zaxxer.q2o.internal.JoinOneToOneSeveralTablesTest.flattenedTableJoin().
+         slots[colIdx] = tableClass != null ? slotOf(tableName, tableClass, slotTables, classes) : TARGET_SLOT;
+         final Class<?> entityClass = tableClass != null ? classes.get(slots[colIdx]) : introspected.getClazz();
+         fcInfos[colIdx] = Introspected.getInstance(entityClass).getFieldColumnInfo(columnName);
+         final AttributeInfo parentInfo = introspected.getFieldColumnInfo(entityClass);
+         parentInfos[colIdx] = parentInfo;
+         parentSlots[colIdx] = parentInfo != null
+            ? slotOf(parentInfo.getOwnerClassTableName(), parentInfo.getOwnerClazz(), slotTables, classes)
+            : IGNORED;
+         oneToMany = oneToMany || parentInfo != null && parentInfo.isOneToManyAnnotated;
+         if (slots[colIdx] != TARGET_SLOT) {
+            addIdColumn(slots[colIdx], colIdx, fcInfos[colIdx], idInfos, idColumnList);
+         }
+      }
+      slotClasses = classes.toArray(new Class<?>[0]);
+      idColumns = new int[slotClasses.length];
+      for (int slot = 0; slot < idColumns.length && slot < idColumnList.size(); slot++) {
+         final Integer idColumn = idColumnList.get(slot);
+         idColumns[slot] = idColumn != null && idColumn > 0 ? idColumn : 0;
+      }
+      hasOneToMany = oneToMany;
+   }
+
+   /**
+    * Remembers colIdx as the slot's id column, if fcInfo is an id field. A second id field makes the id composite, recorded as column -1.
+    */
+   private static void addIdColumn(final int slot, final int colIdx, @Nullable final AttributeInfo fcInfo, final List<AttributeInfo> idInfos, final List<Integer> idColumnList) {
+      if (fcInfo == null || !fcInfo.isIdField) {
+         return;
+      }
+      while (idInfos.size() <= slot) {
+         idInfos.add(null);
+         idColumnList.add(null);
+      }
+      if (idInfos.get(slot) == null) {
+         idInfos.set(slot, fcInfo);
+         idColumnList.set(slot, colIdx);
+      }
+      else if (idInfos.get(slot) != fcInfo) {
+         idColumnList.set(slot, -1);
+      }
+   }
+
+   private static int slotOf(final String tableName, final Class<?> cls, final List<String> slotTables, final List<Class<?>> classes) {
+      final String key = tableName.toUpperCase();
+      final int slot = slotTables.indexOf(key);
+      if (slot >= 0) {
+         return slot;
+      }
+      slotTables.add(key);
+      classes.add(cls);
+      return slotTables.size() - 1;
+   }
+
+   int getSlotCount() {
+      return slotClasses.length;
+   }
+
+   /**
+    * @return {@link #IGNORED} if the column is to be skipped.
+    */
+   int getSlot(final int colIdx) {
+      return slots[colIdx];
+   }
+
+   boolean isOfJoinedTable(final int colIdx) {
+      return ofJoinedTable[colIdx];
+   }
+
+   @Nullable
+   Class<?> getSlotClass(final int slot) {
+      return slotClasses[slot];
+   }
+
+   /**
+    * @return the JDBC column index of the slot entity's id, 0 if unknown.
+    */
+   int getIdColumn(final int slot) {
+      return idColumns[slot];
+   }
+
+   boolean hasOneToMany() {
+      return hasOneToMany;
+   }
+
+   @Nullable
+   AttributeInfo getReadInfo(final int colIdx) {
+      return readInfos[colIdx];
+   }
+
+   @Nullable
+   AttributeInfo getFieldColumnInfo(final int colIdx) {
+      return fcInfos[colIdx];
+   }
+
+   String getColumnTypeName(final int colIdx) {
+      return columnTypeNames[colIdx];
+   }
+
+   @Nullable
+   AttributeInfo getParentInfo(final int colIdx) {
+      return parentInfos[colIdx];
+   }
+
+   /**
+    * @return {@link #IGNORED} if there is no parent.
+    */
+   int getParentSlot(final int colIdx) {
+      return parentSlots[colIdx];
+   }
+}
@@ -0,0 +1,82 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link EntityCache} bounded by size with least recently used eviction, and by time.
+ */
+final class LruEntityCache implements EntityCache {
+
+   private final long timeToLiveMillis;
+   private final Map<List<Object>, CacheEntry> entries;
+
+   LruEntityCache(final int maxSize, final long timeToLiveMillis) {
+      if (timeToLiveMillis <= 0) {
+         throw new IllegalArgumentException("timeToLiveMillis must be positive: " + timeToLiveMillis);
+      }
+      this.timeToLiveMillis = timeToLiveMillis;
+      this.entries = new LinkedHashMap<List<Object>, CacheEntry>(Math.min(maxSize, 1024), 0.75f, /*accessOrder=*/true) {
+         private static final long serialVersionUID = -2472512744358817716L;
+
+         @Override
+         protected boolean removeEldestEntry(final Map.Entry<List<Object>, CacheEntry> eldest) {
+            return this.size() > maxSize;
+         }
+      };
+   }
+
+   @Nullable
+   @Override
+   public synchronized Object get(final Class<?> clazz, final List<Object> id) {
+      final List<Object> key = Arrays.asList(clazz, id);
+      final CacheEntry entry = entries.get(key);
+      if (entry == null) {
+         return null;
+      }
+      if (System.currentTimeMillis() > entry.expiresAt) {
+         entries.remove(key);
+         return null;
+      }
+      return entry.entity;
+   }
+
+   @Override
+   public synchronized void put(final Class<?> clazz, final List<Object> id, final Object entity) {
+      entries.put(Arrays.asList(clazz, id), new CacheEntry(entity, System.currentTimeMillis() + timeToLiveMillis));
+   }
+
+   @Override
+   public synchronized void evict(final Class<?> clazz, final List<Object> id) {
+      entries.remove(Arrays.asList(clazz, id));
+   }
+
+   @Override
+   public synchronized void evictAll(final Class<?> clazz) {
+      entries.keySet().removeIf(key -> key.get(0) == clazz);
+   }
+
+   @Override
+   public synchronized void clear() {
+      entries.clear();
+   }
+
+   @Override
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   private static final class CacheEntry {
+      final Object entity;
+      final long expiresAt;
+
+      CacheEntry(final Object entity, final long expiresAt) {
+         this.entity = entity;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
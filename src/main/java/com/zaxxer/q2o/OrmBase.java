@@ -16,12 +16,12 @@
 
 package com.zaxxer.q2o;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.sql.Blob;
-import java.sql.ParameterMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
@@ -32,7 +32,10 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 class OrmBase
 {
-   private static final Map<String, String> columnsCsvCache;
+   /**
+    * Columns by class, then by table prefix, "" for none.
+    */
+   private static final Map<Class<?>, Map<String, String>> columnsCsvCache;
    private static Logger logger = LoggerFactory.getLogger(OrmBase.class.getName());
 
    static {
@@ -74,14 +77,31 @@ Callers:
     */
    protected static void populateStatementParameters(final PreparedStatement stmt, final Object... args) throws SQLException
    {
-      final ParameterMetaData parameterMetaData = stmt.getParameterMetaData();
-      final int paramCount = parameterMetaData.getParameterCount();
+      populateStatementParameters(stmt, null, args);
+   }
+
+   /**
+    * @param sql The statement's SQL text, to look up the parameter types in {@link ParameterTypes}. May be null.
+    */
+   protected static void populateStatementParameters(final PreparedStatement stmt, @Nullable final String sql, final Object... args) throws SQLException
+   {
+      if (q2o.isDeriveParameterTypes()) {
+         for (int colIdx = args.length; colIdx > 0; colIdx--) {
+            final Object arg = args[colIdx - 1];
+            final int sqlType = ParameterTypes.ofValue(arg);
+            ParameterTypes.setObject(stmt, colIdx, FieldValueToDatabaseType.getValue(arg, sqlType), sqlType);
+         }
+         return;
+      }
+
+      final int[] parameterTypes = ParameterTypes.of(stmt, sql);
+      final int paramCount = parameterTypes.length;
       if (paramCount > 0 && args.length < paramCount) {
          throw new RuntimeException("Too few parameters supplied for query");
       }
 
       for (int colIdx = paramCount; colIdx > 0; colIdx--) {
-         final int sqlType = parameterMetaData.getParameterType(colIdx);
+         final int sqlType = parameterTypes[colIdx - 1];
          final Object object = FieldValueToDatabaseType.getValue(args[colIdx - 1], sqlType);
          stmt.setObject(colIdx, object, sqlType);
       }
@@ -95,8 +115,16 @@ Callers:
     */
    protected static <T> String getColumnsCsv(final Class<T> clazz, final String... tablePrefix)
    {
-      final String cacheKey = (tablePrefix == null || tablePrefix.length == 0 ? clazz.getName() : tablePrefix[0] + clazz.getName());
-      return columnsCsvCache.computeIfAbsent(cacheKey, key -> {
+      Map<String, String> byPrefix = columnsCsvCache.get(clazz);
+      if (byPrefix == null) {
+         byPrefix = columnsCsvCache.computeIfAbsent(clazz, key -> new ConcurrentHashMap<>());
+      }
+      final String prefix = tablePrefix == null || tablePrefix.length == 0 ? "" : String.valueOf(tablePrefix[0]);
+      final String cached = byPrefix.get(prefix);
+      if (cached != null) {
+         return cached;
+      }
+      return byPrefix.computeIfAbsent(prefix, key -> {
         final StringBuilder sb = new StringBuilder();
 
         final Introspected introspected = Introspected.getInstance(clazz);
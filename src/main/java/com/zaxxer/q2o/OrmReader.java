@@ -16,6 +16,7 @@
 
 package com.zaxxer.q2o;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +26,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * OrmReader
@@ -34,32 +37,54 @@ class OrmReader extends OrmBase {
    private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
    private static Logger LOGGER = LoggerFactory.getLogger(OrmBase.class);
 
-   private static final Map<String, String> fromClauseStmtCache;
-
-   static {
-      fromClauseStmtCache = Collections.synchronizedMap(
-         new LinkedHashMap<String, String>(CACHE_SIZE) {
-            private static final long serialVersionUID = 6259942586093454872L;
-
-            @Override
-            protected boolean removeEldestEntry(java.util.Map.Entry<String, String> eldest) {
-               return this.size() > CACHE_SIZE;
-            }
-      });
-   }
+   /**
+    * SELECT statements by class, clause and whether a lacking WHERE is added, which distinguishes clauses of {@link #listFromRawClause(Connection, Class, String, Object...)}. Looked up with the thread's {@link #probeKey}, so a hit builds no key.
+    */
+   private static final BoundedCache<ClauseKey, String> fromClauseStmtCache = new BoundedCache<>(CACHE_SIZE);
+   private static final ThreadLocal<ClauseKey> probeKey = ThreadLocal.withInitial(ClauseKey::new);
+   private static final Map<Introspected, String> whereIdClauseCache = new ConcurrentHashMap<>();
 
    static void clearCache()
    {
       fromClauseStmtCache.clear();
+      whereIdClauseCache.clear();
+   }
+
+   static CacheStatistics getStatementCacheStatistics()
+   {
+      return fromClauseStmtCache.getStatistics();
    }
 
    static <T> List<T> statementToList(final PreparedStatement stmt, final Class<T> clazz, final Object... args) throws SQLException {
+      return statementToList(stmt, clazz, null, args);
+   }
+
+   /**
+    * @param sql The statement's SQL text. Also the key to find the {@link ResultPlan}, so only for SQL determining the result set's columns. May be null.
+    */
+   static <T> List<T> selectToList(final Connection connection, final String sql, final Class<T> clazz, final Object... args) throws SQLException {
+      if (!QueryResultCache.isActive(connection)) {
+         return statementToList(connection.prepareStatement(sql), clazz, sql, args);
+      }
+      final List<Object> key = QueryResultCache.key(sql, clazz, args);
+      final List<T> cached = QueryResultCache.get(key);
+      if (cached != null) {
+         return cached;
+      }
+      final long generation = QueryResultCache.generation();
+      final List<T> result = statementToList(connection.prepareStatement(sql), clazz, sql, args);
+      QueryResultCache.put(key, sql, result, generation);
+      return result;
+   }
+
+   private static <T> List<T> statementToList(final PreparedStatement stmt, final Class<T> clazz, @Nullable final String sql, final Object[] args) throws SQLException {
       LOGGER.debug("{}", stmt);
       try (final PreparedStatement closeStmt = stmt) {
-         ResultSet rs = statementToResultSet(stmt, args);
+         ResultSet rs = statementToResultSet(stmt, sql, args);
          boolean next = rs.next();
          if (next) {
-            return resultSetToList(rs, clazz);
+            ResultSetToObjectProcessor<T> processor = new ResultSetToObjectProcessor<>(rs, new HashSet<>(), sql);
+            return processor.process(clazz);
          }
          else {
             return new ArrayList<T>();
@@ -67,9 +92,43 @@ class OrmReader extends OrmBase {
       }
    }
 
+   /**
+    * Executes the statement and leaves mapping the rows to the returned iterator. The statement is closed with the iterator, also if executing it fails.
+    *
+    * @param sql See {@link #selectToList(Connection, String, Class, Object...)}. May be null.
+    */
+   static <T> ResultSetIterator<T> statementToIterator(final PreparedStatement stmt, final Class<T> clazz, @Nullable final String sql, final Object... args) throws SQLException {
+      LOGGER.debug("{}", stmt);
+      try {
+         stmt.setFetchSize(q2o.getFetchSize());
+         ResultSet rs = statementToResultSet(stmt, sql, args);
+         return new ResultSetIterator<>(stmt, rs, clazz, sql);
+      }
+      catch (SQLException | RuntimeException e) {
+         SqlClosure.quietClose(stmt);
+         throw e;
+      }
+   }
+
+   /**
+    * @param sql See {@link #selectToList(Connection, String, Class, Object...)}.
+    */
+   static <T> ResultSetIterator<T> selectToIterator(final Connection connection, final String sql, final Class<T> clazz, final Object... args) throws SQLException {
+      final PreparedStatement stmt = connection.prepareStatement(sql);
+      return statementToIterator(stmt, clazz, sql, args);
+   }
+
    static ResultSet statementToResultSet(final PreparedStatement stmt, final Object... args) throws SQLException
    {
-      populateStatementParameters(stmt, args);
+      return statementToResultSet(stmt, null, args);
+   }
+
+   /**
+    * @param sql The statement's SQL text, to look up the parameter types in {@link ParameterTypes}. May be null.
+    */
+   static ResultSet statementToResultSet(final PreparedStatement stmt, @Nullable final String sql, final Object... args) throws SQLException
+   {
+      populateStatementParameters(stmt, sql, args);
       return stmt.executeQuery();
    }
 
@@ -83,12 +142,12 @@ class OrmReader extends OrmBase {
       return processor.process(targetClass);
    }
 
-   private static <T> T statementToObject(final PreparedStatement stmt, final T target, final Object... args) throws SQLException
+   private static <T> T statementToObject(final PreparedStatement stmt, final T target, @Nullable final String sql, final Object... args) throws SQLException
    {
-      populateStatementParameters(stmt, args);
+      populateStatementParameters(stmt, sql, args);
       LOGGER.debug("{}", stmt);
       try (final ResultSet resultSet = stmt.executeQuery()) {
-         return resultSet.next() ? resultSetToObject(resultSet, target) : null;
+         return resultSet.next() ? new ResultSetToObjectProcessor<T>(resultSet, Collections.emptySet(), sql).processMergingRows(target) : null;
       }
       catch (Exception e) {
          throw new RuntimeException(e);
@@ -99,14 +158,28 @@ class OrmReader extends OrmBase {
    }
 
    static <T> T statementToObject(final PreparedStatement stmt, final Class<T> clazz, final Object... args) throws SQLException {
-      T target;
+      return statementToObject(stmt, newInstance(clazz), null, args);
+   }
+
+   /**
+    * @param sql The statement's SQL text. Also the key to find the {@link ResultPlan}, so only for SQL determining the result set's columns.
+    */
+   static <T> T selectToObject(final Connection connection, final String sql, final Class<T> clazz, final Object... args) throws SQLException {
+      return selectToObject(connection, sql, newInstance(clazz), args);
+   }
+
+   private static <T> T selectToObject(final Connection connection, final String sql, final T target, final Object... args) throws SQLException {
+      final PreparedStatement stmt = connection.prepareStatement(sql);
+      return statementToObject(stmt, target, sql, args);
+   }
+
+   private static <T> T newInstance(final Class<T> clazz) {
       try {
-         target = clazz.newInstance();
+         return clazz.newInstance();
       }
       catch (Exception e) {
          throw new RuntimeException(e);
       }
-      return statementToObject(stmt, target, args);
    }
 
    static <T> T resultSetToObject(final ResultSet resultSet, final T target) throws SQLException
@@ -123,8 +196,18 @@ class OrmReader extends OrmBase {
 
    static <T> T objectById(final Connection connection, final Class<T> clazz, final Object... args) throws SQLException
    {
-      String where = getWhereIdClause(Introspected.getInstance(clazz));
-      return objectFromClause(connection, clazz, where, args);
+      final Introspected introspected = Introspected.getInstance(clazz);
+      final T cached = SecondLevelCache.get(connection, introspected, args);
+      if (cached != null) {
+         return cached;
+      }
+      String where = getWhereIdClause(introspected);
+      final long generation = SecondLevelCache.generation(introspected);
+      final T loaded = objectFromClause(connection, clazz, where, args);
+      if (loaded != null && SecondLevelCache.isActive(introspected)) {
+         SecondLevelCache.put(connection, introspected, loaded, generation);
+      }
+      return loaded;
    }
 
    static <T> T objectById(final Connection connection, final T target) throws SQLException {
@@ -141,18 +224,42 @@ class OrmReader extends OrmBase {
             throw new RuntimeException(e);
          }
       }
-      return objectFromClause(connection, target, where, args);
+      if (SecondLevelCache.getInto(connection, introspected, args, target)) {
+         return target;
+      }
+      final long generation = SecondLevelCache.generation(introspected);
+      final T loaded = objectFromClause(connection, target, where, args);
+      if (loaded != null && SecondLevelCache.isActive(introspected)) {
+         SecondLevelCache.put(connection, introspected, loaded, generation);
+      }
+      return loaded;
    }
 
    static <T> T refresh(final Connection connection, final T target) throws SQLException {
       final Introspected introspected = Introspected.getInstance(target.getClass());
+      SecondLevelCache.evict(introspected, target);
       final String where = getWhereIdClause(introspected);
       final String sql = generateSelectFromWhereClause(target.getClass(), where, true);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, target, introspected.getActualIds(target));
+      return selectToObject(connection, sql, target, introspected.getActualIds(target));
    }
 
-   private static String getWhereIdClause(Introspected introspected) {
+   /**
+    * Generates the SELECT by id of {@link #objectById(Connection, Class, Object...)}.
+    */
+   static void warmUp(final Introspected introspected)
+   {
+      generateSelectFromWhereClause(introspected.getClazz(), getWhereIdClause(introspected), true);
+   }
+
+   /**
+    * @return The same String instance on every call, so its hash code is computed only once when it is looked up as clause.
+    */
+   private static String getWhereIdClause(final Introspected introspected) {
+      final String cached = whereIdClauseCache.get(introspected);
+      return cached != null ? cached : whereIdClauseCache.computeIfAbsent(introspected, OrmReader::createWhereIdClause);
+   }
+
+   private static String createWhereIdClause(final Introspected introspected) {
       final StringBuilder where = new StringBuilder();
       String[] idColumnNames = introspected.getIdColumnNames();
       for (String column : idColumnNames) {
@@ -169,37 +276,57 @@ class OrmReader extends OrmBase {
    static <T> List<T> listFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
    {
       final String sql = generateSelectFromWhereClause(clazz, clause, true);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
-
-      return statementToList(stmt, clazz, args);
+      return selectToList(connection, sql, clazz, args);
    }
 
    static <T> List<T> listFromRawClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
    {
       final String sql = generateSelectFromWhereClause(clazz, clause, false);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
+      return selectToList(connection, sql, clazz, args);
+   }
 
-      return statementToList(stmt, clazz, args);
+   static <T> ResultSetIterator<T> iteratorFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
+   {
+      final String sql = generateSelectFromWhereClause(clazz, clause, true);
+      return selectToIterator(connection, sql, clazz, args);
+   }
+
+   /**
+    * Maps the rows one by one and hands them to consumer. No list is built.
+    *
+    * @param reuseInstance if true, a single instance of clazz is populated for every row and handed to consumer. It must not be held beyond the call.
+    */
+   static <T> void forEachFromClause(final Connection connection, final Class<T> clazz, final String clause, final Set<String> ignoredColumns, final boolean reuseInstance, final Consumer<? super T> consumer, final Object... args) throws SQLException
+   {
+      final String sql = generateSelectFromWhereClause(clazz, clause, true);
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         stmt.setFetchSize(q2o.getFetchSize());
+         LOGGER.debug("{}", stmt);
+         try (final ResultSet resultSet = statementToResultSet(stmt, sql, args)) {
+            final ResultSetToObjectProcessor<T> processor = new ResultSetToObjectProcessor<T>(resultSet, ignoredColumns, sql).withoutSnapshots();
+            final T flyweight = reuseInstance ? newInstance(clazz) : null;
+            while (resultSet.next()) {
+               consumer.accept(flyweight != null ? processor.processCurrentRow(flyweight) : processor.processCurrentRow(clazz));
+            }
+         }
+      }
    }
 
    static <T> T objectFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
    {
       final String sql = generateSelectFromWhereClause(clazz, clause, true);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, clazz, args);
+      return selectToObject(connection, sql, clazz, args);
    }
 
    static <T> T objectFromRawClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
    {
       final String sql = generateSelectFromWhereClause(clazz, clause, false);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, clazz, args);
+      return selectToObject(connection, sql, clazz, args);
    }
 
    static <T> T objectFromClause(final Connection connection, final T target, final String clause, final Object... args) throws SQLException {
       final String sql = generateSelectFromWhereClause(target.getClass(), clause, true);
-      final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, target, args);
+      return selectToObject(connection, sql, target, args);
    }
 
    static <T> int countObjectsFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
@@ -229,7 +356,7 @@ class OrmReader extends OrmBase {
    static Number numberFromSql(final Connection connection, final String sql, final Object... args) throws SQLException
    {
       try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
-         populateStatementParameters(stmt, args);
+         populateStatementParameters(stmt, sql, args);
          try (final ResultSet resultSet = stmt.executeQuery()) {
             if (resultSet.next()) {
                return (Number) resultSet.getObject(1);
@@ -239,22 +366,29 @@ class OrmReader extends OrmBase {
       }
    }
 
+   /**
+    * A hit allocates nothing: no key is built, and no lambda is created.
+    */
    static <T> String generateSelectFromWhereClause(final Class<T> clazz, final String clause, final boolean addLackingWhere)
    {
-      final String cacheKey = clazz.getName() + clause;
+      final String clauseOrEmpty = clause != null ? clause : "";
+      final String cached = fromClauseStmtCache.get(probeKey.get().set(clazz, clauseOrEmpty, addLackingWhere));
+      if (cached != null) {
+         return cached;
+      }
 
-      return fromClauseStmtCache.computeIfAbsent(cacheKey, key -> {
-        final Introspected introspected = Introspected.getInstance(clazz);
-        final String tableName = introspected.getDelimitedTableName();
+      final Introspected introspected = Introspected.getInstance(clazz);
+      final String tableName = introspected.getDelimitedTableName();
 
-        final StringBuilder s = new StringBuilder()
-          .append("SELECT ").append(getColumnsCsv(clazz, tableName))
-          .append(" FROM ").append(tableName).append(' ').append(tableName);
+      final StringBuilder s = new StringBuilder()
+        .append("SELECT ").append(getColumnsCsv(clazz, tableName))
+        .append(" FROM ").append(tableName).append(' ').append(tableName);
 
-         generateWhereClause(clause, s, addLackingWhere);
+      generateWhereClause(clause, s, addLackingWhere);
 
-         return s.toString();
-      });
+      final String sql = s.toString();
+      fromClauseStmtCache.put(new ClauseKey().set(clazz, clauseOrEmpty, addLackingWhere), sql);
+      return sql;
    }
 
    private static void generateWhereClause(final String selectFromClause, final StringBuilder s, final boolean addLackingWhere) {
@@ -267,4 +401,39 @@ class OrmReader extends OrmBase {
       }
    }
 
+
+   /**
+    * Key of {@link #fromClauseStmtCache}. Mutable only to be reused as probe key, keys put into the cache are not changed afterwards.
+    */
+   private static final class ClauseKey {
+      private Class<?> clazz;
+      private String clause;
+      private boolean addLackingWhere;
+      private int hash;
+
+      ClauseKey set(final Class<?> clazz, final String clause, final boolean addLackingWhere) {
+         this.clazz = clazz;
+         this.clause = clause;
+         this.addLackingWhere = addLackingWhere;
+         this.hash = (31 * clazz.hashCode() + clause.hashCode()) * 2 + (addLackingWhere ? 1 : 0);
+         return this;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof ClauseKey)) {
+            return false;
+         }
+         final ClauseKey other = (ClauseKey) o;
+         return clazz == other.clazz && addLackingWhere == other.addLackingWhere && clause.equals(other.clause);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
 }
@@ -16,12 +16,15 @@
 
 package com.zaxxer.q2o;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.OptimisticLockException;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * OrmWriter
@@ -29,37 +32,56 @@ import java.util.*;
 class OrmWriter extends OrmBase
 {
    private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
-   private static final Map<Introspected, String> createStatementCache;
-   private static final Map<Introspected, String> updateStatementCache;
+   /**
+    * Keyed by (Introspected, number of rows in the VALUES list).
+    */
+   private static final BoundedCache<List<Object>, String> createStatementCache = new BoundedCache<>(CACHE_SIZE);
+   private static final BoundedCache<Introspected, String> updateStatementCache = new BoundedCache<>(CACHE_SIZE);
+   /**
+    * Keyed by (Introspected, BitSet of the changed attributes' indexes into {@link Introspected#getUpdatableFcInfos()}).
+    */
+   private static final BoundedCache<List<Object>, String> changedColumnsUpdateStatementCache = new BoundedCache<>(CACHE_SIZE);
+   /**
+    * Keyed by (Introspected, whether the @Version attribute is in the WHERE clause).
+    */
+   private static final BoundedCache<List<Object>, String> deleteStatementCache = new BoundedCache<>(CACHE_SIZE);
+   private static final BoundedCache<List<Object>, String> upsertStatementCache = new BoundedCache<>(CACHE_SIZE);
    private static final Logger logger = LoggerFactory.getLogger(OrmBase.class);
+   /**
+    * Classes of connections whose driver answered a batch with Statement.SUCCESS_NO_INFO, so that versioned objects are updated and deleted one by one on them.
+    */
+   private static final Set<Class<?>> connectionsWithoutBatchCounts = ConcurrentHashMap.newKeySet();
    private static final DatabaseValueToFieldType DATABASE_VALUE_TO_FIELD_TYPE = new DatabaseValueToFieldType();
 
-   static {
-      createStatementCache = Collections.synchronizedMap(new LinkedHashMap<Introspected, String>(CACHE_SIZE) {
-         private static final long serialVersionUID = 4559270460685275064L;
-
-         @Override
-         protected boolean removeEldestEntry(final Map.Entry<Introspected, String> eldest)
-         {
-            return this.size() > CACHE_SIZE;
-         }
-      });
-
-      updateStatementCache = Collections.synchronizedMap(new LinkedHashMap<Introspected, String>(CACHE_SIZE) {
-         private static final long serialVersionUID = -5324251353646078607L;
-
-         @Override
-         protected boolean removeEldestEntry(final Map.Entry<Introspected, String> eldest)
-         {
-            return this.size() > CACHE_SIZE;
-         }
-      });
-   }
-
    static void clearCache()
    {
       createStatementCache.clear();
       updateStatementCache.clear();
+      changedColumnsUpdateStatementCache.clear();
+      deleteStatementCache.clear();
+      upsertStatementCache.clear();
+      connectionsWithoutBatchCounts.clear();
+   }
+
+   static CacheStatistics getStatementCacheStatistics()
+   {
+      return createStatementCache.getStatistics()
+         .plus(updateStatementCache.getStatistics())
+         .plus(changedColumnsUpdateStatementCache.getStatistics())
+         .plus(deleteStatementCache.getStatistics())
+         .plus(upsertStatementCache.getStatistics());
+   }
+
+   /**
+    * Generates the INSERT, UPDATE and DELETE statements of single objects.
+    */
+   static void warmUp(final Introspected introspected)
+   {
+      final AttributeInfo[] updatableFcInfos = introspected.getUpdatableFcInfos();
+      final boolean withVersion = introspected.getVersionFcInfo() != null;
+      createSqlForInsert(introspected, introspected.getInsertableFcInfos());
+      updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, updatableFcInfos, null));
+      deleteStatementCache.computeIfAbsent(Arrays.asList(introspected, withVersion), key -> createSqlForDelete(introspected, withVersion));
    }
 
    static <T> void insertListBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
@@ -76,17 +98,226 @@ class OrmWriter extends OrmBase
          throw new RuntimeException("insertListBatched() is not supported for objects with self-referencing columns due to Derby limitations");
       }
 
+      prepareForInsert(connection, introspected, iterable);
       final AttributeInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
-         final int[] parameterTypes = getParameterTypes(stmt);
-         for (final T item : iterable) {
-            setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null);
-            stmt.addBatch();
+      if (q2o.isBulkLoad() && BulkLoader.load(connection, introspected, insertableFcInfos, iterable)) {
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+         return;
+      }
+      if (q2o.isMultiRowInsert()) {
+         final Dialect dialect = Dialect.of(connection);
+         // PgJDBC executes batches returning generated keys statement by statement. RETURNING gets the ids of many rows with one statement.
+         final boolean returning = dialect == Dialect.POSTGRESQL && introspected.hasGeneratedId();
+         int maxRows = dialect.getMaxRowsPerInsert(insertableFcInfos.length);
+         if (q2o.getBatchSize() > 0) {
+            maxRows = Math.min(maxRows, q2o.getBatchSize());
          }
-         stmt.executeBatch();
+         if (maxRows > 1) {
+            insertListMultiRow(connection, introspected, insertableFcInfos, iterable, maxRows, returning);
+            return;
+         }
+      }
+
+      final String sql = createSqlForInsert(introspected, insertableFcInfos);
+      try (final PreparedStatement stmt = prepareStatementForInsert(connection, introspected, sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, insertableFcInfos, null, false);
+         final ChunkListener<T> fillGeneratedIds = !introspected.hasGeneratedId() ? null : (chunk, updateCounts) -> {
+            try (final ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+               fillGeneratedIds(chunk, introspected, generatedKeys);
+            }
+         };
+         executeChunked(stmt, iterable, item -> setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null), fillGeneratedIds);
+      }
+      finally {
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
       }
    }
 
+   /**
+    * @return The update counts per chunk of {@link q2o#getBatchSize()} rows, see {@link #executeChunked(PreparedStatement, Iterable, ParameterBinder)}.
+    */
+   static <T> int[] updateListBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
+   {
+      final Iterator<T> iterableIterator = iterable.iterator();
+      if (!iterableIterator.hasNext()) {
+         return new int[0];
+      }
+
+      final Introspected introspected = Introspected.getInstance(iterableIterator.next().getClass());
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      if (versionFcInfo != null && connectionsWithoutBatchCounts.contains(connection.getClass())) {
+         return executeEach(iterable, item -> updateObject(connection, item) != null ? 1 : 0);
+      }
+      final AttributeInfo[] updatableFcInfos = introspected.getUpdatableFcInfos();
+      final String sql = updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, updatableFcInfos, null));
+      // The versions before, of the current chunk's items.
+      final List<Object> versions = new ArrayList<>();
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, updatableFcInfos, null, true);
+         final ChunkListener<T> checkVersions = versionFcInfo == null ? null : (chunk, updateCounts) -> {
+            if (!hasRowCounts(updateCounts, chunk.size())) {
+               for (int i = 0; i < chunk.size(); i++) {
+                  setVersion(chunk.get(i), versionFcInfo, versions.get(i));
+               }
+               throw versionsNotChecked(connection, chunk.size());
+            }
+            final int notUpdated = indexOfNotUpdated(updateCounts, chunk.size());
+            if (notUpdated >= 0) {
+               for (int i = 0; i < chunk.size(); i++) {
+                  if (updateCounts[i] == 0) {
+                     setVersion(chunk.get(i), versionFcInfo, versions.get(i));
+                  }
+               }
+               throw optimisticLockException(chunk.get(notUpdated));
+            }
+            versions.clear();
+         };
+         return executeChunked(stmt, iterable, item -> {
+            final Object version = versionFcInfo != null ? incrementVersion(item, versionFcInfo) : null;
+            if (versionFcInfo != null) {
+               versions.add(version);
+            }
+            final int parameterIndex = setStatementParameters(item, introspected, updatableFcInfos, stmt, parameterTypes, null);
+            setIdParameters(item, introspected, stmt, parameterTypes, parameterIndex, version);
+         }, checkVersions);
+      }
+      finally {
+         SecondLevelCache.writtenEach(connection, introspected, iterable);
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+   }
+
+   /**
+    * @return The update counts per chunk of {@link q2o#getBatchSize()} rows, see {@link #executeChunked(PreparedStatement, Iterable, ParameterBinder)}.
+    */
+   static <T> int[] deleteListBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
+   {
+      final Iterator<T> iterableIterator = iterable.iterator();
+      if (!iterableIterator.hasNext()) {
+         return new int[0];
+      }
+
+      final Introspected introspected = Introspected.getInstance(iterableIterator.next().getClass());
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      if (versionFcInfo != null && connectionsWithoutBatchCounts.contains(connection.getClass())) {
+         return executeEach(iterable, item -> deleteObject(connection, item));
+      }
+      final String sql = deleteStatementCache.computeIfAbsent(Arrays.asList(introspected, versionFcInfo != null), key -> createSqlForDelete(introspected, versionFcInfo != null));
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, new AttributeInfo[0], null, true);
+         final ChunkListener<T> checkVersions = versionFcInfo == null ? null : (chunk, updateCounts) -> {
+            if (!hasRowCounts(updateCounts, chunk.size())) {
+               throw versionsNotChecked(connection, chunk.size());
+            }
+            final int notDeleted = indexOfNotUpdated(updateCounts, chunk.size());
+            if (notDeleted >= 0) {
+               throw optimisticLockException(chunk.get(notDeleted));
+            }
+         };
+         return executeChunked(stmt, iterable, item -> setIdParameters(item, introspected, stmt, parameterTypes, 1, versionFcInfo != null ? getVersion(item, versionFcInfo) : null), checkVersions);
+      }
+      finally {
+         SecondLevelCache.writtenEach(connection, introspected, iterable);
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+   }
+
+   /**
+    * Inserts the objects or updates the existing rows with the same id, with MERGE on H2, INSERT ... ON CONFLICT on PostgreSQL and INSERT ... ON DUPLICATE KEY UPDATE on MySQL/MariaDB. Ids must be set, also generated ones. Objects with a @Version attribute are rejected, as an upsert can neither check nor increment it.
+    *
+    * @return The update counts per chunk of {@link q2o#getBatchSize()} rows, see {@link #executeChunked(PreparedStatement, Iterable, ParameterBinder)}. Note that MySQL counts an updated row as 2.
+    */
+   static <T> int[] upsertListBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
+   {
+      final Iterator<T> iterableIterator = iterable.iterator();
+      if (!iterableIterator.hasNext()) {
+         return new int[0];
+      }
+
+      final Introspected introspected = Introspected.getInstance(iterableIterator.next().getClass());
+      if (introspected.getVersionFcInfo() != null) {
+         throw new RuntimeException("upsertBatched() does not support objects with @Version attribute, since it can neither check nor increment it: " + introspected.getTableName());
+      }
+      final Dialect dialect = Dialect.of(connection);
+      final AttributeInfo[] upsertableFcInfos = getUpsertableFcInfos(introspected);
+      final String sql = upsertStatementCache.computeIfAbsent(Arrays.asList(introspected, dialect), key -> createSqlForUpsert(introspected, upsertableFcInfos, dialect));
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, upsertableFcInfos, null, false);
+         return executeChunked(stmt, iterable, item -> setStatementParameters(item, introspected, upsertableFcInfos, stmt, parameterTypes, null));
+      }
+      finally {
+         SecondLevelCache.writtenEach(connection, introspected, iterable);
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+   }
+
+   /**
+    * Inserts maxRows objects per "INSERT ... VALUES (...),(...)" statement. The remaining objects are inserted with statements of power of two rows, so there are only a few distinct statements per entity. Generated ids are set if the driver returns a generated key per row.
+    *
+    * @param returning true to get the generated ids with "RETURNING id" (PostgreSQL) instead of Statement.getGeneratedKeys().
+    */
+   private static <T> void insertListMultiRow(final Connection connection,
+                                              final Introspected introspected,
+                                              final AttributeInfo[] fcInfos,
+                                              final Iterable<T> iterable,
+                                              final int maxRows,
+                                              final boolean returning) throws SQLException
+   {
+      final List<T> rows = new ArrayList<>(maxRows);
+      for (final T item : iterable) {
+         rows.add(item);
+         if (rows.size() == maxRows) {
+            executeMultiRowInsert(connection, introspected, fcInfos, rows, returning);
+            rows.clear();
+         }
+      }
+      int from = 0;
+      while (from < rows.size()) {
+         final int count = Integer.highestOneBit(rows.size() - from);
+         executeMultiRowInsert(connection, introspected, fcInfos, rows.subList(from, from + count), returning);
+         from += count;
+      }
+   }
+
+   private static <T> void executeMultiRowInsert(final Connection connection,
+                                                 final Introspected introspected,
+                                                 final AttributeInfo[] fcInfos,
+                                                 final List<T> rows,
+                                                 final boolean returning) throws SQLException
+   {
+      final String sql = returning
+         ? createSqlForInsert(introspected, fcInfos, rows.size()) + " RETURNING " + introspected.getGeneratedIdFcInfo().getDelimitedColumnName()
+         : createSqlForInsert(introspected, fcInfos, rows.size());
+      try (final PreparedStatement stmt = returning ? connection.prepareStatement(sql) : prepareStatementForInsert(connection, introspected, sql)) {
+         // Each row's parameters have the types of the first row's.
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, fcInfos, null, false);
+         int parameterIndex = 1;
+         for (final T item : rows) {
+            parameterIndex = setStatementParameters(item, introspected, fcInfos, stmt, parameterTypes, null, parameterIndex);
+         }
+         logger.debug("{}", stmt);
+         try (final ResultSet generatedKeys = returning ? stmt.executeQuery() : executeUpdateGetKeys(stmt, introspected)) {
+            fillGeneratedIds(rows, introspected, generatedKeys);
+         }
+         catch (Exception e) {
+            logger.error("statement={}", stmt);
+            throw e;
+         }
+      }
+      finally {
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+   }
+
+   /**
+    * @return The generated keys, null if the entity has no generated id.
+    */
+   private static ResultSet executeUpdateGetKeys(final PreparedStatement stmt, final Introspected introspected) throws SQLException
+   {
+      stmt.executeUpdate();
+      return introspected.hasGeneratedId() ? stmt.getGeneratedKeys() : null;
+   }
+
    static <T> void insertListNotBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
    {
       final Iterator<T> iterableIterator = iterable.iterator();
@@ -99,9 +330,11 @@ class OrmWriter extends OrmBase
       final boolean hasSelfJoinColumn = introspected.hasSelfJoinColumn();
       final String[] idColumnNames = introspected.getIdColumnNames();
       final AttributeInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
+      prepareForInsert(connection, introspected, iterable);
       // Insert
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
-         final int[] parameterTypes = getParameterTypes(stmt);
+      final String sql = createSqlForInsert(introspected, insertableFcInfos);
+      try (final PreparedStatement stmt = prepareStatementForInsert(connection, introspected, sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, insertableFcInfos, null, false);
          for (final T item : iterable) {
             setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null);
             try {
@@ -116,6 +349,9 @@ class OrmWriter extends OrmBase
             stmt.clearParameters();
          }
       }
+      finally {
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
    }
 
    static <T> T insertObject(final Connection connection, final T target) throws SQLException
@@ -123,8 +359,17 @@ class OrmWriter extends OrmBase
       final Class<?> clazz = target.getClass();
       final Introspected introspected = Introspected.getInstance(clazz);
       final AttributeInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
-         setParamsExecute(target, introspected, insertableFcInfos, stmt, /*checkExistingId=*/false, null);
+      prepareForInsert(connection, introspected, Collections.singletonList(target));
+      final String sql = createSqlForInsert(introspected, insertableFcInfos);
+      try (final PreparedStatement stmt = prepareStatementForInsert(connection, introspected, sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, insertableFcInfos, null, false);
+         setParamsExecute(target, introspected, insertableFcInfos, stmt, parameterTypes, /*checkExistingId=*/false, null, null);
+      }
+      finally {
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+      if (q2o.isDirtyTracking()) {
+         DirtyTracker.capture(introspected, target);
       }
       return target;
    }
@@ -134,21 +379,89 @@ class OrmWriter extends OrmBase
       return updateObject(connection, target, null);
    }
 
-   static <T> T updateObject(final Connection connection, final T target, final Set<String> excludedColumns) throws SQLException
+   static <T> T updateObject(final Connection connection, final T target, @Nullable Set<String> excludedColumns) throws SQLException
    {
       final Class<?> clazz = target.getClass();
       final Introspected introspected = Introspected.getInstance(clazz);
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      if (excludedColumns != null && versionFcInfo != null && isIgnoredColumn(excludedColumns, versionFcInfo.getColumnName())) {
+         // The version is checked in the WHERE clause, so it must advance with every update.
+         excludedColumns = new HashSet<>(excludedColumns);
+         excludedColumns.removeIf(column -> column.equalsIgnoreCase(versionFcInfo.getColumnName()));
+      }
+      if (excludedColumns == null && q2o.isDirtyTracking()) {
+         final BitSet changed = DirtyTracker.changedAttributes(introspected, target);
+         if (changed != null) {
+            return updateChangedColumns(connection, target, introspected, changed);
+         }
+      }
       final AttributeInfo[] updatableFcInfos = introspected.getUpdatableFcInfos();
+      final String sql;
       if (excludedColumns == null) {
-         try (final PreparedStatement stmt = createStatementForUpdate(connection, introspected, updatableFcInfos)) {
-            setParamsExecute(target, introspected, updatableFcInfos, stmt, /*checkExistingId=*/true, null);
-         }
+         sql = updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, updatableFcInfos, null));
       }
       else {
-         try (final PreparedStatement stmt = createStatementForUpdate(connection, introspected, updatableFcInfos, excludedColumns)){
-            setParamsExecute(target, introspected, updatableFcInfos, stmt, /*checkExistingId=*/true, excludedColumns);
+         // To exclude columns situative. Not cached.
+         sql = createSqlForUpdate(introspected, updatableFcInfos, excludedColumns);
+      }
+      executeUpdateObject(connection, target, introspected, sql, updatableFcInfos, excludedColumns);
+      // Excluded columns were not written, so the remembered values stay as they are.
+      if (excludedColumns == null && q2o.isDirtyTracking()) {
+         DirtyTracker.capture(introspected, target);
+      }
+      return target;
+   }
+
+   /**
+    * Executes the UPDATE of target. If the entity has a @Version attribute, its next value is set on target and written, and the row is updated only if it still has the version before. Else target's version is reset and {@link OptimisticLockException} is thrown.
+    */
+   private static <T> void executeUpdateObject(final Connection connection,
+                                               final T target,
+                                               final Introspected introspected,
+                                               final String sql,
+                                               final AttributeInfo[] fcInfos,
+                                               @Nullable final Set<String> excludedColumns) throws SQLException
+   {
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      final Object version = versionFcInfo != null ? incrementVersion(target, versionFcInfo) : null;
+      boolean updated = false;
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         final int[] parameterTypes = getParameterTypes(stmt, sql, introspected, fcInfos, excludedColumns, true);
+         updated = setParamsExecute(target, introspected, fcInfos, stmt, parameterTypes, /*checkExistingId=*/true, excludedColumns, version) > 0;
+      }
+      finally {
+         if (versionFcInfo != null && !updated) {
+            setVersion(target, versionFcInfo, version);
          }
+         SecondLevelCache.written(connection, introspected, target);
+         QueryResultCache.invalidateTable(connection, introspected.getTableName());
+      }
+      if (versionFcInfo != null && !updated) {
+         throw optimisticLockException(target);
       }
+   }
+
+   /**
+    * Updates the columns of the attributes changed since target was read or written, see {@link q2o#setDirtyTracking(boolean)}. Executes nothing if none changed.
+    *
+    * @param changed Indexes into {@link Introspected#getUpdatableFcInfos()}.
+    */
+   private static <T> T updateChangedColumns(final Connection connection, final T target, final Introspected introspected, final BitSet changed) throws SQLException
+   {
+      if (changed.isEmpty()) {
+         return target;
+      }
+      final AttributeInfo[] updatableFcInfos = introspected.getUpdatableFcInfos();
+      if (introspected.getVersionFcInfo() != null) {
+         changed.set(introspected.getVersionUpdatableIndex());
+      }
+      final AttributeInfo[] changedFcInfos = new AttributeInfo[changed.cardinality()];
+      for (int i = changed.nextSetBit(0), j = 0; i >= 0; i = changed.nextSetBit(i + 1)) {
+         changedFcInfos[j++] = updatableFcInfos[i];
+      }
+      final String sql = changedColumnsUpdateStatementCache.computeIfAbsent(Arrays.asList(introspected, changed), key -> createSqlForUpdate(introspected, changedFcInfos, null));
+      executeUpdateObject(connection, target, introspected, sql, changedFcInfos, null);
+      DirtyTracker.capture(introspected, target);
       return target;
    }
 
@@ -156,8 +469,25 @@ class OrmWriter extends OrmBase
    {
       final Class<?> clazz = target.getClass();
       final Introspected introspected = Introspected.getInstance(clazz);
-
-      return deleteObjectById(connection, clazz, introspected.getActualIds(target));
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      if (versionFcInfo == null) {
+         return deleteObjectById(connection, clazz, introspected.getActualIds(target));
+      }
+      final String sql = deleteStatementCache.computeIfAbsent(Arrays.asList(introspected, true), key -> createSqlForDelete(introspected, true));
+      final Object[] ids = introspected.getActualIds(target);
+      final Object[] args = Arrays.copyOf(ids, ids.length + 1);
+      args[ids.length] = getVersion(target, versionFcInfo);
+      final int count;
+      try {
+         count = executeUpdate(connection, sql, args);
+      }
+      finally {
+         SecondLevelCache.writtenById(connection, introspected, ids);
+      }
+      if (count == 0) {
+         throw optimisticLockException(target);
+      }
+      return count;
    }
 
    /**
@@ -167,75 +497,122 @@ class OrmWriter extends OrmBase
    static <T> int deleteObjectById(final Connection connection, final Class<T> clazz, final Object... args) throws SQLException
    {
       final Introspected introspected = Introspected.getInstance(clazz);
-
-      final StringBuilder sql = new StringBuilder()
-        .append("DELETE FROM ").append(introspected.getDelimitedTableName())
-        .append(" WHERE ");
-
-      final String[] idColumnNames = introspected.getIdColumnNames();
-      if (idColumnNames.length == 0) {
-         throw new RuntimeException("No id columns provided in: " + clazz.getName());
+      final String sql = deleteStatementCache.computeIfAbsent(Arrays.asList(introspected, false), key -> createSqlForDelete(introspected, false));
+      try {
+         return executeUpdate(connection, sql, args);
       }
-
-      for (final String idColumn : idColumnNames) {
-         sql.append(idColumn).append("=? AND ");
+      finally {
+         SecondLevelCache.writtenById(connection, introspected, args);
       }
-      sql.setLength(sql.length() - 5);
-
-      return executeUpdate(connection, sql.toString(), args);
    }
 
    static <T> int deleteByWhereClause(final Connection connection, final Class<T> clazz, final String whereClause, final Object... args) throws SQLException
    {
       final Introspected introspected = Introspected.getInstance(clazz);
-
       final StringBuilder sql = new StringBuilder()
         .append("DELETE FROM ").append(introspected.getDelimitedTableName())
         .append(" WHERE ").append(whereClause);
 
-      return executeUpdate(connection, sql.toString(), args);
+      try {
+         return executeUpdate(connection, sql.toString(), args);
+      }
+      finally {
+         // The rows are not known.
+         SecondLevelCache.writtenAll(connection, introspected);
+      }
    }
 
+   /**
+    * One statement per chunk of {@link IdsInClause}.
+    */
    static <T> int deleteObjects(Connection connection, Class<T> clazz, List<T> objects) throws SQLException {
-      return deleteByWhereClause(connection, clazz, idsAsInClause(clazz, objects));
+      final Introspected introspected = Introspected.getInstance(clazz);
+      int count = 0;
+      for (final IdsInClause inClause : IdsInClause.forObjects(connection, introspected, objects)) {
+         count += deleteByWhereClause(connection, clazz, inClause.getCondition(), inClause.getArgs());
+      }
+      return count;
    }
 
    static int executeUpdate(final Connection connection, final String sql, final Object... args) throws SQLException
    {
       try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
-         populateStatementParameters(stmt, args);
+         populateStatementParameters(stmt, sql, args);
          return stmt.executeUpdate();
       }
       catch (Exception e) {
          logger.error("{}", sql);
          throw e;
       }
+      finally {
+         QueryResultCache.invalidateStatement(connection, sql);
+      }
    }
 
    // -----------------------------------------------------------------------
    //                      P R I V A T E   M E T H O D S
    // -----------------------------------------------------------------------
 
-   private static PreparedStatement createStatementForInsert(final Connection connection,
-                                                             final Introspected introspected,
-                                                             final AttributeInfo[] fcInfos) throws SQLException
+   /**
+    *
+    * @return newly created or already cached SQL.
+    */
+   private static String createSqlForInsert(final Introspected introspected, final AttributeInfo[] fcInfos)
    {
-      final String sql = createStatementCache.computeIfAbsent(introspected, key -> {
+      return createSqlForInsert(introspected, fcInfos, 1);
+   }
+
+   /**
+    *
+    * @param rows The number of rows in the VALUES list.
+    * @return newly created or already cached SQL.
+    */
+   private static String createSqlForInsert(final Introspected introspected, final AttributeInfo[] fcInfos, final int rows)
+   {
+      return createStatementCache.computeIfAbsent(Arrays.asList(introspected, rows), key -> {
          final String tableName = introspected.getDelimitedTableName();
          final StringBuilder sqlSB = new StringBuilder("INSERT INTO ").append(tableName).append('(');
-         final StringBuilder sqlValues = new StringBuilder(") VALUES (");
+         final StringBuilder sqlValues = new StringBuilder("(");
 
          for (final AttributeInfo fcInfo : fcInfos) {
             sqlSB.append(fcInfo.getDelimitedColumnName()).append(',');
             sqlValues.append("?,");
          }
 
-         sqlValues.deleteCharAt(sqlValues.length() - 1);
-         sqlSB.deleteCharAt(sqlSB.length() - 1).append(sqlValues).append(')');
+         sqlValues.setCharAt(sqlValues.length() - 1, ')');
+         sqlSB.deleteCharAt(sqlSB.length() - 1).append(") VALUES ").append(sqlValues);
+         for (int row = 1; row < rows; row++) {
+            sqlSB.append(',').append(sqlValues);
+         }
 
          return sqlSB.toString();
       });
+   }
+
+   /**
+    * Assigns ids from the entity's @SequenceGenerator or @TableGenerator, if any, before the objects are inserted. Only a trip per allocationSize ids goes to the database. Sets the initial version of a @Version attribute that is null.
+    */
+   private static <T> void prepareForInsert(final Connection connection, final Introspected introspected, final Iterable<T> iterable) throws SQLException
+   {
+      final IdAllocator idAllocator = introspected.getIdAllocator();
+      final AttributeInfo versionFcInfo = introspected.getVersionFcInfo();
+      if (idAllocator == null && versionFcInfo == null) {
+         return;
+      }
+      for (final T item : iterable) {
+         if (idAllocator != null) {
+            idAllocator.assignId(connection, introspected, item);
+         }
+         if (versionFcInfo != null && getVersion(item, versionFcInfo) == null) {
+            setVersion(item, versionFcInfo, nextVersion(versionFcInfo, null));
+         }
+      }
+   }
 
+   private static PreparedStatement prepareStatementForInsert(final Connection connection,
+                                                              final Introspected introspected,
+                                                              final String sql) throws SQLException
+   {
       if (introspected.hasGeneratedId()) {
          return connection.prepareStatement(sql, introspected.getIdColumnNames());
       }
@@ -245,28 +622,97 @@ class OrmWriter extends OrmBase
    }
 
    /**
-    *
-    * @return newly created or already cached statement.
+    * @param withVersion true to delete only if the @Version attribute's column has the value of the last parameter.
     */
-   private static PreparedStatement createStatementForUpdate(final Connection connection,
-                                                             final Introspected introspected,
-                                                             final AttributeInfo[] fieldColumnInfos) throws SQLException
+   private static String createSqlForDelete(final Introspected introspected, final boolean withVersion)
    {
-      final String sql = updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, fieldColumnInfos, null));
+      final String[] idColumnNames = introspected.getIdColumnNames();
+      if (idColumnNames.length == 0) {
+         throw new RuntimeException("No id columns provided in: " + introspected.getClazz().getName());
+      }
 
-      return connection.prepareStatement(sql);
+      final StringBuilder sql = new StringBuilder()
+        .append("DELETE FROM ").append(introspected.getDelimitedTableName())
+        .append(" WHERE ");
+      for (final String idColumn : idColumnNames) {
+         sql.append(idColumn).append("=? AND ");
+      }
+      sql.setLength(sql.length() - 5);
+      if (withVersion) {
+         sql.append(" AND ").append(introspected.getVersionFcInfo().getDelimitedColumnName()).append("=?");
+      }
+      return sql.toString();
    }
 
    /**
-    * To exclude columns situative. Does not cache the statement.
+    * The insertable attributes plus the generated id, if any.
     */
-   private static PreparedStatement createStatementForUpdate(final Connection connection,
-                                                             final Introspected introspected,
-                                                             final AttributeInfo[] fieldColumnInfos,
-                                                             final Set<String> excludedColumns) throws SQLException
+   private static AttributeInfo[] getUpsertableFcInfos(final Introspected introspected)
    {
-      final String sql = createSqlForUpdate(introspected, fieldColumnInfos, excludedColumns);
-      return connection.prepareStatement(sql);
+      final AttributeInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
+      if (!introspected.hasGeneratedId()) {
+         return insertableFcInfos;
+      }
+      final AttributeInfo[] fcInfos = new AttributeInfo[insertableFcInfos.length + 1];
+      fcInfos[0] = introspected.getGeneratedIdFcInfo();
+      System.arraycopy(insertableFcInfos, 0, fcInfos, 1, insertableFcInfos.length);
+      return fcInfos;
+   }
+
+   private static String createSqlForUpsert(final Introspected introspected, final AttributeInfo[] fcInfos, final Dialect dialect)
+   {
+      final String[] idColumnNames = introspected.getIdColumnNames();
+      if (idColumnNames.length == 0) {
+         throw new RuntimeException("No id columns provided in: " + introspected.getClazz().getName());
+      }
+
+      final StringBuilder columns = new StringBuilder();
+      final StringBuilder values = new StringBuilder();
+      final List<String> updateColumns = new ArrayList<>();
+      for (final AttributeInfo fcInfo : fcInfos) {
+         columns.append(fcInfo.getDelimitedColumnName()).append(',');
+         values.append("?,");
+         if (!fcInfo.isIdField) {
+            updateColumns.add(fcInfo.getDelimitedColumnName());
+         }
+      }
+      columns.setLength(columns.length() - 1);
+      values.setLength(values.length() - 1);
+      final String ids = String.join(",", idColumnNames);
+
+      final StringBuilder sql = new StringBuilder();
+      switch (dialect) {
+      case H2:
+         sql.append("MERGE INTO ").append(introspected.getDelimitedTableName())
+            .append(" (").append(columns).append(") KEY (").append(ids).append(") VALUES (").append(values).append(')');
+         break;
+      case POSTGRESQL:
+         sql.append("INSERT INTO ").append(introspected.getDelimitedTableName())
+            .append(" (").append(columns).append(") VALUES (").append(values).append(") ON CONFLICT (").append(ids).append(')');
+         if (updateColumns.isEmpty()) {
+            sql.append(" DO NOTHING");
+         }
+         else {
+            sql.append(" DO UPDATE SET ");
+            updateColumns.forEach(column -> sql.append(column).append("=EXCLUDED.").append(column).append(','));
+            sql.setLength(sql.length() - 1);
+         }
+         break;
+      case MYSQL:
+         sql.append("INSERT INTO ").append(introspected.getDelimitedTableName())
+            .append(" (").append(columns).append(") VALUES (").append(values).append(") ON DUPLICATE KEY UPDATE ");
+         if (updateColumns.isEmpty()) {
+            sql.append(idColumnNames[0]).append('=').append(idColumnNames[0]);
+         }
+         else {
+            updateColumns.forEach(column -> sql.append(column).append("=VALUES(").append(column).append("),"));
+            sql.setLength(sql.length() - 1);
+         }
+         break;
+      default:
+         throw new RuntimeException("Upsert is supported for H2, PostgreSQL and MySQL/MariaDB only.");
+      }
+      return sql.toString();
    }
 
    /**
@@ -291,39 +737,252 @@ class OrmWriter extends OrmBase
             sqlSB.append(column).append("=? AND ");
          }
          sqlSB.setLength(sqlSB.length() - 5);
+         if (introspected.getVersionFcInfo() != null) {
+            sqlSB.append(" AND ").append(introspected.getVersionFcInfo().getDelimitedColumnName()).append("=?");
+         }
       }
       return sqlSB.toString();
    }
 
-   /** You should close stmt by yourself */
-   private static <T> void setParamsExecute(final T target,
-                                            final Introspected introspected,
-                                            final AttributeInfo[] fcInfos,
-                                            final PreparedStatement stmt,
-                                            final boolean checkExistingId,
-                                            final Set<String> excludedColumns)
+   /**
+    * You should close stmt by yourself
+    *
+    * @param version The @Version attribute's value the row must have to be updated, see {@link #setIdParameters(Object, Introspected, PreparedStatement, int[], int, Object)}.
+    * @return The update count.
+    */
+   private static <T> int setParamsExecute(final T target,
+                                           final Introspected introspected,
+                                           final AttributeInfo[] fcInfos,
+                                           final PreparedStatement stmt,
+                                           final int[] parameterTypes,
+                                           final boolean checkExistingId,
+                                           final Set<String> excludedColumns,
+                                           @Nullable final Object version)
       throws SQLException
    {
-      final int[] parameterTypes = getParameterTypes(stmt);
-      int parameterIndex = setStatementParameters(target, introspected, fcInfos, /*hasSelfJoinColumn*/ stmt, parameterTypes, excludedColumns);
+      final int parameterIndex = setStatementParameters(target, introspected, fcInfos, /*hasSelfJoinColumn*/ stmt, parameterTypes, excludedColumns);
+      setIdParameters(target, introspected, stmt, parameterTypes, parameterIndex, version);
 
-      // If there is still a parameter left to be set, it's the ID used for an update
+      final int count;
+      try {
+         logger.debug("{}", stmt);
+         count = stmt.executeUpdate();
+      }
+      catch (Exception e) {
+         logger.error("statement={}", stmt);
+         throw e;
+      }
+      fillGeneratedId(target, introspected, stmt, checkExistingId);
+      return count;
+   }
+
+   /**
+    * If there is still a parameter left to be set from parameterIndex on, it's the ID used for an update or delete, followed by the version if the entity has a @Version attribute.
+    *
+    * @param version The version the row must have. Not target's, which is already the next one on update.
+    */
+   private static <T> void setIdParameters(final T target,
+                                           final Introspected introspected,
+                                           final PreparedStatement stmt,
+                                           final int[] parameterTypes,
+                                           int parameterIndex,
+                                           @Nullable final Object version) throws SQLException {
       if (parameterIndex <= parameterTypes.length) {
          for (final Object id : introspected.getActualIds(target)) {
-            stmt.setObject(parameterIndex, id, parameterTypes[parameterIndex - 1]);
+            ParameterTypes.setObject(stmt, parameterIndex, id, parameterTypes[parameterIndex - 1]);
             ++parameterIndex;
          }
+         if (introspected.getVersionFcInfo() != null) {
+            ParameterTypes.setObject(stmt, parameterIndex, version, parameterTypes[parameterIndex - 1]);
+         }
       }
+   }
 
+   @Nullable
+   private static Object getVersion(final Object target, final AttributeInfo versionFcInfo) {
       try {
-         logger.debug("{}", stmt);
-         stmt.executeUpdate();
+         return versionFcInfo.getValue(target);
       }
-      catch (Exception e) {
-         logger.error("statement={}", stmt);
-         throw e;
+      catch (IllegalAccessException | InvocationTargetException e) {
+         throw new RuntimeException(e);
       }
-      fillGeneratedId(target, introspected, stmt, checkExistingId);
+   }
+
+   private static void setVersion(final Object target, final AttributeInfo versionFcInfo, @Nullable final Object version) {
+      try {
+         versionFcInfo.setValue(target, version);
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Sets the next version on target.
+    *
+    * @return The version before.
+    */
+   @Nullable
+   private static Object incrementVersion(final Object target, final AttributeInfo versionFcInfo) {
+      final Object version = getVersion(target, versionFcInfo);
+      setVersion(target, versionFcInfo, nextVersion(versionFcInfo, version));
+      return version;
+   }
+
+   /**
+    * @param version null for the initial version.
+    * @return The version incremented by 1, or the current time, but at least a millisecond later than version.
+    */
+   private static Object nextVersion(final AttributeInfo versionFcInfo, @Nullable final Object version) {
+      final Class<?> type = versionFcInfo.getType();
+      if (type == Timestamp.class) {
+         final long now = System.currentTimeMillis();
+         return new Timestamp(version == null ? now : Math.max(now, ((Timestamp) version).getTime() + 1));
+      }
+      final long next = version == null ? 0 : ((Number) version).longValue() + 1;
+      if (type == int.class || type == Integer.class) {
+         return (int) next;
+      }
+      else if (type == short.class || type == Short.class) {
+         return (short) next;
+      }
+      return next;
+   }
+
+   private static OptimisticLockException optimisticLockException(final Object target) {
+      return new OptimisticLockException("Row was updated or deleted by another transaction, or does not exist: " + target, null, target);
+   }
+
+   /**
+    * @return false if the driver did not report the count of each row, e.g. with Statement.SUCCESS_NO_INFO as Oracle before 12c does.
+    */
+   private static boolean hasRowCounts(final int[] updateCounts, final int rows) {
+      if (updateCounts.length != rows) {
+         return false;
+      }
+      for (final int updateCount : updateCounts) {
+         if (updateCount < 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Remembers connection's class, so later calls with versioned objects execute one statement per object.
+    */
+   private static RuntimeException versionsNotChecked(final Connection connection, final int rows) {
+      connectionsWithoutBatchCounts.add(connection.getClass());
+      return new RuntimeException("The driver did not report the update count of each of " + rows + " batched rows, so their @Version could not be checked."
+         + " The batch was executed and should be rolled back. Later calls update and delete versioned objects one by one.");
+   }
+
+   /**
+    * Executes statement for each item, instead of batched.
+    *
+    * @return The sum of the update counts per chunk of {@link q2o#getBatchSize()} items, like {@link #executeChunked(PreparedStatement, Iterable, ParameterBinder)}.
+    */
+   private static <T> int[] executeEach(final Iterable<T> iterable, final ItemStatement<T> statement) throws SQLException {
+      final int batchSize = q2o.getBatchSize();
+      final List<Integer> chunkCounts = new ArrayList<>();
+      int rows = 0;
+      int count = 0;
+      for (final T item : iterable) {
+         count += statement.execute(item);
+         if (++rows == batchSize) {
+            chunkCounts.add(count);
+            rows = 0;
+            count = 0;
+         }
+      }
+      if (rows > 0) {
+         chunkCounts.add(count);
+      }
+      return chunkCounts.stream().mapToInt(Integer::intValue).toArray();
+   }
+
+   /**
+    * @return The index of the first row that was not updated. -1 if all were.
+    */
+   private static int indexOfNotUpdated(final int[] updateCounts, final int rows) {
+      if (updateCounts.length != rows) {
+         return -1;
+      }
+      for (int i = 0; i < updateCounts.length; i++) {
+         if (updateCounts[i] == 0) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Adds a batch per item and executes it every {@link q2o#getBatchSize()} items, or once if the batch size is 0.
+    *
+    * @return The sum of the update counts of each executed chunk, or Statement.SUCCESS_NO_INFO for a chunk if the driver did not report the count of any of its rows.
+    */
+   private static <T> int[] executeChunked(final PreparedStatement stmt, final Iterable<T> iterable, final ParameterBinder<T> binder) throws SQLException {
+      return executeChunked(stmt, iterable, binder, null);
+   }
+
+   /**
+    * @param listener Called with the items of a chunk after it was executed. May be null.
+    */
+   private static <T> int[] executeChunked(final PreparedStatement stmt, final Iterable<T> iterable, final ParameterBinder<T> binder, @Nullable final ChunkListener<T> listener) throws SQLException {
+      final int batchSize = q2o.getBatchSize();
+      final List<Integer> chunkCounts = new ArrayList<>();
+      final List<T> chunk = new ArrayList<>();
+      int rows = 0;
+      for (final T item : iterable) {
+         binder.bind(item);
+         stmt.addBatch();
+         if (listener != null) {
+            chunk.add(item);
+         }
+         if (++rows == batchSize) {
+            executeChunk(stmt, chunk, chunkCounts, listener);
+            rows = 0;
+         }
+      }
+      if (rows > 0) {
+         executeChunk(stmt, chunk, chunkCounts, listener);
+      }
+      return chunkCounts.stream().mapToInt(Integer::intValue).toArray();
+   }
+
+   private static <T> void executeChunk(final PreparedStatement stmt, final List<T> chunk, final List<Integer> chunkCounts, @Nullable final ChunkListener<T> listener) throws SQLException {
+      final int[] updateCounts = stmt.executeBatch();
+      chunkCounts.add(sumUpdateCounts(updateCounts));
+      if (listener != null) {
+         listener.executed(chunk, updateCounts);
+      }
+      chunk.clear();
+   }
+
+   private static int sumUpdateCounts(final int[] updateCounts) {
+      int sum = 0;
+      for (final int updateCount : updateCounts) {
+         if (updateCount < 0) {
+            return Statement.SUCCESS_NO_INFO;
+         }
+         sum += updateCount;
+      }
+      return sum;
+   }
+
+   @FunctionalInterface
+   private interface ParameterBinder<T> {
+      void bind(T item) throws SQLException;
+   }
+
+   @FunctionalInterface
+   private interface ItemStatement<T> {
+      int execute(T item) throws SQLException;
+   }
+
+   @FunctionalInterface
+   private interface ChunkListener<T> {
+      void executed(List<T> chunk, int[] updateCounts) throws SQLException;
    }
 
    /** Small helper to set statement parameters from given object */
@@ -333,10 +992,28 @@ class OrmWriter extends OrmBase
                                                  final PreparedStatement stmt,
                                                  final int[] parameterTypes,
                                                  final Set<String> excludedColumns) throws SQLException {
-      int parameterIndex = 1;
+      return setStatementParameters(item, introspected, fcInfos, stmt, parameterTypes, excludedColumns, 1);
+   }
+
+   /**
+    * @param firstParameterIndex The index of item's first parameter, e.g. in a multi row insert. Its type is parameterTypes[0].
+    * @return The index of the next parameter.
+    */
+   private static <T> int setStatementParameters(final T item,
+                                                 final Introspected introspected,
+                                                 final AttributeInfo[] fcInfos,
+                                                 final PreparedStatement stmt,
+                                                 final int[] parameterTypes,
+                                                 final Set<String> excludedColumns,
+                                                 final int firstParameterIndex) throws SQLException {
+      int parameterIndex = firstParameterIndex;
       for (final AttributeInfo fcInfo : fcInfos) {
          if (excludedColumns == null || !isIgnoredColumn(excludedColumns, fcInfo.getColumnName())) {
-            final int sqlType = parameterTypes[parameterIndex - 1];
+            final int sqlType = parameterTypes[parameterIndex - firstParameterIndex];
+            if (setPrimitiveParameter(item, fcInfo, stmt, parameterIndex, sqlType)) {
+               ++parameterIndex;
+               continue;
+            }
             final Object object = FieldValueToDatabaseType.getValue(item, fcInfo, sqlType);
             if (q2o.isMySqlMode()) {
                // Does not help with problem that fractional seconds get lost when stored.
@@ -360,14 +1037,14 @@ class OrmWriter extends OrmBase
                try {
                   if (!fcInfo.isSelfJoinField()) {
                      if (!(object instanceof Blob)) {
-                        stmt.setObject(parameterIndex, object, sqlType);
+                        ParameterTypes.setObject(stmt, parameterIndex, object, sqlType);
                      }
                      else {
                         stmt.setBlob(parameterIndex, (Blob) object);
                      }
                   }
                   else {
-                     stmt.setObject(parameterIndex, fcInfo.getValue(item), sqlType);
+                     ParameterTypes.setObject(stmt, parameterIndex, fcInfo.getValue(item), sqlType);
                   }
                }
                catch (Exception e) {
@@ -380,7 +1057,7 @@ class OrmWriter extends OrmBase
                }
             }
             else {
-               stmt.setNull(parameterIndex, sqlType);
+               ParameterTypes.setNull(stmt, parameterIndex, sqlType);
             }
             ++parameterIndex;
          }
@@ -388,6 +1065,67 @@ class OrmWriter extends OrmBase
       return parameterIndex;
    }
 
+   /**
+    * Sets int, long and double attributes with PreparedStatement.setInt() etc., so they are not boxed.
+    *
+    * @return false if not applicable because of the attribute's or the parameter's type.
+    */
+   private static <T> boolean setPrimitiveParameter(final T item,
+                                                    final AttributeInfo fcInfo,
+                                                    final PreparedStatement stmt,
+                                                    final int parameterIndex,
+                                                    final int sqlType) throws SQLException {
+      if (q2o.isMySqlMode() || !fcInfo.hasPrimitiveAccessors()) {
+         return false;
+      }
+      final Class<?> type = fcInfo.getType();
+      if (type == int.class && sqlType == Types.INTEGER) {
+         stmt.setInt(parameterIndex, fcInfo.getInt(item));
+      }
+      else if (type == long.class && sqlType == Types.BIGINT) {
+         stmt.setLong(parameterIndex, fcInfo.getLong(item));
+      }
+      else if (type == double.class && (sqlType == Types.DOUBLE || sqlType == Types.FLOAT)) {
+         stmt.setDouble(parameterIndex, fcInfo.getDouble(item));
+      }
+      else {
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Sets the generated ids of a multi row insert or a batch, in the order of the rows, if the driver returned one key per row. Some, e.g. older H2 versions and SQLite, return only the last one.
+    *
+    * @param generatedKeys With the id in the first column. Null if there are no generated ids.
+    */
+   private static <T> void fillGeneratedIds(final List<T> targets,
+                                            final Introspected introspected,
+                                            @Nullable final ResultSet generatedKeys) throws SQLException {
+      if (!introspected.hasGeneratedId() || generatedKeys == null) {
+         return;
+      }
+
+      final AttributeInfo fcInfo = introspected.getGeneratedIdFcInfo();
+      final List<Object> ids = new ArrayList<>(targets.size());
+      while (generatedKeys.next()) {
+         ids.add(DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(fcInfo, generatedKeys.getObject(1), generatedKeys.getMetaData(), introspected, 1));
+      }
+      if (ids.size() != targets.size()) {
+         logger.warn("The driver returned {} generated keys for {} rows of {}, so their ids are not set. Use insertNotBatched() to get them.",
+            ids.size(), targets.size(), introspected.getTableName());
+         return;
+      }
+      try {
+         for (int i = 0; i < ids.size(); i++) {
+            fcInfo.setValue(targets.get(i), ids.get(i));
+         }
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
    /** Sets auto-generated ID if not set yet */
    private static <T> void fillGeneratedId(final T target,
                                            final Introspected introspected,
@@ -422,13 +1160,34 @@ class OrmWriter extends OrmBase
       }
    }
 
-   private static int[] getParameterTypes(final PreparedStatement stmt) throws SQLException
+   /**
+    * @param withIds true if the statement's last parameters are the id columns, and the @Version column if any, as in the WHERE clause of an update.
+    */
+   private static int[] getParameterTypes(final PreparedStatement stmt,
+                                          final String sql,
+                                          final Introspected introspected,
+                                          final AttributeInfo[] fcInfos,
+                                          final Set<String> excludedColumns,
+                                          final boolean withIds) throws SQLException
    {
-      final ParameterMetaData metaData = stmt.getParameterMetaData();
-      final int[] parameterTypes = new int[metaData.getParameterCount()];
-      for (int parameterIndex = 1; parameterIndex <= metaData.getParameterCount(); parameterIndex++) {
-         parameterTypes[parameterIndex - 1] = metaData.getParameterType(parameterIndex);
+      if (!q2o.isDeriveParameterTypes()) {
+         return ParameterTypes.of(stmt, sql);
+      }
+      final List<AttributeInfo> idFcInfos = withIds ? introspected.getIdFcInfos() : Collections.emptyList();
+      final AttributeInfo versionFcInfo = withIds ? introspected.getVersionFcInfo() : null;
+      final int[] parameterTypes = new int[fcInfos.length + idFcInfos.size() + 1];
+      int parameterIndex = 0;
+      for (final AttributeInfo fcInfo : fcInfos) {
+         if (excludedColumns == null || !isIgnoredColumn(excludedColumns, fcInfo.getColumnName())) {
+            parameterTypes[parameterIndex++] = ParameterTypes.ofAttribute(fcInfo);
+         }
+      }
+      for (final AttributeInfo idFcInfo : idFcInfos) {
+         parameterTypes[parameterIndex++] = ParameterTypes.ofAttribute(idFcInfo);
+      }
+      if (versionFcInfo != null) {
+         parameterTypes[parameterIndex++] = ParameterTypes.ofAttribute(versionFcInfo);
       }
-      return parameterTypes;
+      return Arrays.copyOf(parameterTypes, parameterIndex);
    }
 }
@@ -0,0 +1,143 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.EnumType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The SQL types of a statement's parameters. They are fetched once per SQL text with PreparedStatement.getParameterMetaData() and then cached, because with drivers like those of PostgreSQL, MySQL or Sybase every call is a server round trip or a full statement describe. Reads and writes share the cache.
+ * <p>
+ * With {@link q2o#setDeriveParameterTypes(boolean)} the driver is not asked at all. The types are derived from the values' Java types or the attributes' declared types instead, see {@link #ofValue(Object)} and {@link #ofAttribute(AttributeInfo)}.
+ */
+final class ParameterTypes {
+   private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
+
+   /**
+    * A derived type if no SQL type corresponds to the Java type. Such parameters are set without type with PreparedStatement.setObject(int, Object), or with Types.NULL if null.
+    */
+   static final int UNKNOWN = Integer.MIN_VALUE;
+
+   private static final BoundedCache<String, int[]> typesCache = new BoundedCache<>(CACHE_SIZE);
+   private static final Map<Class<?>, Integer> javaToSqlType = new HashMap<>();
+
+   static {
+      javaToSqlType.put(String.class, Types.VARCHAR);
+      javaToSqlType.put(Integer.class, Types.INTEGER);
+      javaToSqlType.put(int.class, Types.INTEGER);
+      javaToSqlType.put(Long.class, Types.BIGINT);
+      javaToSqlType.put(long.class, Types.BIGINT);
+      javaToSqlType.put(Short.class, Types.SMALLINT);
+      javaToSqlType.put(short.class, Types.SMALLINT);
+      javaToSqlType.put(Byte.class, Types.TINYINT);
+      javaToSqlType.put(byte.class, Types.TINYINT);
+      javaToSqlType.put(Boolean.class, Types.BOOLEAN);
+      javaToSqlType.put(boolean.class, Types.BOOLEAN);
+      javaToSqlType.put(Double.class, Types.DOUBLE);
+      javaToSqlType.put(double.class, Types.DOUBLE);
+      javaToSqlType.put(Float.class, Types.REAL);
+      javaToSqlType.put(float.class, Types.REAL);
+      javaToSqlType.put(BigDecimal.class, Types.DECIMAL);
+      javaToSqlType.put(BigInteger.class, Types.DECIMAL);
+      javaToSqlType.put(java.sql.Date.class, Types.DATE);
+      javaToSqlType.put(Time.class, Types.TIME);
+      javaToSqlType.put(Timestamp.class, Types.TIMESTAMP);
+      javaToSqlType.put(java.util.Date.class, Types.TIMESTAMP);
+      javaToSqlType.put(byte[].class, Types.VARBINARY);
+   }
+
+   private ParameterTypes() {
+   }
+
+   static void clearCache() {
+      typesCache.clear();
+   }
+
+   static CacheStatistics getStatistics() {
+      return typesCache.getStatistics();
+   }
+
+   /**
+    * @param sql The statement's SQL text as the cache key. If null the types are fetched from the driver and not cached.
+    * @return Indexed by parameter index - 1. Must not be modified.
+    */
+   static int[] of(final PreparedStatement stmt, @Nullable final String sql) throws SQLException {
+      if (sql == null) {
+         return fromMetaData(stmt);
+      }
+      int[] types = typesCache.get(sql);
+      if (types != null) {
+         return types;
+      }
+      types = fromMetaData(stmt);
+      typesCache.put(sql, types);
+      return types;
+   }
+
+   private static int[] fromMetaData(final PreparedStatement stmt) throws SQLException {
+      final ParameterMetaData metaData = stmt.getParameterMetaData();
+      final int[] types = new int[metaData.getParameterCount()];
+      for (int parameterIndex = 1; parameterIndex <= types.length; parameterIndex++) {
+         types[parameterIndex - 1] = metaData.getParameterType(parameterIndex);
+      }
+      return types;
+   }
+
+   /**
+    * @return The SQL type corresponding to value's class, {@link #UNKNOWN} if null or there is none.
+    */
+   static int ofValue(@Nullable final Object value) {
+      if (value == null) {
+         return UNKNOWN;
+      }
+      if (value instanceof Blob) {
+         return Types.BLOB;
+      }
+      if (value instanceof Clob) {
+         return Types.CLOB;
+      }
+      return javaToSqlType.getOrDefault(value.getClass(), UNKNOWN);
+   }
+
+   /**
+    * @return The SQL type corresponding to the value {@link FieldValueToDatabaseType} gets from the attribute. {@link #UNKNOWN} for attributes with an AttributeConverter and for join columns, whose type is an entity class.
+    */
+   static int ofAttribute(final AttributeInfo fcInfo) {
+      if (fcInfo.getConverter() != null) {
+         return UNKNOWN;
+      }
+      if (fcInfo.isEnumerated()) {
+         return fcInfo.getEnumType() == EnumType.ORDINAL ? Types.INTEGER : Types.VARCHAR;
+      }
+      final Class<?> type = fcInfo.getType();
+      if (Blob.class.isAssignableFrom(type)) {
+         return Types.BLOB;
+      }
+      if (Clob.class.isAssignableFrom(type)) {
+         return Types.CLOB;
+      }
+      return javaToSqlType.getOrDefault(type, UNKNOWN);
+   }
+
+   /**
+    * Sets value with sqlType, or without type if sqlType is {@link #UNKNOWN}.
+    */
+   static void setObject(final PreparedStatement stmt, final int parameterIndex, @Nullable final Object value, final int sqlType) throws SQLException {
+      if (sqlType != UNKNOWN) {
+         stmt.setObject(parameterIndex, value, sqlType);
+      }
+      else if (value != null) {
+         stmt.setObject(parameterIndex, value);
+      }
+      else {
+         stmt.setNull(parameterIndex, Types.NULL);
+      }
+   }
+
+   static void setNull(final PreparedStatement stmt, final int parameterIndex, final int sqlType) throws SQLException {
+      stmt.setNull(parameterIndex, sqlType != UNKNOWN ? sqlType : Types.NULL);
+   }
+}
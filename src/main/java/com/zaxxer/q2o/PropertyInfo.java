@@ -20,6 +20,9 @@ class PropertyInfo extends AttributeInfo {
 
    PropertyInfo(Field field, Class clazz) {
       super(field, clazz);
+      if (toBeConsidered && propertyDescriptor.getWriteMethod() != null) {
+         accessor = AttributeAccessor.forProperty(readMethod, propertyDescriptor.getWriteMethod());
+      }
    }
 
    protected void extractFieldName(final Field field) {
@@ -86,6 +89,21 @@ class PropertyInfo extends AttributeInfo {
       return readMethod.getDeclaredAnnotation(GeneratedValue.class);
    }
 
+   @Override
+   protected SequenceGenerator extractSequenceGeneratorAnnotation() {
+      return readMethod.getDeclaredAnnotation(SequenceGenerator.class);
+   }
+
+   @Override
+   protected TableGenerator extractTableGeneratorAnnotation() {
+      return readMethod.getDeclaredAnnotation(TableGenerator.class);
+   }
+
+   @Override
+   protected Version extractVersionAnnotation() {
+      return readMethod.getDeclaredAnnotation(Version.class);
+   }
+
    @Override
    protected Id extractIdAnnotation() {
       return readMethod.getDeclaredAnnotation(Id.class);
@@ -105,11 +123,20 @@ class PropertyInfo extends AttributeInfo {
     * @return With non-JoinColumn field its value, else the value of its associated object's primary key.
     */
    Object getValue(final Object target) throws IllegalAccessException, InvocationTargetException {
+      final Object obj;
+      try {
+         obj = accessor.get(target);
+      }
+      catch (Error e) {
+         throw e;
+      }
+      catch (Throwable t) {
+         throw new InvocationTargetException(t);
+      }
       if (!isJoinColumn) {
-         return readMethod.invoke(target);
+         return obj;
       }
       else {
-         Object obj = readMethod.invoke(target);
          return idValueFromEntity(obj);
       }
    }
@@ -118,10 +145,10 @@ class PropertyInfo extends AttributeInfo {
       try {
          if (!isJoinColumn) {
             try {
-               propertyDescriptor.getWriteMethod().invoke(target, value);
+               accessor.set(target, value);
             }
-            catch (Exception e) {
-               throw new RuntimeException("getWriteMethod().invoke() failed: target=" + target + " value=" + value + "\nPropertyInfo=" + this.toString(), e);
+            catch (Throwable e) {
+               throw new RuntimeException("setter invocation failed: target=" + target + " value=" + value + "\nPropertyInfo=" + this.toString(), e);
             }
 //            if (!this.field.getClass().isPrimitive() || value != null) {
 //            }
@@ -134,7 +161,15 @@ class PropertyInfo extends AttributeInfo {
             else {
                obj = value;
             }
-            propertyDescriptor.getWriteMethod().invoke(target, obj);
+            try {
+               accessor.set(target, obj);
+            }
+            catch (Error | IllegalArgumentException e) {
+               throw e;
+            }
+            catch (Throwable t) {
+               throw new InvocationTargetException(t);
+            }
          }
       }
       catch (InvocationTargetException | InstantiationException e) {
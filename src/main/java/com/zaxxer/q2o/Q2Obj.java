@@ -380,18 +380,14 @@ public final class Q2Obj {
     * @return The object or object graph
     */
    public static <T> T fromSelect(Class<T> clazz, String select, Object... args) {
-      return SqlClosure.sqlExecute(connection -> {
-         PreparedStatement stmnt = connection.prepareStatement(select);
-         return fromStatement(stmnt, clazz, args);
-      });
+      return SqlClosure.sqlExecute(connection -> OrmReader.selectToObject(connection, select, clazz, args));
    }
 
    /**
     * @see #fromSelect(Class, String, Object...)
     */
    public static <T> T fromSelect(Connection connection, Class<T> clazz, String select, Object... args) throws SQLException {
-      PreparedStatement stmnt = connection.prepareStatement(select);
-      return fromStatement(stmnt, clazz, args);
+      return OrmReader.selectToObject(connection, select, clazz, args);
    }
 
    public static int deleteByWhereClause(Class<?> clazz, String whereClause, Object... args) {
@@ -4,7 +4,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Note the differences between methods taking a connection, PreparedStatement or ResultSet and those that do not. See {@link Q2Obj}.
@@ -93,18 +97,131 @@ public class Q2ObjList {
     * @see Q2Obj#fromSelect(Class, String, Object...)
     */
    public static <T> List<T> fromSelect(Class<T> clazz, String select, Object... args) {
-      return SqlClosure.sqlExecute(connection -> {
-         PreparedStatement stmnt = connection.prepareStatement(select);
-         return fromStatement(stmnt, clazz, args);
-      });
+      return SqlClosure.sqlExecute(connection -> OrmReader.selectToList(connection, select, clazz, args));
    }
 
    /**
     * @see Q2Obj#fromSelect(Class, String, Object...)
     */
    public static <T> List<T> fromSelect(Connection connection, Class<T> clazz, String select, Object... args) throws SQLException {
-      PreparedStatement stmnt = connection.prepareStatement(select);
-      return fromStatement(stmnt, clazz, args);
+      return OrmReader.selectToList(connection, select, clazz, args);
+   }
+
+   /**
+    * Like {@link #fromClause(Connection, Class, String, Object...)}, but objects are created lazily one row at a time while iterating, so huge result sets can be processed with bounded memory. The statement's fetch size is set to {@link q2o#setFetchSize(int)}.
+    * <p>
+    * <b>The iterator must be closed</b> unless it is iterated to its end. The connection is not closed.
+    *
+    * @return an iterator over populated objects
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> CloseableIterator<T> iterateFromClause(Connection connection, Class<T> clazz, String clause, Object... args) throws SQLException {
+      return OrmReader.iteratorFromClause(connection, clazz, clause, args);
+   }
+
+   /**
+    * See {@link #iterateFromClause(Connection, Class, String, Object...)}. The connection is acquired for the iterator only and released when it is closed or exhausted.
+    */
+   public static <T> CloseableIterator<T> iterateFromClause(Class<T> clazz, String clause, Object... args) {
+      return SqlClosure.sqlExecuteOpen(c -> OrmReader.iteratorFromClause(c, clazz, clause, args));
+   }
+
+   /**
+    * See {@link #iterateFromClause(Connection, Class, String, Object...)} and {@link Q2Obj#fromSelect(Class, String, Object...)}.
+    */
+   public static <T> CloseableIterator<T> iterateFromSelect(Connection connection, Class<T> clazz, String select, Object... args) throws SQLException {
+      return OrmReader.selectToIterator(connection, select, clazz, args);
+   }
+
+   /**
+    * See {@link #iterateFromClause(Class, String, Object...)} and {@link Q2Obj#fromSelect(Class, String, Object...)}.
+    */
+   public static <T> CloseableIterator<T> iterateFromSelect(Class<T> clazz, String select, Object... args) {
+      return SqlClosure.sqlExecuteOpen(c -> OrmReader.selectToIterator(c, select, clazz, args));
+   }
+
+   /**
+    * See {@link #iterateFromClause(Connection, Class, String, Object...)}. <b>The PreparedStatement will be closed</b> with the iterator.
+    */
+   public static <T> CloseableIterator<T> iterateFromStatement(PreparedStatement stmt, Class<T> clazz, Object... args) throws SQLException {
+      return OrmReader.statementToIterator(stmt, clazz, null, args);
+   }
+
+   /**
+    * Like {@link #iterateFromClause(Connection, Class, String, Object...)}, but as a {@link Stream}. <b>The stream must be closed</b> (e. g. within try-with-resources) unless it is consumed to its end.
+    *
+    * @throws SQLException if a {@link SQLException} occurs when executing the query
+    */
+   public static <T> Stream<T> streamFromClause(Connection connection, Class<T> clazz, String clause, Object... args) throws SQLException {
+      return OrmReader.iteratorFromClause(connection, clazz, clause, args).stream();
+   }
+
+   /**
+    * See {@link #streamFromClause(Connection, Class, String, Object...)} and {@link #iterateFromClause(Class, String, Object...)}.
+    */
+   public static <T> Stream<T> streamFromClause(Class<T> clazz, String clause, Object... args) {
+      return SqlClosure.sqlExecuteOpen(c -> OrmReader.iteratorFromClause(c, clazz, clause, args)).stream();
+   }
+
+   /**
+    * See {@link #streamFromClause(Connection, Class, String, Object...)} and {@link Q2Obj#fromSelect(Class, String, Object...)}.
+    */
+   public static <T> Stream<T> streamFromSelect(Connection connection, Class<T> clazz, String select, Object... args) throws SQLException {
+      return OrmReader.selectToIterator(connection, select, clazz, args).stream();
+   }
+
+   /**
+    * See {@link #streamFromClause(Class, String, Object...)} and {@link Q2Obj#fromSelect(Class, String, Object...)}.
+    */
+   public static <T> Stream<T> streamFromSelect(Class<T> clazz, String select, Object... args) {
+      return SqlClosure.sqlExecuteOpen(c -> OrmReader.selectToIterator(c, select, clazz, args)).stream();
+   }
+
+   /**
+    * See {@link #streamFromClause(Connection, Class, String, Object...)}. <b>The PreparedStatement will be closed</b> with the stream.
+    */
+   public static <T> Stream<T> streamFromStatement(PreparedStatement stmt, Class<T> clazz, Object... args) throws SQLException {
+      return OrmReader.statementToIterator(stmt, clazz, null, args).stream();
+   }
+
+   /**
+    * Like {@link #fromClause(Connection, Class, String, Object...)}, but every object is handed to consumer as soon as its row is read, instead of collecting all objects in a list. The statement's fetch size is set to {@link q2o#setFetchSize(int)}.
+    *
+    * @param consumer called once per row
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> void forEach(Connection connection, Class<T> clazz, String clause, Consumer<? super T> consumer, Object... args) throws SQLException {
+      OrmReader.forEachFromClause(connection, clazz, clause, Collections.emptySet(), false, consumer, args);
+   }
+
+   /**
+    * See {@link #forEach(Connection, Class, String, Consumer, Object...)}.
+    */
+   public static <T> void forEach(Class<T> clazz, String clause, Consumer<? super T> consumer, Object... args) {
+      SqlClosure.sqlExecute(c -> {
+         OrmReader.forEachFromClause(c, clazz, clause, Collections.emptySet(), false, consumer, args);
+         return null;
+      });
+   }
+
+   /**
+    * See {@link #forEach(Connection, Class, String, Consumer, Object...)}.
+    *
+    * @param ignoredColumns the columns in the result set to ignore, as with {@link Q2Obj#fromResultSet(ResultSet, Object, Set)}.
+    * @param reuseInstance "Flyweight mode": if true, a single instance is populated anew for every row, so that nearly nothing is allocated per row. The consumer must not hold on to it beyond its call. Fields of ignored columns are not reset between rows.
+    */
+   public static <T> void forEach(Connection connection, Class<T> clazz, String clause, Set<String> ignoredColumns, boolean reuseInstance, Consumer<? super T> consumer, Object... args) throws SQLException {
+      OrmReader.forEachFromClause(connection, clazz, clause, ignoredColumns, reuseInstance, consumer, args);
+   }
+
+   /**
+    * See {@link #forEach(Connection, Class, String, Set, boolean, Consumer, Object...)}.
+    */
+   public static <T> void forEach(Class<T> clazz, String clause, Set<String> ignoredColumns, boolean reuseInstance, Consumer<? super T> consumer, Object... args) {
+      SqlClosure.sqlExecute(c -> {
+         OrmReader.forEachFromClause(c, clazz, clause, ignoredColumns, reuseInstance, consumer, args);
+         return null;
+      });
    }
 
    public static <T> void insertBatched(Iterable<T> iterable) {
@@ -134,7 +251,7 @@ public class Q2ObjList {
    }
 
    /**
-    * Insert a collection of objects using JDBC batching.
+    * Insert a collection of objects using JDBC batching, in chunks of {@link q2o#setBatchSize(int)} rows. Or with the database's bulk load command, see {@link q2o#setBulkLoad(boolean)}, which does not set generated ids. Else generated ids are set if the driver returns a key for every row of a batch, and a warning is logged if not.
     *
     * @param connection a SQL connection
     * @param iterable a list (or other {@link Iterable} collection) of annotated objects to insert
@@ -145,6 +262,60 @@ public class Q2ObjList {
       OrmWriter.insertListBatched(connection, iterable);
    }
 
+   /**
+    * Update a collection of objects of the same class by their ids using JDBC batching, in chunks of {@link q2o#setBatchSize(int)} rows. A @Version attribute is checked by the update count of each row. If the driver does not report them, e.g. Oracle before 12c, a RuntimeException is thrown after the batch was executed, and later calls on connections of the same class update versioned objects one by one.
+    *
+    * @param connection a SQL connection
+    * @param iterable a list (or other {@link Iterable} collection) of annotated objects to update
+    * @param <T> the class template
+    * @return the number of updated rows per chunk, or Statement.SUCCESS_NO_INFO for a chunk if the driver does not report it
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> int[] updateBatched(Connection connection, Iterable<T> iterable) throws SQLException {
+      return OrmWriter.updateListBatched(connection, iterable);
+   }
+
+   /**
+    * @see #updateBatched(Connection, Iterable)
+    */
+   public static <T> int[] updateBatched(Iterable<T> iterable) {
+      return SqlClosure.sqlExecute(connection -> OrmWriter.updateListBatched(connection, iterable));
+   }
+
+   /**
+    * Delete a collection of objects of the same class by their ids using JDBC batching, in chunks of {@link q2o#setBatchSize(int)} rows. Unlike {@link #delete(Connection, Class, List)} the ids are statement parameters, so the statement is the same for any number of objects.
+    *
+    * @return the number of deleted rows per chunk, or Statement.SUCCESS_NO_INFO for a chunk if the driver does not report it
+    * @see #updateBatched(Connection, Iterable)
+    */
+   public static <T> int[] deleteBatched(Connection connection, Iterable<T> iterable) throws SQLException {
+      return OrmWriter.deleteListBatched(connection, iterable);
+   }
+
+   /**
+    * @see #deleteBatched(Connection, Iterable)
+    */
+   public static <T> int[] deleteBatched(Iterable<T> iterable) {
+      return SqlClosure.sqlExecute(connection -> OrmWriter.deleteListBatched(connection, iterable));
+   }
+
+   /**
+    * Insert a collection of objects of the same class, or update the rows with the same id if they already exist, using JDBC batching in chunks of {@link q2o#setBatchSize(int)} rows. Supported on H2 (MERGE), PostgreSQL (INSERT ... ON CONFLICT) and MySQL/MariaDB (INSERT ... ON DUPLICATE KEY UPDATE). The ids must be set, also generated ones. Objects with a @Version attribute are rejected with a RuntimeException, as an upsert can neither check nor increment it.
+    *
+    * @return the number of affected rows per chunk as reported by the driver (MySQL counts an updated row as 2), or Statement.SUCCESS_NO_INFO for a chunk if it does not report it
+    * @see #updateBatched(Connection, Iterable)
+    */
+   public static <T> int[] upsertBatched(Connection connection, Iterable<T> iterable) throws SQLException {
+      return OrmWriter.upsertListBatched(connection, iterable);
+   }
+
+   /**
+    * @see #upsertBatched(Connection, Iterable)
+    */
+   public static <T> int[] upsertBatched(Iterable<T> iterable) {
+      return SqlClosure.sqlExecute(connection -> OrmWriter.upsertListBatched(connection, iterable));
+   }
+
    public static int deleteByWhereClause(Class<?> clazz, String whereClause, Object... args) {
       return SqlClosure.sqlExecute(connection -> OrmWriter.deleteByWhereClause(connection, clazz, whereClause, args));
    }
@@ -158,7 +329,7 @@ public class Q2ObjList {
    }
 
    /**
-    * Deletes all objects by its id(s) in a single bulk operation.
+    * Deletes all objects by its id(s) in a single bulk operation, or one per {@link q2o#setMaxInClauseParameters(int)} ids.
     */
    public static <T> int delete(Connection connection, Class<T> clazz, List<T> objects) throws SQLException {
       return OrmWriter.deleteObjects(connection, clazz, objects);
@@ -192,4 +363,25 @@ public class Q2ObjList {
       T obj = objects.get(0);
       return OrmWriter.deleteObjects(connection, (Class<T>) obj.getClass(), objects);
    }
+
+   /**
+    * Loads the entities related to objects by propertyName in one query per {@link q2o#setMaxInClauseParameters(int)} ids, instead of one per object, and sets them on the objects. Supports {@literal @}ManyToOne and {@literal @}OneToOne properties with {@literal @}JoinColumn referencing the target's id, and {@literal @}OneToMany properties with {@literal @}JoinColumn in the target's table. Properties with mappedBy are not supported.
+    *
+    * @param objects entities of the same class, already persisted.
+    * @param propertyName the field's name.
+    * @throws IllegalArgumentException if propertyName is not a supported relation.
+    */
+   public static <T> void fetchRelations(Connection connection, List<T> objects, String propertyName) throws SQLException {
+      RelationFetcher.fetch(connection, objects, propertyName);
+   }
+
+   /**
+    * @see #fetchRelations(Connection, List, String)
+    */
+   public static <T> void fetchRelations(List<T> objects, String propertyName) {
+      SqlClosure.sqlExecute(connection -> {
+         RelationFetcher.fetch(connection, objects, propertyName);
+         return null;
+      });
+   }
 }
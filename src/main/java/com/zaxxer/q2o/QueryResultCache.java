@@ -0,0 +1,176 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Results of {@link Q2ObjList#fromClause(Class, String, Object...)}, {@link Q2ObjList#fromRawClause(Class, String, Object...)} and {@link Q2ObjList#fromSelect(Class, String, Object...)} by (SQL, arguments, class), see {@link q2o#setQueryCacheSize(int)}. Results are copied on put and get like in {@link SecondLevelCache}.
+ * <p>
+ * An entry is invalidated when q2o writes to a table whose name appears in its SQL, and once more after the writing transaction completed, see {@link CacheGuard}. Which tables a query reads is not parsed: every identifier in the SQL counts as table name, so writes may invalidate more entries than necessary, but not fewer. Only results read on connections in auto-commit mode are put. Changes by other processes are not seen until the entry expires.
+ */
+final class QueryResultCache {
+
+   private static final Pattern IDENTIFIER = Pattern.compile("[\\p{L}_][\\p{L}\\p{N}_$#@]*");
+   private static final Pattern WRITTEN_TABLE = Pattern.compile(
+      "^\\s*(?:INSERT\\s+INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE|DELETE\\s+FROM|DELETE|TRUNCATE\\s+TABLE|TRUNCATE)\\s+([\\w.$#@\"`\\[\\]]+)",
+      Pattern.CASE_INSENSITIVE);
+
+   private static volatile BoundedCache<List<Object>, Entry> entries = new BoundedCache<>(Math.max(q2o.getQueryCacheSize(), 1));
+   private static final LongAdder hits = new LongAdder();
+   private static final LongAdder misses = new LongAdder();
+   /**
+    * Of all tables, so a result read while a write happened is not put.
+    */
+   private static final CacheGuard guard = new CacheGuard();
+
+   private QueryResultCache() {
+   }
+
+   static boolean isActive() {
+      return q2o.getQueryCacheSize() > 0;
+   }
+
+   /**
+    * @return false if connection must neither read from nor put to the cache: it is not in auto-commit mode, so it may read values of its own uncommitted writes, or values other threads must not see.
+    */
+   static boolean isActive(final Connection connection) {
+      return isActive() && CacheGuard.mayPut(connection);
+   }
+
+   static List<Object> key(final String sql, final Class<?> clazz, final Object[] args) {
+      return Arrays.asList(sql, clazz, Arrays.asList(args.clone()));
+   }
+
+   /**
+    * @return Copies of the cached objects in a new list. null if not cached or expired.
+    */
+   @Nullable
+   static <T> List<T> get(final List<Object> key) {
+      final BoundedCache<List<Object>, Entry> entries = QueryResultCache.entries;
+      final Entry entry = entries.get(key);
+      if (entry == null || System.currentTimeMillis() > entry.expiresAt) {
+         if (entry != null) {
+            entries.remove(key, entry);
+         }
+         misses.increment();
+         return null;
+      }
+      hits.increment();
+      @SuppressWarnings("unchecked")
+      final List<T> copy = (List<T>) copyOf(entry.result);
+      return copy;
+   }
+
+   /**
+    * @return The generation to pass to {@link #put(List, String, List, long)}. To be taken before executing the query.
+    */
+   static long generation() {
+      return guard.generation();
+   }
+
+   /**
+    * Puts nothing if a table was written to since the query was executed. Takes the entry out again if a write happened while it was put, as that write's invalidation may have run before.
+    */
+   static void put(final List<Object> key, final String sql, final List<?> result, final long generationBefore) {
+      if (!guard.isUnchangedSince(generationBefore) || !isActive()) {
+         return;
+      }
+      final BoundedCache<List<Object>, Entry> entries = QueryResultCache.entries;
+      final Entry entry = new Entry(copyOf(result), identifiers(sql), System.currentTimeMillis() + q2o.getQueryCacheTtlMillis());
+      entries.put(key, entry);
+      if (!guard.isUnchangedSince(generationBefore) || !isActive()) {
+         entries.remove(key, entry);
+      }
+   }
+
+   /**
+    * To be called after the writing statement was executed.
+    *
+    * @param tableName As in @Table, optionally with schema and delimiters.
+    */
+   static void invalidateTable(final Connection connection, final String tableName) {
+      if (!isActive()) {
+         return;
+      }
+      final String name = normalize(tableName);
+      guard.written(connection, () -> entries.removeIf(entry -> entry.tables.contains(name)));
+   }
+
+   /**
+    * Invalidates the entries of the table written by an INSERT, UPDATE, DELETE, MERGE or TRUNCATE statement. Any other statement, e.g. DDL or a procedure call, invalidates all entries.
+    */
+   static void invalidateStatement(final Connection connection, final String sql) {
+      if (!isActive()) {
+         return;
+      }
+      final Matcher matcher = WRITTEN_TABLE.matcher(sql);
+      if (matcher.find()) {
+         invalidateTable(connection, matcher.group(1));
+      }
+      else {
+         guard.written(connection, () -> entries.removeIf(entry -> true));
+      }
+   }
+
+   /**
+    * Discards all entries, and bounds the cache to {@link q2o#getQueryCacheSize()} results.
+    */
+   static void resize() {
+      guard.written(() -> entries = new BoundedCache<>(Math.max(q2o.getQueryCacheSize(), 1)));
+   }
+
+   static CacheStatistics getStatistics() {
+      return new CacheStatistics(hits.sum(), misses.sum(), entries.size());
+   }
+
+   static void clear() {
+      resize();
+   }
+
+   static void resetStatistics() {
+      hits.reset();
+      misses.reset();
+   }
+
+   private static List<Object> copyOf(final List<?> objects) {
+      final List<Object> copy = new ArrayList<>(objects.size());
+      for (final Object object : objects) {
+         copy.add(object != null ? ShallowCopy.of(object) : null);
+      }
+      return copy;
+   }
+
+   private static Set<String> identifiers(final String sql) {
+      final Set<String> identifiers = new HashSet<>();
+      final Matcher matcher = IDENTIFIER.matcher(sql);
+      while (matcher.find()) {
+         identifiers.add(matcher.group().toUpperCase(Locale.ROOT));
+      }
+      return identifiers;
+   }
+
+   /**
+    * Without schema and delimiters, upper case.
+    */
+   private static String normalize(final String tableName) {
+      final String name = tableName.substring(tableName.lastIndexOf('.') + 1);
+      return name.replaceAll("[\"`\\[\\]]", "").toUpperCase(Locale.ROOT);
+   }
+
+   private static final class Entry {
+      final List<Object> result;
+      final Set<String> tables;
+      final long expiresAt;
+
+      Entry(final List<Object> result, final Set<String> tables, final long expiresAt) {
+         this.result = result;
+         this.tables = tables;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
@@ -0,0 +1,150 @@
+package com.zaxxer.q2o;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Loads a relation of many entities at once, see {@link Q2ObjList#fetchRelations(Connection, List, String)}. One query per chunk of {@link IdsInClause}, instead of one per entity.
+ */
+final class RelationFetcher {
+
+   private RelationFetcher() {
+   }
+
+   /**
+    * @param propertyName A {@literal @}ManyToOne or {@literal @}OneToOne property with {@literal @}JoinColumn referencing the target's id, or a {@literal @}OneToMany property with {@literal @}JoinColumn in the target's table referencing the entity's id.
+    */
+   static <T> void fetch(final Connection connection, final List<T> entities, final String propertyName) throws SQLException {
+      if (entities.isEmpty()) {
+         return;
+      }
+      final Introspected introspected = Introspected.getInstance(entities.get(0).getClass());
+      final AttributeInfo relation = introspected.getFieldColumnInfoForProperty(propertyName);
+      if (relation == null || !relation.isJoinFieldWithSecondTable() || relation.getJoinColumnName() == null) {
+         throw new IllegalArgumentException(introspected.getClazz().getName() + "." + propertyName + " is no relation annotated with @JoinColumn");
+      }
+      final Introspected target = Introspected.getInstance(relation.getActualType());
+      if (relation.isOneToManyAnnotated) {
+         fetchToMany(connection, introspected, entities, relation, target);
+      }
+      else {
+         fetchToOne(connection, introspected, entities, relation, target);
+      }
+   }
+
+   /**
+    * Reads the foreign keys from the entities' table, then loads the distinct targets.
+    */
+   private static <T> void fetchToOne(final Connection connection, final Introspected introspected, final List<T> entities, final AttributeInfo relation, final Introspected target) throws SQLException {
+      final String[] idColumnNames = introspected.getIdColumnNames();
+      final Map<List<Object>, Object> foreignKeys = new HashMap<>();
+      for (final IdsInClause inClause : IdsInClause.forObjects(connection, introspected, entities)) {
+         final String sql = "SELECT " + String.join(",", idColumnNames) + "," + relation.getJoinColumnName()
+            + " FROM " + introspected.getDelimitedTableName() + " WHERE " + inClause.getCondition();
+         try (final PreparedStatement stmt = connection.prepareStatement(sql);
+              final ResultSet resultSet = OrmReader.statementToResultSet(stmt, sql, inClause.getArgs())) {
+            while (resultSet.next()) {
+               final Object[] ids = new Object[idColumnNames.length];
+               for (int i = 0; i < ids.length; i++) {
+                  ids[i] = resultSet.getObject(i + 1);
+               }
+               final Object foreignKey = resultSet.getObject(ids.length + 1);
+               if (foreignKey != null) {
+                  foreignKeys.put(key(ids), key(foreignKey));
+               }
+            }
+         }
+      }
+
+      final Map<Object, Object> targetsById = new HashMap<>();
+      final Set<Object> distinctKeys = new LinkedHashSet<>(foreignKeys.values());
+      if (!distinctKeys.isEmpty()) {
+         final String[] targetIdColumnNames = singleIdColumn(target);
+         final List<Object[]> targetIds = new ArrayList<>(distinctKeys.size());
+         for (final Object foreignKey : distinctKeys) {
+            targetIds.add(new Object[]{foreignKey});
+         }
+         for (final IdsInClause inClause : IdsInClause.forIds(connection, targetIdColumnNames, targetIds)) {
+            for (final Object targetEntity : OrmReader.listFromClause(connection, target.getClazz(), inClause.getCondition(), inClause.getArgs())) {
+               targetsById.put(key(target.getActualIds(targetEntity)[0]), targetEntity);
+            }
+         }
+      }
+
+      try {
+         for (final T entity : entities) {
+            relation.setValue(entity, targetsById.get(foreignKeys.get(key(introspected.getActualIds(entity)))));
+         }
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Loads the targets by their foreign key column, selected additionally, and collects them per entity.
+    */
+   private static <T> void fetchToMany(final Connection connection, final Introspected introspected, final List<T> entities, final AttributeInfo relation, final Introspected target) throws SQLException {
+      singleIdColumn(introspected);
+      final List<Object[]> ids = new ArrayList<>(entities.size());
+      for (final T entity : entities) {
+         ids.add(introspected.getActualIds(entity));
+      }
+      final Map<Object, List<Object>> targetsByForeignKey = new HashMap<>();
+      final String foreignKeyColumn = relation.getJoinColumnName();
+      @SuppressWarnings("unchecked")
+      final Class<Object> targetClass = (Class<Object>) target.getClazz();
+      for (final IdsInClause inClause : IdsInClause.forIds(connection, new String[]{foreignKeyColumn}, ids)) {
+         final String sql = "SELECT " + OrmBase.getColumnsCsv(targetClass) + "," + foreignKeyColumn
+            + " FROM " + target.getDelimitedTableName() + " WHERE " + inClause.getCondition();
+         try (final PreparedStatement stmt = connection.prepareStatement(sql);
+              final ResultSet resultSet = OrmReader.statementToResultSet(stmt, sql, inClause.getArgs())) {
+            final int foreignKeyIndex = resultSet.getMetaData().getColumnCount();
+            final ResultSetToObjectProcessor<Object> processor = new ResultSetToObjectProcessor<>(resultSet, Collections.emptySet(), sql);
+            while (resultSet.next()) {
+               final Object targetEntity = processor.processCurrentRow(targetClass);
+               targetsByForeignKey.computeIfAbsent(key(resultSet.getObject(foreignKeyIndex)), fk -> new ArrayList<>()).add(targetEntity);
+            }
+         }
+      }
+
+      try {
+         for (final T entity : entities) {
+            final List<Object> targets = targetsByForeignKey.get(key(introspected.getActualIds(entity)[0]));
+            relation.setValue(entity, targets != null ? new ArrayList<>(targets) : new ArrayList<>());
+         }
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static String[] singleIdColumn(final Introspected introspected) {
+      final String[] idColumnNames = introspected.getIdColumnNames();
+      if (idColumnNames.length != 1) {
+         throw new IllegalArgumentException(introspected.getClazz().getName() + " must have a single id column to fetch relations by");
+      }
+      return idColumnNames;
+   }
+
+   /**
+    * Makes ids comparable regardless of the JDBC driver's choice of integer type.
+    */
+   private static Object key(final Object id) {
+      if (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte) {
+         return ((Number) id).longValue();
+      }
+      return id;
+   }
+
+   private static List<Object> key(final Object[] ids) {
+      final List<Object> keys = new ArrayList<>(ids.length);
+      for (final Object id : ids) {
+         keys.add(key(id));
+      }
+      return keys;
+   }
+}
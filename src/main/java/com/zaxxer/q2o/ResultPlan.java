@@ -0,0 +1,204 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Fixed column index to {@link AttributeInfo} assignment for a result set of a certain shape. It is resolved on first sight of an (entity class, result set columns) pair and reused for every row and every query with the same shape. So ResultSetMetaData and {@link Introspected#getFieldColumnInfo(String)} are no longer consulted per row and column.
+ * <p>
+ * Queries are keyed by their SQL text if it is known, so that the column and table names need not be collected into a key to find the plan. As the columns of the same SQL text may change, e.g. of a "SELECT *" after the table was rebuilt, or if it runs on another database, a plan found is only used if its column names are those of the result set.
+ *
+ * @see ResultSetToObjectProcessor
+ */
+final class ResultPlan {
+   private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
+
+   private static final BoundedCache<List<Object>, ResultPlan> planCache = new BoundedCache<>(CACHE_SIZE);
+
+   private final int columnCount;
+   /**
+    * Indexed by JDBC column index, so index 0 is unused.
+    */
+   private final String[] columnNames;
+   private final Set<String> ignoredColumns;
+   /**
+    * Indexed by JDBC column index, so index 0 is unused. An element is null if the column is ignored or there is no corresponding field in the entity.
+    */
+   private final AttributeInfo[] fcInfos;
+   /**
+    * Indexed by JDBC column index. Input for the conversion in {@link DatabaseValueToFieldType}.
+    */
+   private final String[] columnTypeNames;
+   /**
+    * Indexed by JDBC column index. int.class, long.class or double.class if the column can be read with ResultSet.getInt() etc. and written by {@link AttributeInfo#setInt(Object, int)} etc. without boxing, null otherwise.
+    */
+   private final Class<?>[] primitiveTypes;
+   /**
+    * false if there is any column of a joined table. Such result sets are processed column by column.
+    */
+   private final boolean isSingleTable;
+   /**
+    * Null if {@link #isSingleTable}.
+    */
+   @Nullable
+   private final JoinPlan joinPlan;
+
+   private ResultPlan(final ResultSetMetaData metaData, final Introspected introspected, final Set<String> ignoredColumns, final int columnCount) throws SQLException {
+      this.columnCount = columnCount;
+      this.columnNames = new String[columnCount + 1];
+      for (int colIdx = 1; colIdx <= columnCount; colIdx++) {
+         columnNames[colIdx] = metaData.getColumnName(colIdx);
+      }
+      this.ignoredColumns = ignoredColumns.isEmpty() ? Collections.emptySet() : new HashSet<>(ignoredColumns);
+      this.fcInfos = new AttributeInfo[columnCount + 1];
+      this.columnTypeNames = new String[columnCount + 1];
+      this.primitiveTypes = new Class<?>[columnCount + 1];
+      boolean singleTable = true;
+      for (int colIdx = 1; colIdx <= columnCount; colIdx++) {
+         final String columnName = columnNames[colIdx];
+         if (OrmBase.isIgnoredColumn(ignoredColumns, columnName)) {
+            continue;
+         }
+         final String tableName = Optional.ofNullable(metaData.getTableName(colIdx)).orElse("");
+         // tableName is empty when aliases as in "SELECT (t.string_from_number + 1) as string_from_number " were used.
+         if (!tableName.isEmpty() && !tableName.equalsIgnoreCase(introspected.getTableName())) {
+            singleTable = false;
+            break;
+         }
+         AttributeInfo fcInfo = null;
+         if (!tableName.isEmpty()) {
+            fcInfo = introspected.getFieldColumnInfo(tableName, columnName);
+         }
+         fcInfos[colIdx] = fcInfo != null ? fcInfo : introspected.getFieldColumnInfo(columnName);
+         if (fcInfos[colIdx] != null) {
+            columnTypeNames[colIdx] = metaData.getColumnTypeName(colIdx);
+            primitiveTypes[colIdx] = primitiveTypeOf(fcInfos[colIdx], metaData.getColumnType(colIdx));
+         }
+      }
+      this.isSingleTable = singleTable;
+      this.joinPlan = singleTable ? null : new JoinPlan(metaData, introspected, ignoredColumns, columnCount);
+   }
+
+   /**
+    * @param sqlType as {@link ResultSetMetaData#getColumnType(int)}
+    * @return the attribute's primitive type, if the column's values need no conversion to it.
+    */
+   @Nullable
+   private static Class<?> primitiveTypeOf(final AttributeInfo fcInfo, final int sqlType) {
+      if (!fcInfo.hasPrimitiveAccessors()) {
+         return null;
+      }
+      final Class<?> type = fcInfo.getType();
+      if (type == int.class && sqlType == Types.INTEGER
+         || type == long.class && sqlType == Types.BIGINT
+         || type == double.class && (sqlType == Types.DOUBLE || sqlType == Types.FLOAT)) {
+         return type;
+      }
+      return null;
+   }
+
+   /**
+    * @param sql The statement's SQL text if known and stable for a given result set shape (as is with SQL generated by q2o), null otherwise.
+    * @return the plan for the result set's shape. Newly resolved only on first sight of the shape.
+    */
+   static ResultPlan getInstance(@Nullable final String sql, final ResultSetMetaData metaData, final Introspected introspected, final Set<String> ignoredColumns) throws SQLException {
+      final int columnCount = metaData.getColumnCount();
+      // The caller's set is only looked up with, the key put holds the plan's copy.
+      ResultPlan plan = planCache.get(key(sql, metaData, introspected, ignoredColumns, columnCount));
+      if (plan != null && plan.matches(metaData, columnCount)) {
+         return plan;
+      }
+      plan = new ResultPlan(metaData, introspected, ignoredColumns, columnCount);
+      planCache.put(key(sql, metaData, introspected, plan.ignoredColumns, columnCount), plan);
+      return plan;
+   }
+
+   private static List<Object> key(@Nullable final String sql, final ResultSetMetaData metaData, final Introspected introspected, final Set<String> ignoredColumns, final int columnCount) throws SQLException {
+      if (sql != null) {
+         return Arrays.asList(introspected, ignoredColumns, sql);
+      }
+      final Object[] shape = new Object[2 * columnCount + 2];
+      shape[0] = introspected;
+      shape[1] = ignoredColumns;
+      for (int colIdx = 1; colIdx <= columnCount; colIdx++) {
+         shape[2 * colIdx] = metaData.getColumnName(colIdx);
+         shape[2 * colIdx + 1] = metaData.getTableName(colIdx);
+      }
+      return Arrays.asList(shape);
+   }
+
+   static ResultPlan getInstance(final ResultSetMetaData metaData, final Introspected introspected, final Set<String> ignoredColumns) throws SQLException {
+      return getInstance(null, metaData, introspected, ignoredColumns);
+   }
+
+   /**
+    * @return false if the columns differ, e.g. as the table was altered since the plan was resolved ("SELECT *").
+    */
+   private boolean matches(final ResultSetMetaData metaData, final int columnCount) throws SQLException {
+      if (this.columnCount != columnCount) {
+         return false;
+      }
+      for (int colIdx = 1; colIdx <= columnCount; colIdx++) {
+         if (!Objects.equals(columnNames[colIdx], metaData.getColumnName(colIdx))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   static void clearCache() {
+      planCache.clear();
+   }
+
+   static CacheStatistics getStatistics() {
+      return planCache.getStatistics();
+   }
+
+   int getColumnCount() {
+      return columnCount;
+   }
+
+   /**
+    * @param colIdx JDBC column index
+    * @return null if the column is to be skipped.
+    */
+   AttributeInfo getFieldColumnInfo(final int colIdx) {
+      return fcInfos[colIdx];
+   }
+
+   /**
+    * @param colIdx JDBC column index
+    * @return as {@link ResultSetMetaData#getColumnTypeName(int)}. null if the column is to be skipped.
+    */
+   String getColumnTypeName(final int colIdx) {
+      return columnTypeNames[colIdx];
+   }
+
+   /**
+    * @param colIdx JDBC column index
+    * @return int.class, long.class or double.class if the column is to be mapped without boxing, else null.
+    */
+   @Nullable
+   Class<?> getPrimitiveType(final int colIdx) {
+      return primitiveTypes[colIdx];
+   }
+
+   /**
+    * @return true if all columns belong to the target entity's table, so a row can be mapped by the fixed plan.
+    */
+   boolean isSingleTable() {
+      return isSingleTable;
+   }
+
+   /**
+    * @return the assignment of columns to the entities of joined tables. Null if {@link #isSingleTable()}.
+    */
+   @Nullable
+   JoinPlan getJoinPlan() {
+      return joinPlan;
+   }
+}
@@ -0,0 +1,110 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Maps a result set lazily, one row per {@link #next()}, so that only the current row's object is held in memory. Result set and statement are closed when the last row was read, or on {@link #close()}.
+ */
+final class ResultSetIterator<T> implements CloseableIterator<T> {
+   private final PreparedStatement stmt;
+   private final ResultSet resultSet;
+   private final Class<T> targetClass;
+   private final ResultSetToObjectProcessor<T> processor;
+   /**
+    * Releases the connection if it was acquired for this iterator only. See {@link SqlClosure#sqlExecuteOpen(SqlFunction)}.
+    */
+   @Nullable
+   private Runnable onClose;
+   private boolean isFetched;
+   private boolean hasNext;
+   private boolean isClosed;
+
+   /**
+    * @param sql See {@link ResultSetToObjectProcessor#ResultSetToObjectProcessor(ResultSet, java.util.Set, String)}.
+    */
+   ResultSetIterator(final PreparedStatement stmt, final ResultSet resultSet, final Class<T> targetClass, @Nullable final String sql) {
+      this.stmt = stmt;
+      this.resultSet = resultSet;
+      this.targetClass = targetClass;
+      this.processor = new ResultSetToObjectProcessor<T>(resultSet, Collections.emptySet(), sql).withoutSnapshots();
+   }
+
+   /**
+    * @param onClose Called once when the iterator is closed or exhausted, after result set and statement were closed.
+    * @return this
+    */
+   ResultSetIterator<T> onClose(final Runnable onClose) {
+      this.onClose = onClose;
+      if (isClosed) {
+         onClose.run();
+      }
+      return this;
+   }
+
+   @Override
+   public boolean hasNext() {
+      if (!isFetched && !isClosed) {
+         try {
+            hasNext = resultSet.next();
+            isFetched = true;
+         }
+         catch (SQLException e) {
+            close();
+            throw new RuntimeException(e);
+         }
+         if (!hasNext) {
+            close();
+         }
+      }
+      return hasNext && !isClosed;
+   }
+
+   @Override
+   public T next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      isFetched = false;
+      try {
+         return processor.processCurrentRow(targetClass);
+      }
+      catch (SQLException e) {
+         close();
+         throw new RuntimeException(e);
+      }
+      catch (RuntimeException e) {
+         close();
+         throw e;
+      }
+   }
+
+   @Override
+   public void close() {
+      if (!isClosed) {
+         isClosed = true;
+         SqlClosure.quietClose(resultSet);
+         SqlClosure.quietClose(stmt);
+         if (onClose != null) {
+            onClose.run();
+         }
+      }
+   }
+
+   /**
+    * @return a sequential stream closing this iterator when the stream is closed.
+    */
+   Stream<T> stream() {
+      return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+         .onClose(this::close);
+   }
+}
@@ -5,7 +5,6 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Holger Thurow (thurow.h@gmail.com)
@@ -19,33 +18,52 @@ class ResultSetToObjectProcessor<T> {
     */
    private T target;
    private final Set<String> ignoredColumns;
+   @Nullable
+   private final String sql;
    private ResultSetMetaData metaData;
    private Introspected introspected;
    /**
-    * scope is the currently processed row.
+    * scope is the currently processed row. The entities of the row indexed by {@link JoinPlan} slot, reused for every row.
     */
-   private HashMap<String, Object> tableNameToEntitiesInCurrentRow;
-   private HashMap<String, Object> tableNameToEntities;
-   private int currentRow = 0;
+   private Object[] rowEntities;
    /**
-    * scope is the currently processed column if its a join column.
+    * scope is the currently processed row. Indexed by {@link JoinPlan} slot, one of {@link #NEW}, {@link #KNOWN}, {@link #ABSENT} or {@link #COLLECTED}.
     */
-   private Object currentEntity;
+   private byte[] slotStates;
    /**
-    * scope is the currently processed join column if its type is an entity that is
-    * first seen in the current row and must be therefore created.
+    * The slot's entity is first seen in this row.
     */
-   private AtomicBoolean isNewEntity;
+   private static final byte NEW = 0;
    /**
-    * scope is the currently processed column if its a join column.
+    * The slot's entity was mapped from a previous row, so its values are not set again.
     */
-   private AttributeInfo parentInfo;
-   private Object currentParent;
+   private static final byte KNOWN = 1;
+   /**
+    * The slot's id is SQL NULL while rows are merged, as with an outer join without match. No entity is created.
+    */
+   private static final byte ABSENT = 2;
+   /**
+    * The slot's new entity was added to its parent's {@literal @}OneToMany collection.
+    */
+   private static final byte COLLECTED = 3;
+   /**
+    * Indexed by {@link JoinPlan} slot, the entities mapped so far by id. Null unless rows are merged, see {@link #process(Class)}.
+    */
+   private List<Map<Object, Object>> identityMaps;
+   private int currentRow = 0;
    /**
     * the per row created targets in a multi row result
     */
    private List<T> targets;
    private int colIdx;
+   /**
+    * Column index to field assignment for the processed result set.
+    */
+   private ResultPlan plan;
+   /**
+    * false for rows streamed or handed to a consumer, see {@link #withoutSnapshots()}.
+    */
+   private boolean captureSnapshots = true;
    private static final DatabaseValueToFieldType DATABASE_VALUE_TO_FIELD_TYPE = new DatabaseValueToFieldType();
 
    /**
@@ -53,151 +71,175 @@ class ResultSetToObjectProcessor<T> {
     *                  JDBC.
     */
    ResultSetToObjectProcessor(final ResultSet resultSet, final Set<String> ignoredColumns) {
+      this(resultSet, ignoredColumns, null);
+   }
+
+   /**
+    * @param sql The SQL text the result set was produced by. Used as the key to find the {@link ResultPlan}. Pass it only when it determines the result set's columns, as is with SQL generated by q2o.
+    */
+   ResultSetToObjectProcessor(final ResultSet resultSet, final Set<String> ignoredColumns, @Nullable final String sql) {
       this.resultSet = resultSet;
       this.ignoredColumns = ignoredColumns;
+      this.sql = sql;
    }
 
-   T forTestOnly(final T target) throws SQLException {
-      this.target = target;
+   /**
+    * Does not remember the values of the mapped objects for {@link q2o#setDirtyTracking(boolean)}. For rows streamed or handed to a consumer one by one, often millions of them and seldom updated, or mapped onto a reused instance.
+    *
+    * @return this
+    */
+   ResultSetToObjectProcessor<T> withoutSnapshots() {
+      captureSnapshots = false;
+      return this;
+   }
 
+   T process(final T target) throws SQLException {
+      this.target = target;
       metaData = resultSet.getMetaData();
       introspected = Introspected.getInstance(target.getClass());
-      tableNameToEntitiesInCurrentRow = new HashMap<>();
-      tableNameToEntitiesInCurrentRow.putIfAbsent(introspected.getTableName().toUpperCase(), target);
-      tableNameToEntities = new HashMap<>();
-
-      // do ... while collides with usage within org.springframework.jdbc.core.RowMapper
-//         do {
-      if (currentRow > 0) {
-//                  tableNameToEntitiesInCurrentRow.keySet().removeIf(tableName -> !tableName.equalsIgnoreCase(introspected.getTableName()));
-
-         tableNameToEntities = tableNameToEntitiesInCurrentRow;
-         tableNameToEntitiesInCurrentRow = new HashMap<>();
+      plan = ResultPlan.getInstance(sql, metaData, introspected, ignoredColumns);
+      if (plan.isSingleTable()) {
+         processRow();
       }
-      for (colIdx = metaData.getColumnCount(); colIdx > 0; colIdx--) {
-         processColumn(colIdx);
+      else {
+         processJoinedRow(plan.getJoinPlan());
       }
+      captureSnapshot();
 
-//               if (currentRow > 0) {
-//                  for (Map.Entry<Object, AttributeInfo> entry : entityTojoinField.entrySet()) {
-//                     AttributeInfo info = entry.getValue();
-//                     Object trgt = tableNameToEntitiesInCurrentRow.remove(info.getOwnerClassTableName().toUpperCase());
-//                     Object value = introspected.get(trgt, info);
-//                     Object entity = entry.getKey();
-//                     if (info.getType() == Collection.class) {
-//                        ((Collection) value).add(entity);
-//                     }
-//                     else {
-//                        introspected.set(trgt, info, entity);
-//                     }
-//                  }
-////                  tableNameToEntitiesInCurrentRow = new HashMap<>();
-//                  entityTojoinField = new HashMap<>();
-//               }
-
-      currentRow++;
-//         } while (resultSet.next());
-
-      return currentRow > 0 ? target : null;
+      return target;
    }
 
-   T process(final T target) throws SQLException {
-      this.target = target;
-      metaData = resultSet.getMetaData();
-      introspected = Introspected.getInstance(target.getClass());
-      tableNameToEntitiesInCurrentRow = new HashMap<>();
-      tableNameToEntitiesInCurrentRow.putIfAbsent(introspected.getTableName().toUpperCase(), target);
-      tableNameToEntities = new HashMap<>();
-
-      for (colIdx = metaData.getColumnCount(); colIdx > 0; colIdx--) {
-         processColumn(colIdx);
+   /**
+    * As {@link #process(Object)}, but for a join with a {@literal @}OneToMany relationship also maps the following rows with the same target id onto target, collecting its children. Moves the cursor, so only for callers owning the result set.
+    */
+   T processMergingRows(final T target) throws SQLException {
+      identityMaps = new ArrayList<>();
+      process(target);
+      if (!plan.isSingleTable() && plan.getJoinPlan().hasOneToMany()) {
+         final int idColumn = plan.getJoinPlan().getIdColumn(JoinPlan.TARGET_SLOT);
+         while (idColumn > 0 && resultSet.next() && isKnown(JoinPlan.TARGET_SLOT, resultSet.getObject(idColumn))) {
+            processCurrentRow(target);
+         }
       }
-
       return target;
    }
 
+   /**
+    * Rows of a join with a {@literal @}OneToMany relationship are merged by entity id ("identity map"): each parent is returned once, with the children of all its rows. Entities whose id is not selected are created per row.
+    */
    List<T> process(final Class<T> targetClass) throws SQLException {
-
-      metaData = resultSet.getMetaData();
-      introspected = Introspected.getInstance(targetClass);
       targets = new ArrayList<>();
+      identityMaps = new ArrayList<>();
 
       do {
-         try {
-            target = targetClass.newInstance();
-            tableNameToEntitiesInCurrentRow = new HashMap<>();
-            tableNameToEntitiesInCurrentRow.put(introspected.getTableName().toUpperCase(), target);
-         }
-         catch (InstantiationException | IllegalAccessException e) {
-            throw new RuntimeException(e);
+         final T rowTarget = processCurrentRow(targetClass);
+         if (slotStates == null || slotStates[JoinPlan.TARGET_SLOT] != KNOWN) {
+            targets.add(rowTarget);
          }
-
-         for (colIdx = metaData.getColumnCount(); colIdx > 0; colIdx--) {
-            processColumn(colIdx);
-         }
-
-         targets.add(target);
-         currentRow++;
-
       } while (resultSet.next());
 
       return targets;
    }
 
-   private void processColumn(final int colIdx) throws SQLException {
-      final String columnName = metaData.getColumnName(colIdx);
-      // To make names in ignoredColumns independend from database case sensitivity. Otherwise you have to write database dependent code.
-      if (OrmBase.isIgnoredColumn(ignoredColumns, columnName)) {
-         return;
+   /**
+    * Maps the result set's current row to a new instance of targetClass. Does not move the cursor, so the caller can consume the result set row by row as {@link ResultSetIterator} does.
+    */
+   T processCurrentRow(final Class<T> targetClass) throws SQLException {
+      try {
+         return processCurrentRow(targetClass.newInstance());
+      }
+      catch (InstantiationException | IllegalAccessException e) {
+         throw new RuntimeException(e);
       }
-      String tableName = null;
-      AttributeInfo fcInfo = null;
-      tableName = Optional.ofNullable(metaData.getTableName(colIdx)).orElse("");
-//      if (tableName.isEmpty() || tableName.equalsIgnoreCase(introspected.getTableName())) {
-//         fcInfo = !tableName.isEmpty()
-//            ? introspected.getFieldColumnInfo(tableName, columnName)
-//            : introspected.getFieldColumnInfo(columnName);
-//      }
+   }
 
-      if (!tableName.isEmpty()) {
-         fcInfo = introspected.getFieldColumnInfo(tableName, columnName);
-         if (fcInfo == null) {
-            // OneToOneTest.flattenedTableJoin()
-            fcInfo = introspected.getFieldColumnInfo(columnName);
-         }
+   /**
+    * Maps the result set's current row onto target. Does not move the cursor. Calling it for every row with the same target reuses a single instance ("flyweight"), then fields of ignored columns keep their values. Objects of joined tables are created anew per row.
+    *
+    * @return target, or the entity with the same id from a previous row if rows are merged.
+    */
+   T processCurrentRow(final T target) throws SQLException {
+      if (plan == null) {
+         metaData = resultSet.getMetaData();
+         introspected = Introspected.getInstance(target.getClass());
+         plan = ResultPlan.getInstance(sql, metaData, introspected, ignoredColumns);
+      }
+      this.target = target;
+
+      if (plan.isSingleTable()) {
+         processRow();
       }
       else {
-         fcInfo = introspected.getFieldColumnInfo(columnName);
+         processJoinedRow(plan.getJoinPlan());
       }
+      captureSnapshot();
+      currentRow++;
 
-      Object columnValue = getObject(colIdx, fcInfo);
+      return this.target;
+   }
 
-      // tableName is empty when aliases as in "SELECT (t.string_from_number + 1) as string_from_number " were used. See org.sansorm.QueryTest.testConverterLoad().
-      if (tableName.isEmpty() || tableName.equalsIgnoreCase(introspected.getTableName())) {
+   /**
+    * Remembers the target's values as read, see {@link q2o#setDirtyTracking(boolean)}.
+    */
+   private void captureSnapshot() {
+      if (captureSnapshots && q2o.isDirtyTracking()) {
+         DirtyTracker.capture(introspected, target);
+      }
+   }
 
-         Object parent = tableNameToEntitiesInCurrentRow.computeIfAbsent(introspected.getTableName().toUpperCase(), tbl -> {
-            try {
-               return introspected.getTableTarget(introspected.getTableName());
-            }
-            catch (IllegalAccessException | InstantiationException e) {
-               throw new RuntimeException(e);
-            }
-         });
-         // If objectFromSelect() does more fields retrieve as are defined on the entity then fcInfo is null.
-         if (fcInfo != null
-            && (!fcInfo.isIdField || !fcInfo.getType().isPrimitive() || columnValue != null)) {
-            // Do not call fcInfo.setValue() directly. AttributeInfo#setValue() does not apply type conversion (e. g. identity fields of type BigInteger to integer)!
-            try {
-               Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(fcInfo, columnValue, metaData, introspected, colIdx);
-               fcInfo.setValue(parent, typeCorrectedValue);
-            }
-            catch (IllegalAccessException e) {
-               throw new RuntimeException(e);
-            }
+   /**
+    * Maps the current row by the fixed column index to field assignment of {@link #plan}. Only applicable if there are no columns of joined tables.
+    */
+   private void processRow() throws SQLException {
+      for (colIdx = plan.getColumnCount(); colIdx > 0; colIdx--) {
+         final AttributeInfo fcInfo = plan.getFieldColumnInfo(colIdx);
+         if (fcInfo != null && !setPrimitiveValue(fcInfo, plan.getPrimitiveType(colIdx))) {
+            setValue(target, fcInfo, getObject(colIdx, fcInfo), plan.getColumnTypeName(colIdx));
          }
       }
-      else {
-         processColumnOfJoinedTable(columnName, columnValue, tableName);
+   }
+
+   /**
+    * Reads the current column with ResultSet.getInt() etc. and sets it without boxing.
+    *
+    * @param primitiveType See {@link ResultPlan#getPrimitiveType(int)}.
+    * @return false if not applicable, or the value is SQL NULL. Then the column must be processed by {@link #setValue(Object, AttributeInfo, Object, String)}.
+    */
+   private boolean setPrimitiveValue(final AttributeInfo fcInfo, @Nullable final Class<?> primitiveType) throws SQLException {
+      if (primitiveType == int.class) {
+         final int value = resultSet.getInt(colIdx);
+         if (!resultSet.wasNull()) {
+            fcInfo.setInt(target, value);
+            return true;
+         }
+      }
+      else if (primitiveType == long.class) {
+         final long value = resultSet.getLong(colIdx);
+         if (!resultSet.wasNull()) {
+            fcInfo.setLong(target, value);
+            return true;
+         }
+      }
+      else if (primitiveType == double.class) {
+         final double value = resultSet.getDouble(colIdx);
+         if (!resultSet.wasNull()) {
+            fcInfo.setDouble(target, value);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void setValue(final Object parent, final AttributeInfo fcInfo, final Object columnValue, final String columnTypeName) {
+      if (!fcInfo.isIdField || !fcInfo.getType().isPrimitive() || columnValue != null) {
+         // Do not call fcInfo.setValue() directly. AttributeInfo#setValue() does not apply type conversion (e. g. identity fields of type BigInteger to integer)!
+         try {
+            Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(fcInfo, columnValue, columnTypeName, introspected);
+            fcInfo.setValue(parent, typeCorrectedValue);
+         }
+         catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+         }
       }
    }
 
@@ -225,86 +267,151 @@ class ResultSetToObjectProcessor<T> {
    }
 
    /**
-    * Called for every table of a joined table.
+    * Maps the current row by the column index to entity slot assignment of {@link JoinPlan}. The entities of joined tables are created on first use in the row.
     */
-   private void processColumnOfJoinedTable(
-      final String columnName,
-      final Object columnValue,
-      final String tableName) throws SQLException {
+   private void processJoinedRow(final JoinPlan joinPlan) throws SQLException {
+      if (rowEntities == null || rowEntities.length != joinPlan.getSlotCount()) {
+         rowEntities = new Object[joinPlan.getSlotCount()];
+         slotStates = new byte[joinPlan.getSlotCount()];
+      }
+      else {
+         Arrays.fill(rowEntities, null);
+         Arrays.fill(slotStates, NEW);
+      }
+      rowEntities[JoinPlan.TARGET_SLOT] = target;
+      if (identityMaps != null && joinPlan.hasOneToMany()) {
+         resolveKnownEntities(joinPlan);
+      }
 
-      isNewEntity = new AtomicBoolean(false);
-      currentEntity = tableNameToEntitiesInCurrentRow.computeIfAbsent(tableName.toUpperCase(), tableNameUpperCased -> {
-         try {
-            isNewEntity.set(true);
-            return introspected.getTableTarget(tableNameUpperCased);
+      for (colIdx = plan.getColumnCount(); colIdx > 0; colIdx--) {
+         final int slot = joinPlan.getSlot(colIdx);
+         if (slot == JoinPlan.IGNORED) {
+            continue;
          }
-         catch (IllegalAccessException | InstantiationException e) {
-            throw new RuntimeException(e);
+         final Object columnValue = getObject(colIdx, joinPlan.getReadInfo(colIdx));
+         final AttributeInfo fcInfo = joinPlan.getFieldColumnInfo(colIdx);
+         if (!joinPlan.isOfJoinedTable(colIdx)) {
+            // If objectFromSelect() does more fields retrieve as are defined on the entity then fcInfo is null.
+            if (fcInfo != null && slotStates[slot] != KNOWN) {
+               setValue(target, fcInfo, columnValue, joinPlan.getColumnTypeName(colIdx));
+            }
+         }
+         else {
+            processColumnOfJoinedTable(joinPlan, slot, fcInfo, columnValue);
          }
-      });
-      // currentEntity is null if target does not correspond with an actual table. See com.zaxxer.q2o.internal.JoinOneToOneSeveralTablesTest.flattenedTableJoin().
-      currentEntity = currentEntity == null ? target : currentEntity;
+      }
+   }
 
-      Class<?> currentTargetClass = currentEntity.getClass();
-      AttributeInfo currentTargetInfo = Introspected.getInstance(currentTargetClass).getFieldColumnInfo(columnName);
-      // Do not call currentTargetInfo.setValue() directly. AttributeInfo#setValue() does not apply type conversion (e. g. identity fields of type BigInteger to integer)!
-      if (currentTargetInfo != null && (
-         !currentTargetInfo.isIdField
-            || !currentTargetInfo.getType().isPrimitive()
+   private void processColumnOfJoinedTable(final JoinPlan joinPlan, final int slot, @Nullable final AttributeInfo fcInfo, final Object columnValue) {
+      if (slotStates[slot] == ABSENT) {
+         return;
+      }
+      final Object entity = entityOf(joinPlan, slot);
+      // Do not call fcInfo.setValue() directly. AttributeInfo#setValue() does not apply type conversion (e. g. identity fields of type BigInteger to integer)!
+      if (fcInfo != null && (
+         !fcInfo.isIdField
+            || !fcInfo.getType().isPrimitive()
             || columnValue != null)
       ) {
-         if (!(currentTargetInfo.getType().isPrimitive() && columnValue == null)) {
-            try {
-               Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(currentTargetInfo, columnValue, metaData, introspected, colIdx);
-               currentTargetInfo.setValue(currentEntity, typeCorrectedValue);
-            }
-            catch (IllegalAccessException e) {
-               throw new RuntimeException(e);
+         final String columnTypeName = joinPlan.getColumnTypeName(colIdx);
+         try {
+            if (!(fcInfo.getType().isPrimitive() && columnValue == null) && slotStates[slot] != KNOWN) {
+               Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(fcInfo, columnValue, columnTypeName, introspected);
+               fcInfo.setValue(entity, typeCorrectedValue);
             }
-         }
-         // parentInfo is null if target does not correspond with an actual table. See com.zaxxer.q2o.internal.JoinOneToOneSeveralTablesTest.flattenedTableJoin().
-         parentInfo = introspected.getFieldColumnInfo(currentTargetClass);
-         if (parentInfo != null) {
-            currentParent = tableNameToEntitiesInCurrentRow.computeIfAbsent(parentInfo.getOwnerClassTableName().toUpperCase(), tbln -> {
-               try {
-                  return parentInfo.getOwnerClazz().newInstance();
-               }
-               catch (InstantiationException | IllegalAccessException e) {
-                  throw new RuntimeException(e);
-               }
-            });
-            // Do not call currentTargetInfo.setValue() directly. AttributeInfo#setValue() does not apply type conversion (e. g. identity fields of type BigInteger to integer)!
-            if (!parentInfo.isOneToManyAnnotated) {
-               try {
-                  Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(parentInfo, currentEntity, metaData, introspected, colIdx);
-                  parentInfo.setValue(currentParent, typeCorrectedValue);
+            // parentInfo is null if target does not correspond with an actual table. See com.zaxxer.q2o.internal.JoinOneToOneSeveralTablesTest.flattenedTableJoin().
+            final AttributeInfo parentInfo = joinPlan.getParentInfo(colIdx);
+            if (parentInfo != null) {
+               final Object parent = entityOf(joinPlan, joinPlan.getParentSlot(colIdx));
+               if (!parentInfo.isOneToManyAnnotated) {
+                  Object typeCorrectedValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(parentInfo, entity, columnTypeName, introspected);
+                  parentInfo.setValue(parent, typeCorrectedValue);
                }
-               catch (IllegalAccessException e) {
-                  throw new RuntimeException(e);
+               else if (parentInfo.getType() == Collection.class && slotStates[slot] == NEW) {
+                  setManyToOneField(parentInfo, parent, entity, slot);
                }
             }
-            else if (parentInfo.getType() == Collection.class) {
-               setManyToOneField();
+         }
+         catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+
+   /**
+    * Puts the entities mapped from previous rows into the current row's slots, where their ids are equal. Registers the others.
+    */
+   @SuppressWarnings("unchecked")
+   private void resolveKnownEntities(final JoinPlan joinPlan) throws SQLException {
+      while (identityMaps.size() < rowEntities.length) {
+         identityMaps.add(new HashMap<>());
+      }
+      for (int slot = 0; slot < rowEntities.length; slot++) {
+         final int idColumn = joinPlan.getIdColumn(slot);
+         if (idColumn == 0) {
+            continue;
+         }
+         final Object id = resultSet.getObject(idColumn);
+         if (id == null) {
+            if (slot != JoinPlan.TARGET_SLOT) {
+               slotStates[slot] = ABSENT;
+            }
+            continue;
+         }
+         final Object known = identityMaps.get(slot).get(id);
+         if (known != null) {
+            rowEntities[slot] = known;
+            slotStates[slot] = KNOWN;
+            if (slot == JoinPlan.TARGET_SLOT) {
+               target = (T) known;
             }
          }
+         else {
+            identityMaps.get(slot).put(id, entityOf(joinPlan, slot));
+         }
       }
    }
 
-   private void setManyToOneField() {
+   /**
+    * @return true if the entity of the slot with this id was mapped in a previous row.
+    */
+   private boolean isKnown(final int slot, @Nullable final Object id) {
+      return id != null && identityMaps.size() > slot && identityMaps.get(slot).containsKey(id);
+   }
+
+   /**
+    * @return the slot's entity in the current row, created on first use.
+    */
+   private Object entityOf(final JoinPlan joinPlan, final int slot) {
+      Object entity = rowEntities[slot];
+      if (entity == null) {
+         try {
+            entity = joinPlan.getSlotClass(slot).newInstance();
+         }
+         catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+         }
+         rowEntities[slot] = entity;
+      }
+      return entity;
+   }
+
+   /**
+    * Adds entity to the parent's collection. Without merging rows, only the entity of the row creating the collection is added.
+    */
+   private void setManyToOneField(final AttributeInfo parentInfo, final Object parent, final Object entity, final int slot) {
       try {
-         Object value = parentInfo.getValue(currentParent);
+         Object value = parentInfo.getValue(parent);
          if (value == null) {
             Collection collection = new ArrayList();
-            collection.add(currentEntity);
-            Object typeCorrecteValue = DATABASE_VALUE_TO_FIELD_TYPE.adaptValueToFieldType(parentInfo, collection, metaData, introspected, colIdx);
-            parentInfo.setValue(currentParent, typeCorrecteValue);
-
-//            String parentTableName = parentInfo.getOwnerClassTableName().toUpperCase();
-//            Object parentEntity = tableNameToEntities.get(parentTableName);
-//            if (parentEntity != null) {
-//               Collection c = (Collection) FieldValueToDatabaseType.get(parentEntity, parentInfo);
-//               c.add(currentEntity);
-//            }
+            collection.add(entity);
+            // Not by DatabaseValueToFieldType: it converts column values, and drops values of other than the field's type.
+            parentInfo.setValue(parent, collection);
+            slotStates[slot] = COLLECTED;
+         }
+         else if (identityMaps != null) {
+            ((Collection) value).add(entity);
+            slotStates[slot] = COLLECTED;
          }
       }
       catch (IllegalAccessException | InvocationTargetException e) {
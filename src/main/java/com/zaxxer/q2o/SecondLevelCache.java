@@ -0,0 +1,168 @@
+package com.zaxxer.q2o;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of @Cacheable entities by id in the {@link EntityCache} set with {@link q2o#setEntityCache(EntityCache)}. Entities are copied on put and get, so changes of a loaded entity do not reach the cache. The copy is shallow: values of mutable types, e.g. java.util.Date, are shared with the cached entity.
+ * <p>
+ * Entries are evicted when q2o updates, deletes or refreshes the entity, and once more after the writing transaction completed, see {@link CacheGuard}. Only reads on connections in auto-commit mode put entities. Changes by plain SQL or by other processes are not seen until the entry expires.
+ */
+final class SecondLevelCache {
+
+   private static final LongAdder hits = new LongAdder();
+   private static final LongAdder misses = new LongAdder();
+   private static final ConcurrentHashMap<Class<?>, CacheGuard> guards = new ConcurrentHashMap<>();
+
+   private SecondLevelCache() {
+   }
+
+   /**
+    * @return false if no cache is set or the entity is not @Cacheable.
+    */
+   static boolean isActive(final Introspected introspected) {
+      return q2o.getEntityCache() != null && introspected.isCacheable();
+   }
+
+   /**
+    * @param ids The id's values as passed to {@link Q2Obj#byId(Class, Object...)}.
+    * @return A copy of the cached entity. null if not cached, the cache is not active or connection must not read from it, see {@link CacheGuard#mayGet(Connection)}.
+    */
+   @Nullable
+   static <T> T get(final Connection connection, final Introspected introspected, final Object[] ids) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache == null || !introspected.isCacheable() || !CacheGuard.mayGet(connection)) {
+         return null;
+      }
+      final Object entity = cache.get(introspected.getClazz(), key(ids));
+      if (entity == null) {
+         misses.increment();
+         return null;
+      }
+      hits.increment();
+      @SuppressWarnings("unchecked")
+      final T copy = (T) ShallowCopy.of(entity);
+      return copy;
+   }
+
+   /**
+    * Copies the cached entity into target.
+    *
+    * @return false if not cached.
+    */
+   static boolean getInto(final Connection connection, final Introspected introspected, final Object[] ids, final Object target) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache == null || !introspected.isCacheable() || !CacheGuard.mayGet(connection)) {
+         return false;
+      }
+      final Object entity = cache.get(introspected.getClazz(), key(ids));
+      if (entity == null || entity.getClass() != target.getClass()) {
+         misses.increment();
+         return false;
+      }
+      hits.increment();
+      ShallowCopy.into(entity, target);
+      return true;
+   }
+
+   /**
+    * @return The generation to pass to {@link #put(Connection, Introspected, Object, long)}. To be taken before loading the entity.
+    */
+   static long generation(final Introspected introspected) {
+      return guard(introspected).generation();
+   }
+
+   /**
+    * Does nothing if connection is not in auto-commit mode. Takes the entity out again if it was written since generationBefore.
+    */
+   static void put(final Connection connection, final Introspected introspected, final Object entity, final long generationBefore) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null && introspected.isCacheable() && CacheGuard.mayPut(connection)) {
+         final List<Object> key = key(introspected.getActualIds(entity));
+         cache.put(introspected.getClazz(), key, ShallowCopy.of(entity));
+         if (!guard(introspected).isUnchangedSince(generationBefore)) {
+            cache.evict(introspected.getClazz(), key);
+         }
+      }
+   }
+
+   /**
+    * Evicts entity without it being written, e.g. before it is refreshed.
+    */
+   static void evict(final Introspected introspected, final Object entity) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null && introspected.isCacheable()) {
+         cache.evict(introspected.getClazz(), key(introspected.getActualIds(entity)));
+      }
+   }
+
+   /**
+    * Evicts entity after it was written with connection. To be called after the statement was executed.
+    */
+   static void written(final Connection connection, final Introspected introspected, final Object entity) {
+      writtenById(connection, introspected, introspected.getActualIds(entity));
+   }
+
+   static void writtenById(final Connection connection, final Introspected introspected, final Object[] ids) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null && introspected.isCacheable()) {
+         final List<Object> key = key(ids);
+         guard(introspected).written(connection, () -> cache.evict(introspected.getClazz(), key));
+      }
+   }
+
+   static void writtenEach(final Connection connection, final Introspected introspected, final Iterable<?> entities) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null && introspected.isCacheable()) {
+         final List<List<Object>> keys = new ArrayList<>();
+         for (final Object entity : entities) {
+            keys.add(key(introspected.getActualIds(entity)));
+         }
+         guard(introspected).written(connection, () -> keys.forEach(key -> cache.evict(introspected.getClazz(), key)));
+      }
+   }
+
+   /**
+    * Evicts all entities of the class, e.g. after a DELETE by a WHERE clause.
+    */
+   static void writtenAll(final Connection connection, final Introspected introspected) {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null && introspected.isCacheable()) {
+         guard(introspected).written(connection, () -> cache.evictAll(introspected.getClazz()));
+      }
+   }
+
+   static CacheStatistics getStatistics() {
+      final EntityCache cache = q2o.getEntityCache();
+      return new CacheStatistics(hits.sum(), misses.sum(), cache != null ? cache.size() : 0);
+   }
+
+   static void clear() {
+      final EntityCache cache = q2o.getEntityCache();
+      if (cache != null) {
+         cache.clear();
+      }
+      hits.reset();
+      misses.reset();
+   }
+
+   private static CacheGuard guard(final Introspected introspected) {
+      return guards.computeIfAbsent(introspected.getClazz(), clazz -> new CacheGuard());
+   }
+
+   /**
+    * Integral numbers as Long, so byId(clazz, 1) and an entity with a long id find the same entry.
+    */
+   private static List<Object> key(final Object[] ids) {
+      final List<Object> key = new ArrayList<>(ids.length);
+      for (final Object id : ids) {
+         key.add(id instanceof Integer || id instanceof Short || id instanceof Byte ? Long.valueOf(((Number) id).longValue()) : id);
+      }
+      return key;
+   }
+}
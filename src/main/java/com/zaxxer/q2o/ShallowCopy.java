@@ -0,0 +1,61 @@
+package com.zaxxer.q2o;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies the non static, non final fields of objects read by q2o, so cached objects are not changed through the ones handed out. Values of mutable types, e.g. java.util.Date, are shared.
+ */
+final class ShallowCopy {
+
+   private static final Map<Class<?>, Field[]> fieldsByClass = new ConcurrentHashMap<>();
+
+   private ShallowCopy() {
+   }
+
+   /**
+    * @return A new instance with the values of source, or source itself if it is of an immutable type like String or Long, e.g. the results of a query of a single column.
+    */
+   static <T> T of(final T source) {
+      if (source instanceof String || source instanceof Number || source instanceof Boolean || source instanceof Character || source instanceof Enum) {
+         return source;
+      }
+      try {
+         @SuppressWarnings("unchecked")
+         final T target = (T) source.getClass().newInstance();
+         return into(source, target);
+      }
+      catch (InstantiationException | IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   static <T> T into(final T source, final T target) {
+      try {
+         for (final Field field : fieldsByClass.computeIfAbsent(source.getClass(), ShallowCopy::instanceFields)) {
+            field.set(target, field.get(source));
+         }
+         return target;
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static Field[] instanceFields(final Class<?> clazz) {
+      final List<Field> fields = new ArrayList<>();
+      for (Class<?> cls = clazz; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+         for (final Field field : cls.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+               field.setAccessible(true);
+               fields.add(field);
+            }
+         }
+      }
+      return fields.toArray(new Field[0]);
+   }
+}
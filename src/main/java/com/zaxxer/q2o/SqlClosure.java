@@ -171,6 +171,15 @@ public class SqlClosure<T> {
       }.execute();
    }
 
+   /**
+    * Like {@link #sqlExecute(SqlFunction)}, but for a {@link ResultSetIterator} still reading from the connection after functional returned. The connection is released, and a transaction begun for it is committed, when the iterator is closed or exhausted. If functional fails they are released immediately.
+    * <p>
+    * With a {@link javax.transaction.TransactionManager} the iterator must be closed in the thread it was created in.
+    */
+   static <V> ResultSetIterator<V> sqlExecuteOpen(final SqlFunction<ResultSetIterator<V>> functional) {
+      return new SqlClosure<Void>().executeOpen(functional);
+   }
+
    /**
     * Execute a lambda {@code SqlVarArgsFunction} closure.
     *
@@ -412,6 +421,115 @@ public class SqlClosure<T> {
       }
    }
 
+   private <V> ResultSetIterator<V> executeOpen(final SqlFunction<ResultSetIterator<V>> functional) {
+      if (isSpringTxAware) {
+         final Connection connection = DataSourceUtils.getConnection(dataSource);
+         try {
+            return functional.execute(connection).onClose(() -> DataSourceUtils.releaseConnection(connection, dataSource));
+         }
+         catch (SQLException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw exceptionTranslator.translate("", null, e);
+         }
+         catch (Throwable e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw e;
+         }
+      }
+      else if (TransactionHelper.hasTransactionManager()) {
+         boolean isNewTransaction = false;
+         try {
+            isNewTransaction = TransactionHelper.beginOrJoinTransaction();
+            final Connection connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            final boolean commitOnClose = isNewTransaction;
+            return functional.execute(connection).onClose(() -> {
+               if (commitOnClose) {
+                  TransactionHelper.commit();
+               }
+            });
+         }
+         catch (SQLException e) {
+            logger.error("", e);
+            TransactionHelper.rollback();
+            throw new RuntimeException(e);
+         }
+         catch (Throwable e) {
+            TransactionHelper.rollback();
+            throw e;
+         }
+      }
+      else {
+         // In a read only transaction, as e.g. PostgreSQL ignores the fetch size in auto-commit mode and reads the whole result into memory.
+         Connection connection = null;
+         boolean origAutoCommit = true;
+         boolean origReadOnly = false;
+         try {
+            connection = dataSource.getConnection();
+            origAutoCommit = connection.getAutoCommit();
+            origReadOnly = connection.isReadOnly();
+            if (origAutoCommit) {
+               connection.setAutoCommit(false);
+            }
+            if (!origReadOnly) {
+               connection.setReadOnly(true);
+            }
+            final Connection con = connection;
+            final boolean autoCommit = origAutoCommit;
+            final boolean readOnly = origReadOnly;
+            return functional.execute(connection).onClose(() -> {
+               try {
+                  con.commit();
+               }
+               catch (SQLException e) {
+                  logger.error("", e);
+               }
+               restoreAndClose(con, autoCommit, readOnly);
+            });
+         }
+         catch (SQLException e) {
+            logger.error("", e);
+            quietRollback(connection);
+            restoreAndClose(connection, origAutoCommit, origReadOnly);
+            throw new RuntimeException(e);
+         }
+         catch (Throwable e) {
+            quietRollback(connection);
+            restoreAndClose(connection, origAutoCommit, origReadOnly);
+            throw e;
+         }
+      }
+   }
+
+   private static void quietRollback(final Connection connection) {
+      try {
+         if (connection != null && !connection.getAutoCommit()) {
+            connection.rollback();
+         }
+      }
+      catch (SQLException e) {
+         logger.error("", e);
+      }
+   }
+
+   private static void restoreAndClose(final Connection connection, final boolean autoCommit, final boolean readOnly) {
+      if (connection == null) {
+         return;
+      }
+      try {
+         if (connection.isReadOnly() != readOnly) {
+            connection.setReadOnly(readOnly);
+         }
+         if (connection.getAutoCommit() != autoCommit) {
+            connection.setAutoCommit(autoCommit);
+         }
+      }
+      catch (SQLException e) {
+         logger.error("", e);
+      }
+      quietClose(connection);
+   }
+
    private void releaseLocksOnError(final Connection connection, final Throwable e)
    {
       try {
@@ -56,6 +56,25 @@ public final class TransactionHelper
       return transactionManager != null;
    }
 
+   /**
+    * @return The current thread's active transaction of the registered {@link TransactionManager}, null if there is none.
+    */
+   static Transaction getActiveTransaction()
+   {
+      final TransactionManager tm = transactionManager;
+      if (tm == null) {
+         return null;
+      }
+      try {
+         final Transaction transaction = tm.getTransaction();
+         return transaction != null && transaction.getStatus() == Status.STATUS_ACTIVE ? transaction : null;
+      }
+      catch (SystemException e) {
+         LOGGER.warn("Could not get current transaction.", e);
+         return null;
+      }
+   }
+
    /**
     * Start or join a transaction.
     *
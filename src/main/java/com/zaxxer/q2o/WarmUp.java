@@ -0,0 +1,127 @@
+package com.zaxxer.q2o;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Introspects entity classes and generates their SELECT by id, INSERT, UPDATE and DELETE statements ahead of their first use, in parallel on the common ForkJoinPool.
+ */
+final class WarmUp {
+
+   private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+   private WarmUp() {
+   }
+
+   static WarmUpStatistics warmUp(final Collection<Class<?>> classes) {
+      final long start = System.nanoTime();
+      final AtomicInteger failures = new AtomicInteger();
+      classes.parallelStream().forEach(clazz -> {
+         try {
+            final Introspected introspected = Introspected.getInstance(clazz);
+            OrmReader.warmUp(introspected);
+            OrmWriter.warmUp(introspected);
+         }
+         catch (RuntimeException | LinkageError e) {
+            failures.incrementAndGet();
+            logger.warn("Warm-up of {} failed", clazz.getName(), e);
+         }
+      });
+      final WarmUpStatistics statistics = new WarmUpStatistics(classes.size() - failures.get(), failures.get(), (System.nanoTime() - start) / 1_000_000);
+      logger.info("{}", statistics);
+      return statistics;
+   }
+
+   /**
+    * @return The classes annotated with @Entity or @Table in the package and its sub packages, found in directories and jar files of the class loader.
+    */
+   static List<Class<?>> scan(final ClassLoader classLoader, final String packageName) {
+      final String path = packageName.replace('.', '/');
+      final Set<String> classNames = new LinkedHashSet<>();
+      try {
+         final Enumeration<URL> roots = classLoader.getResources(path);
+         while (roots.hasMoreElements()) {
+            final URL root = roots.nextElement();
+            if ("file".equals(root.getProtocol())) {
+               scanDirectory(new File(root.toURI()), packageName, classNames);
+            }
+            else {
+               final URLConnection connection = root.openConnection();
+               if (connection instanceof JarURLConnection) {
+                  scanJar(((JarURLConnection) connection).getJarFile(), path, classNames);
+               }
+            }
+         }
+      }
+      catch (IOException | URISyntaxException e) {
+         throw new RuntimeException("Could not scan package " + packageName, e);
+      }
+
+      final List<Class<?>> entities = new ArrayList<>();
+      for (final String className : classNames) {
+         try {
+            final Class<?> clazz = Class.forName(className, false, classLoader);
+            if (isEntity(clazz)) {
+               entities.add(clazz);
+            }
+         }
+         catch (ClassNotFoundException | LinkageError e) {
+            logger.debug("{} not loadable", className, e);
+         }
+      }
+      return entities;
+   }
+
+   private static boolean isEntity(final Class<?> clazz) {
+      return (clazz.isAnnotationPresent(Entity.class) || clazz.isAnnotationPresent(Table.class))
+         && !clazz.isInterface()
+         && !Modifier.isAbstract(clazz.getModifiers())
+         && (clazz.getEnclosingClass() == null || Modifier.isStatic(clazz.getModifiers()))
+         && !clazz.isAnonymousClass()
+         && !clazz.isLocalClass();
+   }
+
+   private static void scanDirectory(final File directory, final String packageName, final Set<String> classNames) {
+      final File[] files = directory.listFiles();
+      if (files == null) {
+         return;
+      }
+      for (final File file : files) {
+         if (file.isDirectory()) {
+            scanDirectory(file, packageName + '.' + file.getName(), classNames);
+         }
+         else if (file.getName().endsWith(".class")) {
+            classNames.add(packageName + '.' + file.getName().substring(0, file.getName().length() - ".class".length()));
+         }
+      }
+   }
+
+   private static void scanJar(final JarFile jar, final String path, final Set<String> classNames) {
+      final Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+         final String name = entries.nextElement().getName();
+         if (name.startsWith(path + '/') && name.endsWith(".class")) {
+            classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+         }
+      }
+   }
+}
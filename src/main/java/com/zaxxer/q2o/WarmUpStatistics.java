@@ -0,0 +1,47 @@
+package com.zaxxer.q2o;
+
+/**
+ * Outcome of {@link q2o#warmUp(Class[])} and {@link q2o#warmUpPackage(String)}.
+ */
+public final class WarmUpStatistics {
+
+   private final int entities;
+   private final int failures;
+   private final long millis;
+
+   WarmUpStatistics(final int entities, final int failures, final long millis) {
+      this.entities = entities;
+      this.failures = failures;
+      this.millis = millis;
+   }
+
+   /**
+    * @return number of classes introspected with their statements generated.
+    */
+   public int getEntities() {
+      return entities;
+   }
+
+   /**
+    * @return number of classes whose introspection failed. They are logged, and fail again on first use.
+    */
+   public int getFailures() {
+      return failures;
+   }
+
+   /**
+    * @return wall clock time of the warm-up.
+    */
+   public long getMillis() {
+      return millis;
+   }
+
+   @Override
+   public String toString() {
+      return "WarmUpStatistics{" +
+         "entities=" + entities +
+         ", failures=" + failures +
+         ", millis=" + millis +
+         '}';
+   }
+}
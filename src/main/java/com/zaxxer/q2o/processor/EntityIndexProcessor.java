@@ -0,0 +1,201 @@
+package com.zaxxer.q2o.processor;
+
+import com.zaxxer.q2o.GeneratedAccessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a {@link GeneratedAccessor} for each class annotated with @Entity or @Table, so q2o accesses its fields with plain field access instead of binding MethodHandles when introspecting the class. Records the classes in {@value #INDEX}, one binary class name per line, which q2o introspects when it is initialized if system property "com.zaxxer.q2o.entityIndex" is true, see {@link com.zaxxer.q2o.q2o#setEntityIndex(boolean)}.
+ * <p>
+ * Not registered as service, so it runs only if named, e.g. with javac option -processor com.zaxxer.q2o.processor.EntityIndexProcessor, or in the annotationProcessors of maven-compiler-plugin.
+ */
+@SupportedAnnotationTypes({"javax.persistence.Entity", "javax.persistence.Table"})
+public class EntityIndexProcessor extends AbstractProcessor {
+
+   public static final String INDEX = "META-INF/q2o/entities";
+
+   private final Set<String> entities = new TreeSet<>();
+
+   @Override
+   public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+   }
+
+   @Override
+   public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+         if (!entities.isEmpty()) {
+            writeIndex();
+         }
+         return false;
+      }
+      for (final TypeElement annotation : annotations) {
+         for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (isInstantiableClass(element)) {
+               final String binaryName = processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+               if (entities.add(binaryName)) {
+                  writeAccessor((TypeElement) element, binaryName);
+               }
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Top level or static nested classes. Inner and local classes can not be created by q2o.
+    */
+   private static boolean isInstantiableClass(final Element element) {
+      if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+         return false;
+      }
+      final NestingKind nesting = ((TypeElement) element).getNestingKind();
+      return nesting == NestingKind.TOP_LEVEL || nesting == NestingKind.MEMBER && element.getModifiers().contains(Modifier.STATIC);
+   }
+
+   /**
+    * Accessible from the entity's package, as is the accessor.
+    */
+   private static boolean isAccessibleFromPackage(final Element element) {
+      for (Element e = element; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+         if (e.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Of the fields declared by entity, those not static, final or private.
+    */
+   private static List<VariableElement> accessibleFields(final TypeElement entity) {
+      final List<VariableElement> fields = new ArrayList<>();
+      for (final VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+         final Set<Modifier> modifiers = field.getModifiers();
+         if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.FINAL) && !modifiers.contains(Modifier.PRIVATE)) {
+            fields.add(field);
+         }
+      }
+      return fields;
+   }
+
+   private void writeAccessor(final TypeElement entity, final String binaryName) {
+      if (!isAccessibleFromPackage(entity)) {
+         return;
+      }
+      final String accessorName = GeneratedAccessor.nameOf(binaryName);
+      final int dot = accessorName.lastIndexOf('.');
+      final String packageName = dot > 0 ? accessorName.substring(0, dot) : "";
+      final String simpleName = accessorName.substring(dot + 1);
+      final String entityType = entity.getQualifiedName().toString();
+      final List<VariableElement> fields = accessibleFields(entity);
+      final Types types = processingEnv.getTypeUtils();
+
+      final StringBuilder src = new StringBuilder();
+      if (!packageName.isEmpty()) {
+         src.append("package ").append(packageName).append(";\n\n");
+      }
+      src.append("/**\n * Generated by ").append(EntityIndexProcessor.class.getName()).append(" for ").append(entityType).append(".\n */\n");
+      src.append("public final class ").append(simpleName).append(" implements ").append(GeneratedAccessor.class.getName()).append(" {\n\n");
+
+      src.append("   @Override\n   public int indexOf(final String fieldName) {\n      switch (fieldName) {\n");
+      for (int i = 0; i < fields.size(); i++) {
+         src.append("      case \"").append(fields.get(i).getSimpleName()).append("\": return ").append(i).append(";\n");
+      }
+      src.append("      default: return -1;\n      }\n   }\n\n");
+
+      src.append("   @Override\n   public Object get(final int index, final Object target) {\n");
+      src.append("      final ").append(entityType).append(" entity = (").append(entityType).append(") target;\n      switch (index) {\n");
+      for (int i = 0; i < fields.size(); i++) {
+         src.append("      case ").append(i).append(": return entity.").append(fields.get(i).getSimpleName()).append(";\n");
+      }
+      src.append("      default: throw new IndexOutOfBoundsException(String.valueOf(index));\n      }\n   }\n\n");
+
+      src.append("   @Override\n   @SuppressWarnings(\"unchecked\")\n   public void set(final int index, final Object target, final Object value) {\n");
+      src.append("      final ").append(entityType).append(" entity = (").append(entityType).append(") target;\n      switch (index) {\n");
+      for (int i = 0; i < fields.size(); i++) {
+         final VariableElement field = fields.get(i);
+         final TypeMirror type = types.erasure(field.asType());
+         src.append("      case ").append(i).append(": entity.").append(field.getSimpleName()).append(" = ");
+         if (type.getKind().isPrimitive()) {
+            final String primitive = type.toString();
+            src.append(GeneratedAccessor.class.getName()).append(".to").append(Character.toUpperCase(primitive.charAt(0))).append(primitive.substring(1))
+               .append("(value, \"field ").append(binaryName).append('.').append(field.getSimpleName()).append("\")");
+         }
+         else {
+            src.append('(').append(type).append(") value");
+         }
+         src.append("; return;\n");
+      }
+      src.append("      default: throw new IndexOutOfBoundsException(String.valueOf(index));\n      }\n   }\n}\n");
+
+      try {
+         final JavaFileObject file = processingEnv.getFiler().createSourceFile(accessorName, entity);
+         try (final Writer writer = file.openWriter()) {
+            writer.write(src.toString());
+         }
+      }
+      catch (IOException e) {
+         processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not generate " + accessorName + ": " + e, entity);
+      }
+   }
+
+   /**
+    * Keeps the entries of a previous, e.g. incremental, compilation. Entries of deleted classes are skipped when the index is loaded.
+    */
+   private void writeIndex() {
+      try {
+         final FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+         try (final BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+               if (!line.trim().isEmpty()) {
+                  entities.add(line.trim());
+               }
+            }
+         }
+      }
+      catch (IOException | IllegalArgumentException e) {
+         // No index yet.
+      }
+
+      try {
+         final FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+         try (final Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+            for (final String entity : entities) {
+               writer.write(entity);
+               writer.write('\n');
+            }
+         }
+      }
+      catch (IOException e) {
+         processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write " + INDEX + ": " + e);
+      }
+   }
+}
@@ -5,11 +5,26 @@ import com.zaxxer.q2o.transaction.TxTransactionManager;
 import javax.sql.DataSource;
 import javax.transaction.TransactionManager;
 import javax.transaction.UserTransaction;
+import java.util.Arrays;
 
 /** Single point of q2o configuration */
 public final class q2o {
 
    private static volatile boolean mySqlMode;
+   private static volatile int fetchSize = Integer.getInteger("com.zaxxer.q2o.fetchSize", 1000);
+   private static volatile int batchSize = Integer.getInteger("com.zaxxer.q2o.batchSize", 1000);
+   private static volatile int maxInClauseParameters = Integer.getInteger("com.zaxxer.q2o.maxInClauseParameters", 1000);
+   private static volatile boolean inClauseArrayBinding = Boolean.getBoolean("com.zaxxer.q2o.inClauseArrayBinding");
+   private static volatile boolean bulkLoad = Boolean.getBoolean("com.zaxxer.q2o.bulkLoad");
+   private static volatile boolean multiRowInsert = Boolean.getBoolean("com.zaxxer.q2o.multiRowInsert");
+   private static volatile boolean deriveParameterTypes = Boolean.getBoolean("com.zaxxer.q2o.deriveParameterTypes");
+   private static volatile boolean dirtyTracking = Boolean.getBoolean("com.zaxxer.q2o.dirtyTracking");
+   private static volatile boolean entityIndex = Boolean.getBoolean("com.zaxxer.q2o.entityIndex");
+   private static volatile EntityCache entityCache = Integer.getInteger("com.zaxxer.q2o.entityCacheSize", 0) > 0
+      ? EntityCache.lru(Integer.getInteger("com.zaxxer.q2o.entityCacheSize"), Long.getLong("com.zaxxer.q2o.entityCacheTtlMillis", 60_000))
+      : null;
+   private static volatile int queryCacheSize = Integer.getInteger("com.zaxxer.q2o.queryCacheSize", 0);
+   private static volatile long queryCacheTtlMillis = Long.getLong("com.zaxxer.q2o.queryCacheTtlMillis", 60_000);
    static volatile DataSource dataSource;
 
    private q2o() {
@@ -24,6 +39,7 @@ public final class q2o {
       deinitialize();
       SqlClosure.setDefaultDataSource(dataSource);
       q2o.dataSource = dataSource;
+      EntityIndex.introspectIndexedEntities();
    }
 
    /**
@@ -40,6 +56,7 @@ public final class q2o {
       DataSource txDataSource = txManager.getTxDataSource();
       SqlClosure.setDefaultDataSource(txDataSource);
       q2o.dataSource = txDataSource;
+      EntityIndex.introspectIndexedEntities();
       return txDataSource;
    }
 
@@ -66,6 +83,7 @@ public final class q2o {
       TransactionHelper.setUserTransaction(userTx);
       SqlClosure.setDefaultDataSource(dataSource);
       q2o.dataSource = dataSource;
+      EntityIndex.introspectIndexedEntities();
    }
 
    /**
@@ -77,6 +95,7 @@ public final class q2o {
       SqlClosure.setDefaultDataSource(dataSource);
       SqlClosure.activateSpringDefaultExceptionTranslator(dataSource);
       q2o.dataSource = dataSource;
+      EntityIndex.introspectIndexedEntities();
    }
 
    public static DataSource initializeWithSpringTxSupport(DataSource dataSource, boolean mySqlBlobSupport)
@@ -89,6 +108,25 @@ public final class q2o {
       return dataSource;
    }
 
+   /**
+    * Introspects the entity classes and generates their statements, so that their first use is as fast as any later one. Call it after initializeXXX, which discards generated statements. Classes annotated with @Entity or @Table compiled with {@link com.zaxxer.q2o.processor.EntityIndexProcessor} are warmed up by initializeXXX already if {@link #setEntityIndex(boolean)} is set.
+    *
+    * @return The number of classes and the time taken. Classes failing introspection are logged and counted as failures.
+    */
+   public static WarmUpStatistics warmUp(Class<?>... entityClasses) {
+      return WarmUp.warmUp(Arrays.asList(entityClasses));
+   }
+
+   /**
+    * Like {@link #warmUp(Class[])} with the classes annotated with @Entity or @Table in the package and its sub packages, found through the context class loader.
+    */
+   public static WarmUpStatistics warmUpPackage(String packageName) {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader() != null
+         ? Thread.currentThread().getContextClassLoader()
+         : q2o.class.getClassLoader();
+      return WarmUp.warmUp(WarmUp.scan(classLoader, packageName));
+   }
+
    /**
     * To explicitly reset q2o to a fresh state if desired. E.g. if you want to call another initializeXXX method. This call is optional because all initializeXXX methods will call deinitialize() anyway.
     */
@@ -103,6 +141,186 @@ public final class q2o {
       OrmBase.clearCache();
       OrmReader.clearCache();
       OrmWriter.clearCache();
+      ResultPlan.clearCache();
+      ParameterTypes.clearCache();
+      EntityIndex.reset();
+      IdAllocator.clearPools();
+      DirtyTracker.clear();
+      SecondLevelCache.clear();
+      QueryResultCache.clear();
+      QueryResultCache.resetStatistics();
+   }
+
+   /**
+    * @return Hits and misses when looking up the resolved column to field assignment for a query's result set. Counters are reset by {@link #deinitialize()}.
+    */
+   public static CacheStatistics getResultPlanCacheStatistics() {
+      return ResultPlan.getStatistics();
+   }
+
+   /**
+    * @return Hits, misses and evictions when looking up the SQL text q2o generates for an entity's SELECT, INSERT, UPDATE, DELETE and upsert statements, summed over these caches. Each holds at most system property "com.zaxxer.sansorm.statementCacheSize" (default 500) entries. Counters are reset by {@link #deinitialize()}.
+    */
+   public static CacheStatistics getStatementCacheStatistics() {
+      return OrmReader.getStatementCacheStatistics().plus(OrmWriter.getStatementCacheStatistics());
+   }
+
+   /**
+    * @return Hits and misses when looking up the parameter types of a statement by its SQL text. Counters are reset by {@link #deinitialize()}.
+    */
+   public static CacheStatistics getParameterTypeCacheStatistics() {
+      return ParameterTypes.getStatistics();
+   }
+
+   static int getFetchSize() {
+      return fetchSize;
+   }
+
+   /**
+    * @param fetchSize The JDBC fetch size set on statements whose results are streamed, see {@link Q2ObjList#streamFromClause(Class, String, Object...)}. 0 leaves it to the driver. Defaults to 1000 or system property "com.zaxxer.q2o.fetchSize". Without a transaction manager and outside Spring transactions, q2o streams in a read only transaction, committed when the stream is closed, as PostgreSQL ignores the fetch size in auto-commit mode and reads the whole result into memory. MySQL streams only with fetch size Integer.MIN_VALUE.
+    */
+   public static void setFetchSize(int fetchSize) {
+      q2o.fetchSize = fetchSize;
+   }
+
+   static int getBatchSize() {
+      return batchSize;
+   }
+
+   /**
+    * @param batchSize The number of rows sent to the database with one executeBatch() by the batched methods of {@link Q2ObjList}, e.g. {@link Q2ObjList#updateBatched(Iterable)}. 0 sends all rows at once. Defaults to 1000 or system property "com.zaxxer.q2o.batchSize".
+    */
+   public static void setBatchSize(int batchSize) {
+      q2o.batchSize = batchSize;
+   }
+
+   static boolean isBulkLoad() {
+      return bulkLoad;
+   }
+
+   /**
+    * @param bulkLoad If true, {@link Q2ObjList#insertBatched(Iterable)} streams the objects as CSV with COPY FROM STDIN on PostgreSQL and LOAD DATA LOCAL INFILE on MySQL/MariaDB (needs connection property "allowLoadLocalInfile=true") instead of executing INSERT statements. Other databases, and entities with binary or LOB attributes, are still inserted batched. Generated ids are not set on bulk loaded objects. On MySQL any warning, e.g. of a value truncated or not converted, fails the load with an SQLException. Defaults to false or system property "com.zaxxer.q2o.bulkLoad".
+    */
+   public static void setBulkLoad(boolean bulkLoad) {
+      q2o.bulkLoad = bulkLoad;
+   }
+
+   static boolean isEntityIndex() {
+      return entityIndex;
+   }
+
+   /**
+    * @param entityIndex If true, initializeXXX introspects the entity classes recorded by {@link com.zaxxer.q2o.processor.EntityIndexProcessor} and generates their statements, on the common ForkJoinPool, instead of on their first use. Set it before initializeXXX. Defaults to false or system property "com.zaxxer.q2o.entityIndex".
+    */
+   public static void setEntityIndex(boolean entityIndex) {
+      q2o.entityIndex = entityIndex;
+   }
+
+   static boolean isMultiRowInsert() {
+      return multiRowInsert;
+   }
+
+   /**
+    * @param multiRowInsert If true, {@link Q2ObjList#insertBatched(Iterable)} inserts many objects with each "INSERT ... VALUES (...),(...)" statement instead of using JDBC batching, for drivers that execute batched statements one by one, like MySQL without rewriteBatchedStatements or SQLite. The rows per statement are limited by the database's maximum number of parameters and {@link #setBatchSize(int)}. Used on H2, PostgreSQL, MySQL/MariaDB, SQLite and SQL Server, other databases are still inserted batched. On PostgreSQL the generated ids are read with "RETURNING", as PgJDBC executes batches returning generated keys statement by statement. Defaults to false or system property "com.zaxxer.q2o.multiRowInsert".
+    */
+   public static void setMultiRowInsert(boolean multiRowInsert) {
+      q2o.multiRowInsert = multiRowInsert;
+   }
+
+   static int getMaxInClauseParameters() {
+      return maxInClauseParameters;
+   }
+
+   /**
+    * @param maxInClauseParameters The maximum number of parameters in one IN list of ids, e.g. in {@link Q2ObjList#delete(List)}. Longer lists are split into several statements. Defaults to 1000 (Oracle's limit on IN list elements) or system property "com.zaxxer.q2o.maxInClauseParameters".
+    */
+   public static void setMaxInClauseParameters(int maxInClauseParameters) {
+      q2o.maxInClauseParameters = maxInClauseParameters;
+   }
+
+   static boolean isInClauseArrayBinding() {
+      return inClauseArrayBinding;
+   }
+
+   /**
+    * @param inClauseArrayBinding If true, lists of single column ids are bound as one array parameter with "= ANY(?)" on PostgreSQL instead of as IN list. Defaults to false or system property "com.zaxxer.q2o.inClauseArrayBinding".
+    */
+   public static void setInClauseArrayBinding(boolean inClauseArrayBinding) {
+      q2o.inClauseArrayBinding = inClauseArrayBinding;
+   }
+
+   static boolean isDeriveParameterTypes() {
+      return deriveParameterTypes;
+   }
+
+   /**
+    * @param deriveParameterTypes If true, the SQL types of statement parameters are derived from the Java types of the values and attributes, and PreparedStatement.getParameterMetaData() is never called. Values of Java types without a standard JDBC mapping, and nulls of unknown type, are passed to the driver without type. Defaults to false or system property "com.zaxxer.q2o.deriveParameterTypes".
+    */
+   public static void setDeriveParameterTypes(boolean deriveParameterTypes) {
+      q2o.deriveParameterTypes = deriveParameterTypes;
+   }
+
+   /**
+    * @return Hits and misses of {@link Q2Obj#byId(Class, Object...)} in the {@link EntityCache}, and its size. Counters are reset by {@link #deinitialize()}.
+    */
+   public static CacheStatistics getEntityCacheStatistics() {
+      return SecondLevelCache.getStatistics();
+   }
+
+   static EntityCache getEntityCache() {
+      return entityCache;
+   }
+
+   /**
+    * @param entityCache The second level cache of entities annotated with @Cacheable, looked up by {@link Q2Obj#byId(Class, Object...)} and {@link Q2Obj#byId(Object)}. Entities are evicted when updated, deleted or refreshed through q2o, and again when the {@link TransactionManager}'s transaction doing so completed. Only entities read in auto-commit mode, as with {@link #initializeTxNone(DataSource)}, are put. Changes by plain SQL, other processes or transactions q2o does not manage are not seen until the entity expires. Use {@link EntityCache#lru(int, long)}, or null for no cache. Defaults to an LRU cache of system property "com.zaxxer.q2o.entityCacheSize" entities expiring after "com.zaxxer.q2o.entityCacheTtlMillis" (60 seconds), if the size is set.
+    */
+   public static void setEntityCache(EntityCache entityCache) {
+      q2o.entityCache = entityCache;
+   }
+
+   /**
+    * @return Hits and misses of queries in the query result cache, and its size. Counters are reset by {@link #deinitialize()}.
+    */
+   public static CacheStatistics getQueryCacheStatistics() {
+      return QueryResultCache.getStatistics();
+   }
+
+   static int getQueryCacheSize() {
+      return queryCacheSize;
+   }
+
+   /**
+    * @param queryCacheSize The number of query results held at most in the query result cache. Results not used recently are evicted first. The results of {@link Q2ObjList#fromClause(Class, String, Object...)}, {@link Q2ObjList#fromRawClause(Class, String, Object...)} and {@link Q2ObjList#fromSelect(Class, String, Object...)} are cached by SQL, arguments and class, and invalidated when q2o writes to a table named in the SQL, and again when the {@link TransactionManager}'s transaction doing so completed. Only queries on connections in auto-commit mode, as with {@link #initializeTxNone(DataSource)}, use the cache. Changes by other processes or transactions q2o does not manage are not seen until the result expires, see {@link #setQueryCacheTtlMillis(long)}. 0 disables the cache. Defaults to 0 or system property "com.zaxxer.q2o.queryCacheSize". Discards the cached results.
+    */
+   public static void setQueryCacheSize(int queryCacheSize) {
+      q2o.queryCacheSize = queryCacheSize;
+      QueryResultCache.resize();
+   }
+
+   static long getQueryCacheTtlMillis() {
+      return queryCacheTtlMillis;
+   }
+
+   /**
+    * @param queryCacheTtlMillis The time after which a result in the query result cache expires after it was put, see {@link #setQueryCacheSize(int)}. Must be positive. Defaults to 60 seconds or system property "com.zaxxer.q2o.queryCacheTtlMillis".
+    * @throws IllegalArgumentException if queryCacheTtlMillis is not positive.
+    */
+   public static void setQueryCacheTtlMillis(long queryCacheTtlMillis) {
+      if (queryCacheTtlMillis <= 0) {
+         throw new IllegalArgumentException("queryCacheTtlMillis must be positive: " + queryCacheTtlMillis);
+      }
+      q2o.queryCacheTtlMillis = queryCacheTtlMillis;
+   }
+
+   static boolean isDirtyTracking() {
+      return dirtyTracking;
+   }
+
+   /**
+    * @param dirtyTracking If true, the values of objects read, inserted or updated by q2o are remembered, and {@link Q2Obj#update(Object)} writes only the columns changed since then. If nothing changed no statement is executed. Objects without remembered values are updated with all columns, as are objects streamed, iterated or handed to a forEach consumer, whose values are not remembered so large reads allocate nothing per row for it. Defaults to false or system property "com.zaxxer.q2o.dirtyTracking".
+    */
+   public static void setDirtyTracking(boolean dirtyTracking) {
+      q2o.dirtyTracking = dirtyTracking;
    }
 
    static boolean isMySqlMode() {
@@ -63,6 +63,7 @@ public class TxTransaction implements Transaction
                synchronizations.forEach(s -> s.afterCompletion(Status.STATUS_COMMITTED));
          }
          catch (SQLException e) {
+            synchronizations.forEach(s -> s.afterCompletion(Status.STATUS_UNKNOWN));
             final SystemException systemException = new SystemException("Exception committing connection " + connection.toString());
             systemException.initCause(e);
             throw systemException;
@@ -86,6 +87,7 @@ public class TxTransaction implements Transaction
             throw systemException;
          }
          finally {
+            synchronizations.forEach(s -> s.afterCompletion(Status.STATUS_ROLLEDBACK));
             cleanup();
          }
       }
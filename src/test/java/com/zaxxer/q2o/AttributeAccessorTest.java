@@ -0,0 +1,91 @@
+package com.zaxxer.q2o;
+
+import org.junit.Test;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Id;
+
+import static org.junit.Assert.*;
+
+public class AttributeAccessorTest {
+
+   public static class FieldAccessed {
+      @Id
+      int id;
+      long amount;
+      double ratio;
+      String note;
+   }
+
+   @Access(AccessType.PROPERTY)
+   public static class PropertyAccessed {
+      private long amount;
+
+      public long getAmount() {
+         return amount;
+      }
+
+      public void setAmount(long amount) {
+         this.amount = amount;
+      }
+   }
+
+   @Test
+   public void primitiveAccessors() {
+      Introspected introspected = Introspected.getInstance(FieldAccessed.class);
+      FieldAccessed obj = new FieldAccessed();
+      AttributeInfo id = introspected.getFieldColumnInfo("id");
+      AttributeInfo amount = introspected.getFieldColumnInfo("amount");
+      AttributeInfo ratio = introspected.getFieldColumnInfo("ratio");
+      assertTrue(id.hasPrimitiveAccessors());
+      assertFalse(introspected.getFieldColumnInfo("note").hasPrimitiveAccessors());
+
+      id.setInt(obj, 5);
+      amount.setLong(obj, 7L);
+      ratio.setDouble(obj, 0.5);
+      assertEquals(5, obj.id);
+      assertEquals(5, id.getInt(obj));
+      assertEquals(7L, amount.getLong(obj));
+      assertEquals(0.5, ratio.getDouble(obj), 0);
+   }
+
+   @Test
+   public void setValueWidensLikeReflection() throws Exception {
+      Introspected introspected = Introspected.getInstance(FieldAccessed.class);
+      FieldAccessed obj = new FieldAccessed();
+      AttributeInfo amount = introspected.getFieldColumnInfo("amount");
+      amount.setValue(obj, 3);
+      assertEquals(3L, obj.amount);
+      assertEquals(3L, amount.getValue(obj));
+      try {
+         introspected.getFieldColumnInfo("id").setValue(obj, 3L);
+         fail();
+      }
+      catch (IllegalArgumentException ignored) {
+      }
+      try {
+         amount.setValue(obj, null);
+         fail();
+      }
+      catch (IllegalArgumentException ignored) {
+      }
+      try {
+         introspected.getFieldColumnInfo("note").setValue(obj, 1);
+         fail();
+      }
+      catch (IllegalArgumentException ignored) {
+      }
+   }
+
+   @Test
+   public void propertyAccessors() throws Exception {
+      AttributeInfo amount = Introspected.getInstance(PropertyAccessed.class).getFieldColumnInfo("amount");
+      PropertyAccessed obj = new PropertyAccessed();
+      assertTrue(amount.hasPrimitiveAccessors());
+      amount.setLong(obj, 11L);
+      assertEquals(11L, obj.getAmount());
+      amount.setValue(obj, 12L);
+      assertEquals(12L, amount.getValue(obj));
+   }
+}
@@ -0,0 +1,129 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+import org.sansorm.testutils.Database;
+import org.sansorm.testutils.GeneralTestConfigurator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchedWriteTest extends GeneralTestConfigurator {
+
+   @Parameterized.Parameters(name = "springTxSupport={0}, database={1}")
+   public static Collection<Object[]> data() {
+      return databases();
+   }
+
+   @Override
+   @Before
+   public void setUp() throws Exception {
+      super.setUp();
+      Note.createTable(database);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception {
+      try {
+         Note.dropTable();
+         q2o.setBatchSize(1000);
+      }
+      finally {
+         super.tearDown();
+      }
+   }
+
+   private static List<Note> insert(int count) {
+      List<Note> objs = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         objs.add(new Note("note" + i));
+      }
+      Q2ObjList.insertNotBatched(objs);
+      return objs;
+   }
+
+   @Test
+   public void updateBatchedInChunks() {
+      q2o.setBatchSize(2);
+      List<Note> objs = insert(5);
+      objs.forEach(obj -> obj.setNote("updated" + obj.getId()));
+
+      assertThat(Q2ObjList.updateBatched(objs)).containsExactly(2, 2, 1);
+      assertThat(Q2Obj.byId(Note.class, objs.get(4).getId()).getNote()).isEqualTo("updated" + objs.get(4).getId());
+      assertThat(Q2ObjList.updateBatched(new ArrayList<Note>())).isEmpty();
+   }
+
+   @Test
+   public void deleteBatchedInChunks() {
+      q2o.setBatchSize(3);
+      List<Note> objs = insert(5);
+
+      assertThat(Q2ObjList.deleteBatched(objs.subList(0, 4))).containsExactly(3, 1);
+      assertThat(Q2Obj.countFromClause(Note.class, null)).isEqualTo(1);
+      assertThat(Q2ObjList.deleteBatched(objs.subList(0, 1))).containsExactly(0);
+   }
+
+   /**
+    * MERGE on H2, ON CONFLICT on PostgreSQL, ON DUPLICATE KEY on MySQL. Not supported on SQLite.
+    */
+   @Test
+   public void upsertBatched() {
+      q2o.setBatchSize(0);
+      List<Note> objs = insert(2);
+      objs.get(0).setNote("changed");
+      Note added = new Note("added");
+      added.setId(objs.get(1).getId() + 10);
+      List<Note> upserted = Arrays.asList(objs.get(0), objs.get(1), added);
+
+      if (database == Database.sqlite) {
+         assertThatThrownBy(() -> Q2ObjList.upsertBatched(upserted)).hasMessageContaining("Upsert is supported for");
+         return;
+      }
+      // MySQL counts a row changed by ON DUPLICATE KEY UPDATE twice.
+      assertThat(Q2ObjList.upsertBatched(upserted)).containsExactly(database == Database.mysql ? 4 : 3);
+      assertThat(Q2Obj.countFromClause(Note.class, null)).isEqualTo(3);
+      assertThat(Q2Obj.byId(Note.class, objs.get(0).getId()).getNote()).isEqualTo("changed");
+      assertThat(Q2Obj.byId(Note.class, objs.get(1).getId()).getNote()).isEqualTo("note1");
+      assertThat(Q2Obj.byId(Note.class, added.getId()).getNote()).isEqualTo("added");
+   }
+
+   @Test
+   public void insertBatchedInChunks() {
+      q2o.setBatchSize(4);
+      List<Note> objs = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+         objs.add(new Note("batched" + i));
+      }
+      Q2ObjList.insertBatched(objs);
+      assertThat(Q2Obj.countFromClause(Note.class, "note LIKE ?", "batched%")).isEqualTo(10);
+   }
+
+   @Test
+   public void insertBatchedFillsGeneratedIds() {
+      q2o.setBatchSize(3);
+      List<Note> objs = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+         objs.add(new Note("generated" + i));
+      }
+      Q2ObjList.insertBatched(objs);
+      if (database == Database.sqlite) {
+         // The SQLite driver returns only the key of the last row of a batch, so only the id of the single row chunk is set.
+         assertThat(objs.subList(0, 6)).extracting(Note::getId).containsOnly(0);
+         assertThat(Q2Obj.byId(Note.class, objs.get(6).getId()).getNote()).isEqualTo("generated6");
+         return;
+      }
+      for (Note obj : objs) {
+         assertThat(obj.getId()).isPositive();
+         assertThat(Q2Obj.byId(Note.class, obj.getId()).getNote()).isEqualTo(obj.getNote());
+      }
+   }
+}
@@ -0,0 +1,125 @@
+package com.zaxxer.q2o;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+
+   @Test
+   public void countsHitsMissesAndEvictions() {
+      BoundedCache<String, String> cache = new BoundedCache<>(2);
+      assertEquals("A", cache.computeIfAbsent("a", String::toUpperCase));
+      assertEquals("A", cache.computeIfAbsent("a", key -> "not called"));
+      assertNull(cache.get("b"));
+      cache.put("b", "B");
+      cache.put("c", "C");
+
+      CacheStatistics statistics = cache.getStatistics();
+      assertEquals(1, statistics.getHits());
+      assertEquals(2, statistics.getMisses());
+      assertEquals(1, statistics.getEvictions());
+      assertEquals(2, statistics.getSize());
+   }
+
+   @Test
+   public void referencedEntriesGetASecondChance() {
+      BoundedCache<String, String> cache = new BoundedCache<>(2);
+      cache.put("a", "A");
+      cache.put("b", "B");
+      cache.get("a");
+      cache.put("c", "C");
+
+      assertEquals("A", cache.get("a"));
+      assertNull(cache.get("b"));
+      assertEquals("C", cache.get("c"));
+   }
+
+   @Test
+   public void removesMatchingEntries() {
+      BoundedCache<String, String> cache = new BoundedCache<>(2);
+      cache.put("a", "A");
+      cache.put("b", "B");
+      cache.remove("a", "other");
+      cache.removeIf("B"::equals);
+      assertEquals("A", cache.get("a"));
+      assertNull(cache.get("b"));
+
+      cache.put("c", "C");
+      cache.put("d", "D");
+      assertEquals(2, cache.size());
+   }
+
+   @Test
+   public void clockStaysBoundedUnderChurn() {
+      BoundedCache<String, String> cache = new BoundedCache<>(10);
+      for (int i = 0; i < 10_000; i++) {
+         String value = "v" + i;
+         cache.put("k" + (i % 3), value);
+         cache.remove("k" + (i % 3), value);
+         cache.put("r" + (i % 5), value);
+      }
+      assertEquals(5, cache.size());
+      assertTrue(cache.clockLength() <= 2 * 10 + 1);
+      assertEquals(0, cache.getStatistics().getEvictions());
+   }
+
+   @Test
+   public void replacedEntriesAreEvictedOnce() {
+      BoundedCache<String, String> cache = new BoundedCache<>(2);
+      cache.put("a", "A");
+      cache.put("a", "A2");
+      cache.put("b", "B");
+      cache.put("c", "C");
+      assertNull(cache.get("a"));
+      assertEquals("B", cache.get("b"));
+      assertEquals("C", cache.get("c"));
+      assertEquals(1, cache.getStatistics().getEvictions());
+   }
+
+   @Test
+   public void clearResetsCounters() {
+      BoundedCache<String, String> cache = new BoundedCache<>(2);
+      cache.put("a", "A");
+      cache.get("a");
+      cache.clear();
+      assertNull(cache.get("a"));
+      CacheStatistics statistics = cache.getStatistics();
+      assertEquals(0, statistics.getHits());
+      assertEquals(1, statistics.getMisses());
+      assertEquals(0, statistics.getSize());
+   }
+
+   @Test
+   public void staysBoundedUnderConcurrentInsertions() throws Exception {
+      BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 8; t++) {
+            final int offset = t * 10_000;
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < 10_000; i++) {
+                  assertEquals(Integer.valueOf(offset + i), cache.computeIfAbsent(offset + i, key -> key));
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      }
+      finally {
+         executor.shutdown();
+         executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+      assertTrue(cache.size() <= 100 + 8);
+      assertEquals(80_000 - cache.size(), cache.getStatistics().getEvictions());
+   }
+}
@@ -0,0 +1,118 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Item;
+import com.zaxxer.q2o.entities.Item.Kind;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+import org.sansorm.testutils.GeneralTestConfigurator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk loads with COPY on PostgreSQL and LOAD DATA LOCAL INFILE on MySQL, batched inserts on the other databases.
+ */
+public class BulkLoaderTest extends GeneralTestConfigurator {
+
+   @Parameterized.Parameters(name = "springTxSupport={0}, database={1}")
+   public static Collection<Object[]> data() {
+      return databases();
+   }
+
+   private final List<Item> objs = Arrays.asList(
+      item("a \"quoted\", comma", new BigDecimal("1E+2"), true, Timestamp.valueOf("2019-01-02 03:04:05.6"), Kind.LARGE),
+      item("back\\slash\nnewline", null, false, null, null),
+      item("", BigDecimal.ONE, null, null, Kind.SMALL));
+
+   @Override
+   @Before
+   public void setUp() throws Exception {
+      super.setUp();
+      Item.createTable(database);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception {
+      try {
+         Item.dropTable();
+         q2o.setBulkLoad(false);
+      }
+      finally {
+         super.tearDown();
+      }
+   }
+
+   private static Item item(String note, BigDecimal price, Boolean active, Timestamp created, Kind kind) {
+      Item item = new Item();
+      item.setNote(note);
+      item.setPrice(price);
+      item.setActive(active);
+      item.setCreated(created);
+      item.setKind(kind);
+      return item;
+   }
+
+   private static String csv(List<Item> objs, Dialect dialect) throws IOException {
+      AttributeInfo[] fcInfos = Introspected.getInstance(Item.class).getInsertableFcInfos();
+      String[] columns = Arrays.stream(fcInfos).map(AttributeInfo::getColumnName).toArray(String[]::new);
+      assertThat(columns).containsExactly("note", "amount", "price", "active", "created", "kind", "color");
+      return IOUtils.toString(BulkLoader.csv(objs, fcInfos, dialect), StandardCharsets.UTF_8);
+   }
+
+   @Test
+   public void postgresCsv() throws IOException {
+      assertThat(csv(objs, Dialect.POSTGRESQL)).isEqualTo(
+         "\"a \"\"quoted\"\", comma\",,100,true,\"2019-01-02 03:04:05.6\",1,\n" +
+         "\"back\\slash\nnewline\",,,false,,,\n" +
+         "\"\",,1,,,0,\n");
+   }
+
+   @Test
+   public void mySqlCsv() throws IOException {
+      assertThat(csv(objs, Dialect.MYSQL)).isEqualTo(
+         "\"a \\\"quoted\\\", comma\",\\N,100,1,\"2019-01-02 03:04:05.6\",1,\\N\n" +
+         "\"back\\\\slash\\nnewline\",\\N,\\N,0,\\N,\\N,\\N\n" +
+         "\"\",\\N,1,\\N,\\N,0,\\N\n");
+   }
+
+   @Test
+   public void manyRowsSpanBuffers() throws IOException {
+      List<Item> many = new ArrayList<>();
+      for (int i = 0; i < 2500; i++) {
+         many.add(item("n" + i, null, null, null, null));
+      }
+      String[] lines = csv(many, Dialect.POSTGRESQL).split("\n");
+      assertThat(lines).hasSize(2500);
+      assertThat(lines[2499]).isEqualTo("\"n2499\",,,,,,");
+   }
+
+   @Test
+   public void insertBatchedLoadsAllRows() {
+      q2o.setBulkLoad(true);
+      Q2ObjList.insertBatched(objs);
+      assertThat(Q2Obj.countFromClause(Item.class, null)).isEqualTo(3);
+      // SQLite returns DECIMAL values as Integer or Double, which q2o does not convert to BigDecimal, so prices are read as numbers.
+      String select = "SELECT " + Q2Sql.getColumnsCsvExclude(Item.class, "price") + " FROM ITEM WHERE active = ?";
+      Item read = Q2ObjList.fromSelect(Item.class, select, false).get(0);
+      assertThat(read.getNote()).isEqualTo("back\\slash\nnewline");
+      assertThat(read.getKind()).isNull();
+      assertThat(Q2Sql.numberFromSql("SELECT price FROM ITEM WHERE active = ?", false)).isNull();
+      read = Q2ObjList.fromSelect(Item.class, select, true).get(0);
+      assertThat(read.getNote()).isEqualTo("a \"quoted\", comma");
+      assertThat(read.getCreated()).isEqualTo(Timestamp.valueOf("2019-01-02 03:04:05.6"));
+      assertThat(read.getKind()).isEqualTo(Kind.LARGE);
+      assertThat(Q2Sql.numberFromSql("SELECT price FROM ITEM WHERE active = ?", true).intValue()).isEqualTo(100);
+   }
+}
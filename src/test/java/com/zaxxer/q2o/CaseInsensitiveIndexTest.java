@@ -0,0 +1,49 @@
+package com.zaxxer.q2o;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CaseInsensitiveIndexTest {
+
+   @Test
+   public void ignoresCase() {
+      Map<String, Integer> entries = new HashMap<>();
+      entries.put("id", 1);
+      entries.put("Last_Name", 2);
+      CaseInsensitiveIndex<Integer> index = new CaseInsensitiveIndex<>(entries);
+      assertEquals(Integer.valueOf(1), index.get("ID"));
+      assertEquals(Integer.valueOf(2), index.get("last_name"));
+      assertEquals(Integer.valueOf(2), index.get("LAST_NAME"));
+      assertNull(index.get("first_name"));
+      assertNull(index.get(null));
+   }
+
+   @Test
+   public void keepsFirstOfKeysEqualIgnoringCase() {
+      Map<String, Integer> entries = new LinkedHashMap<>();
+      entries.put("table", 1);
+      entries.put("TABLE", 2);
+      CaseInsensitiveIndex<Integer> index = new CaseInsensitiveIndex<>(entries);
+      assertEquals(1, index.size());
+      assertEquals(Integer.valueOf(1), index.get("Table"));
+   }
+
+   @Test
+   public void findsAllOfManyKeys() {
+      Map<String, Integer> entries = new HashMap<>();
+      for (int i = 0; i < 1000; i++) {
+         entries.put("column_" + i, i);
+      }
+      CaseInsensitiveIndex<Integer> index = new CaseInsensitiveIndex<>(entries);
+      assertEquals(1000, index.size());
+      for (int i = 0; i < 1000; i++) {
+         assertEquals(Integer.valueOf(i), index.get("COLUMN_" + i));
+      }
+      assertNull(index.get("column_1000"));
+   }
+}
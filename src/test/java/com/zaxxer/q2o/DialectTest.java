@@ -0,0 +1,27 @@
+package com.zaxxer.q2o;
+
+import org.junit.Test;
+import org.sansorm.DataSources;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+
+public class DialectTest {
+
+   @Test
+   public void rowsPerStatement() {
+      assertEquals(16383, Dialect.H2.getMaxRowsPerInsert(2));
+      assertEquals(333, Dialect.SQLITE.getMaxRowsPerInsert(3));
+      assertEquals(1000, Dialect.SQLSERVER.getMaxRowsPerInsert(1));
+      assertEquals(0, Dialect.OTHER.getMaxRowsPerInsert(1));
+   }
+
+   @Test
+   public void dialectOfSqlite() throws SQLException {
+      try (Connection con = DataSources.getSqLiteDataSource(null).getConnection()) {
+         assertEquals(Dialect.SQLITE, Dialect.of(con));
+      }
+   }
+}
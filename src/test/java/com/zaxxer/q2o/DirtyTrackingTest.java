@@ -0,0 +1,118 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Item;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import java.sql.Timestamp;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DirtyTrackingTest {
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Item.createTable(Database.h2InMemory);
+      q2o.setDirtyTracking(true);
+   }
+
+   @After
+   public void tearDown() {
+      Item.dropTable();
+      q2o.setDirtyTracking(false);
+      q2o.deinitialize();
+   }
+
+   private static int insert() {
+      Item obj = new Item();
+      obj.setNote("inserted");
+      obj.setAmount(1L);
+      obj.setCreated(Timestamp.valueOf("2020-01-01 00:00:00"));
+      return Q2Obj.insert(obj).getId();
+   }
+
+   private static String noteInDb(int id) {
+      return Q2Obj.byId(Item.class, id).getNote();
+   }
+
+   @Test
+   public void onlyChangedColumnsAreWritten() {
+      int id = insert();
+      Item loaded = Q2Obj.byId(Item.class, id);
+      Q2Sql.executeUpdate("UPDATE ITEM SET note = ? WHERE id = ?", "concurrent", id);
+
+      loaded.setAmount(2L);
+      Q2Obj.update(loaded);
+
+      Item reloaded = Q2Obj.byId(Item.class, id);
+      assertEquals(Long.valueOf(2), reloaded.getAmount());
+      assertEquals("concurrent", reloaded.getNote());
+   }
+
+   @Test
+   public void unchangedObjectIsNotWritten() {
+      int id = insert();
+      Item loaded = Q2Obj.byId(Item.class, id);
+      Q2Sql.executeUpdate("UPDATE ITEM SET note = ? WHERE id = ?", "concurrent", id);
+
+      Q2Obj.update(loaded);
+
+      assertEquals("concurrent", noteInDb(id));
+   }
+
+   @Test
+   public void dateChangedInPlaceIsDetected() {
+      int id = insert();
+      Item loaded = Q2Obj.byId(Item.class, id);
+      loaded.getCreated().setTime(Timestamp.valueOf("2021-01-01 00:00:00").getTime());
+
+      Q2Obj.update(loaded);
+
+      assertEquals(Timestamp.valueOf("2021-01-01 00:00:00"), Q2Obj.byId(Item.class, id).getCreated());
+   }
+
+   @Test
+   public void updatedValuesAreRememberedAgain() {
+      int id = insert();
+      Item loaded = Q2Obj.byId(Item.class, id);
+      loaded.setNote("first");
+      Q2Obj.update(loaded);
+      Q2Sql.executeUpdate("UPDATE ITEM SET note = ? WHERE id = ?", "concurrent", id);
+
+      loaded.setAmount(3L);
+      Q2Obj.update(loaded);
+
+      assertEquals("concurrent", noteInDb(id));
+      assertEquals(Long.valueOf(3), Q2Obj.byId(Item.class, id).getAmount());
+   }
+
+   @Test
+   public void objectsNotReadByQ2oAreFullyUpdated() {
+      int id = insert();
+      Item obj = new Item();
+      obj.setId(id);
+      obj.setNote("full");
+      Q2Obj.update(obj);
+
+      Item reloaded = Q2Obj.byId(Item.class, id);
+      assertEquals("full", reloaded.getNote());
+      assertNull(reloaded.getAmount());
+      assertNull(reloaded.getCreated());
+   }
+
+   @Test
+   public void streamedObjectsAreNotRemembered() {
+      int id = insert();
+      Introspected introspected = Introspected.getInstance(Item.class);
+      try (Stream<Item> stream = Q2ObjList.streamFromClause(Item.class, "id = ?", id)) {
+         stream.forEach(obj -> assertNull(DirtyTracker.changedAttributes(introspected, obj)));
+      }
+      Q2ObjList.forEach(Item.class, "id = ?", obj -> assertNull(DirtyTracker.changedAttributes(introspected, obj)), id);
+      assertNotNull(DirtyTracker.changedAttributes(introspected, Q2Obj.byId(Item.class, id)));
+   }
+}
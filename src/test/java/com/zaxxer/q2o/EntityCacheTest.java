@@ -0,0 +1,181 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.CachedNote;
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class EntityCacheTest {
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Note.createTable(Database.h2InMemory);
+      q2o.setEntityCache(EntityCache.lru(100, 60_000));
+   }
+
+   @After
+   public void tearDown() {
+      Note.dropTable();
+      q2o.deinitialize();
+      q2o.setEntityCache(null);
+   }
+
+   private static long insert(String note) {
+      return Q2Obj.insert(new CachedNote(note)).getId();
+   }
+
+   private static void updateBySql(long id, String note) {
+      Q2Sql.executeUpdate("UPDATE NOTE SET note = ? WHERE id = ?", note, id);
+   }
+
+   @Test
+   public void byIdIsReadThrough() {
+      long id = insert("a");
+      CachedNote first = Q2Obj.byId(CachedNote.class, (int) id);
+      updateBySql(id, "by sql");
+      CachedNote second = Q2Obj.byId(CachedNote.class, id);
+
+      assertNotSame(first, second);
+      assertEquals("a", second.getNote());
+      CacheStatistics statistics = q2o.getEntityCacheStatistics();
+      assertEquals(1, statistics.getHits());
+      assertEquals(1, statistics.getMisses());
+      assertEquals(1, statistics.getSize());
+   }
+
+   @Test
+   public void changesOfLoadedEntitiesDoNotReachTheCache() {
+      long id = insert("a");
+      Q2Obj.byId(CachedNote.class, id).setNote("changed");
+      assertEquals("a", Q2Obj.byId(CachedNote.class, id).getNote());
+   }
+
+   @Test
+   public void byIdOfTargetUsesCache() {
+      long id = insert("a");
+      Q2Obj.byId(CachedNote.class, id);
+      updateBySql(id, "by sql");
+      CachedNote target = new CachedNote();
+      target.setId(id);
+      assertSame(target, Q2Obj.byId(target));
+      assertEquals("a", target.getNote());
+   }
+
+   @Test
+   public void updateDeleteAndRefreshEvict() {
+      long id = insert("a");
+      CachedNote obj = Q2Obj.byId(CachedNote.class, id);
+      obj.setNote("updated");
+      Q2Obj.update(obj);
+      assertEquals("updated", Q2Obj.byId(CachedNote.class, id).getNote());
+
+      updateBySql(id, "by sql");
+      Q2Obj.refresh(obj);
+      assertEquals("by sql", obj.getNote());
+      assertEquals("by sql", Q2Obj.byId(CachedNote.class, id).getNote());
+
+      Q2Obj.delete(obj);
+      assertNull(Q2Obj.byId(CachedNote.class, id));
+   }
+
+   @Test
+   public void notCacheableEntitiesAreNotCached() {
+      long id = insert("a");
+      Q2Obj.byId(Note.class, id);
+      updateBySql(id, "by sql");
+      assertEquals("by sql", Q2Obj.byId(Note.class, id).getNote());
+      assertEquals(0, q2o.getEntityCacheStatistics().getSize());
+   }
+
+   @Test
+   public void entriesExpire() throws InterruptedException {
+      q2o.setEntityCache(EntityCache.lru(100, 10));
+      long id = insert("a");
+      Q2Obj.byId(CachedNote.class, id);
+      updateBySql(id, "by sql");
+      Thread.sleep(50);
+      assertEquals("by sql", Q2Obj.byId(CachedNote.class, id).getNote());
+   }
+
+   @Test
+   public void leastRecentlyUsedIsEvicted() {
+      q2o.setEntityCache(EntityCache.lru(2, 60_000));
+      long a = insert("a");
+      long b = insert("b");
+      long c = insert("c");
+      Q2Obj.byId(CachedNote.class, a);
+      Q2Obj.byId(CachedNote.class, b);
+      Q2Obj.byId(CachedNote.class, a);
+      Q2Obj.byId(CachedNote.class, c);
+      updateBySql(a, "by sql");
+      updateBySql(b, "by sql");
+
+      assertEquals("a", Q2Obj.byId(CachedNote.class, a).getNote());
+      assertEquals("by sql", Q2Obj.byId(CachedNote.class, b).getNote());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void timeToLiveIsMandatory() {
+      EntityCache.lru(100, 0);
+   }
+
+   @Test
+   public void readsInTransactionAreNotPut() throws SQLException {
+      long id = insert("a");
+      try (Connection connection = q2o.dataSource.getConnection()) {
+         connection.setAutoCommit(false);
+         assertEquals("a", Q2Obj.byId(connection, CachedNote.class, id).getNote());
+         connection.rollback();
+      }
+      assertEquals(0, q2o.getEntityCacheStatistics().getSize());
+   }
+
+   @Test
+   public void readRacingWithWriteIsNotPut() throws SQLException {
+      long id = insert("a");
+      Introspected introspected = Introspected.getInstance(CachedNote.class);
+      long generation = SecondLevelCache.generation(introspected);
+      CachedNote stale = Q2Obj.byId(CachedNote.class, id);
+      q2o.getEntityCache().clear();
+      CachedNote obj = new CachedNote();
+      obj.setId(id);
+      obj.setNote("updated");
+      Q2Obj.update(obj);
+
+      try (Connection connection = q2o.dataSource.getConnection()) {
+         SecondLevelCache.put(connection, introspected, stale, generation);
+      }
+      assertEquals("updated", Q2Obj.byId(CachedNote.class, id).getNote());
+   }
+
+   @Test
+   public void writeInTransactionIsEvictedAfterCommit() throws SQLException {
+      DataSource plain = DataSources.getH2ImMemoryDataSource(true);
+      q2o.initializeTxSimple(plain);
+      q2o.setEntityCache(EntityCache.lru(100, 60_000));
+      long id = insert("a");
+      try (Connection autoCommit = plain.getConnection()) {
+         SqlClosure.sqlExecute(connection -> {
+            CachedNote obj = Q2Obj.byId(connection, CachedNote.class, id);
+            obj.setNote("updated");
+            Q2Obj.update(connection, obj);
+            // Another connection still reads the committed row, which must not be cached.
+            assertEquals("a", Q2Obj.byId(autoCommit, CachedNote.class, id).getNote());
+            assertEquals(0, q2o.getEntityCacheStatistics().getSize());
+            return null;
+         });
+         assertEquals("updated", Q2Obj.byId(autoCommit, CachedNote.class, id).getNote());
+         assertEquals(1, q2o.getEntityCacheStatistics().getSize());
+      }
+   }
+}
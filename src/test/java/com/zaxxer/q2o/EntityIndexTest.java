@@ -0,0 +1,109 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.CachedNote;
+import com.zaxxer.q2o.entities.Note;
+import com.zaxxer.q2o.processor.EntityIndexProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sansorm.DataSources;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * As if generated for {@link EntityIndexTest.Sample}, counting its calls.
+ */
+final class EntityIndexTest_Sample_Q2oAccessor implements GeneratedAccessor {
+   static int calls;
+
+   public EntityIndexTest_Sample_Q2oAccessor() {
+   }
+
+   @Override
+   public int indexOf(String fieldName) {
+      return "note".equals(fieldName) ? 0 : -1;
+   }
+
+   @Override
+   public Object get(int index, Object target) {
+      calls++;
+      return ((EntityIndexTest.Sample) target).note;
+   }
+
+   @Override
+   public void set(int index, Object target, Object value) {
+      calls++;
+      ((EntityIndexTest.Sample) target).note = (String) value;
+   }
+}
+
+public class EntityIndexTest {
+
+   public static class Sample {
+      String note;
+      int count;
+   }
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void loadsIndexedClassesSkippingUnknownOnes() throws IOException {
+      File index = new File(folder.getRoot(), EntityIndexProcessor.INDEX);
+      index.getParentFile().mkdirs();
+      String content = CachedNote.class.getName() + "\ncom.example.Deleted\n\n";
+      Files.write(index.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+      try (URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader())) {
+         List<Class<?>> classes = EntityIndex.load(classLoader);
+         assertTrue(classes.contains(CachedNote.class));
+         assertEquals(1, classes.stream().filter(CachedNote.class::equals).count());
+      }
+   }
+
+   @Test
+   public void indexedEntitiesAreWarmedUpByEveryInitialization() throws IOException {
+      File index = new File(folder.getRoot(), EntityIndexProcessor.INDEX);
+      index.getParentFile().mkdirs();
+      Files.write(index.toPath(), Note.class.getName().getBytes(StandardCharsets.UTF_8));
+
+      ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      try (URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader())) {
+         Thread.currentThread().setContextClassLoader(classLoader);
+         q2o.setEntityIndex(true);
+         for (int i = 0; i < 2; i++) {
+            q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+            assertTrue(q2o.getStatementCacheStatistics().getSize() > 0);
+         }
+      }
+      finally {
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+         q2o.setEntityIndex(false);
+         q2o.deinitialize();
+      }
+   }
+
+   @Test
+   public void fieldsAreAccessedThroughGeneratedAccessor() throws Throwable {
+      Sample sample = new Sample();
+      AttributeAccessor note = AttributeAccessor.forField(Sample.class.getDeclaredField("note"));
+      note.set(sample, "a");
+      assertEquals("a", note.get(sample));
+      assertEquals(2, EntityIndexTest_Sample_Q2oAccessor.calls);
+
+      // Not known to the accessor.
+      AttributeAccessor count = AttributeAccessor.forField(Sample.class.getDeclaredField("count"));
+      count.set(sample, 3);
+      assertEquals(3, sample.count);
+      assertEquals(2, EntityIndexTest_Sample_Q2oAccessor.calls);
+   }
+}
@@ -0,0 +1,64 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ForEachTest {
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Note.createTable(Database.h2InMemory);
+      Q2Sql.executeUpdate("INSERT INTO NOTE VALUES (1, 'one'), (2, 'two'), (3, NULL)");
+   }
+
+   @After
+   public void tearDown() {
+      Note.dropTable();
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void forEach() {
+      List<Note> objs = new ArrayList<>();
+      Q2ObjList.forEach(Note.class, "id > ? ORDER BY id", objs::add, 1);
+      assertEquals(2, objs.size());
+      assertNotSame(objs.get(0), objs.get(1));
+      assertEquals("two", objs.get(0).getNote());
+      assertNull(objs.get(1).getNote());
+   }
+
+   @Test
+   public void reuseInstance() {
+      List<Note> objs = new ArrayList<>();
+      List<String> notes = new ArrayList<>();
+      Q2ObjList.forEach(Note.class, "id > 0 ORDER BY id", Collections.emptySet(), true, obj -> {
+         objs.add(obj);
+         notes.add(obj.getNote());
+      });
+      assertEquals(3, objs.size());
+      assertSame(objs.get(0), objs.get(2));
+      assertEquals("one", notes.get(0));
+      assertEquals("two", notes.get(1));
+      assertNull(notes.get(2));
+   }
+
+   @Test
+   public void ignoredColumns() {
+      List<Note> objs = new ArrayList<>();
+      Q2ObjList.forEach(Note.class, "id = ?", Collections.singleton("NOTE"), false, objs::add, 1);
+      assertEquals(1, objs.size());
+      assertEquals(1, objs.get(0).getId());
+      assertNull(objs.get(0).getNote());
+   }
+}
@@ -0,0 +1,230 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import com.zaxxer.q2o.entities.SequenceNote;
+import com.zaxxer.q2o.entities.TableGeneratedNote;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+import org.sansorm.testutils.Database;
+import org.sansorm.testutils.GeneralTestConfigurator;
+
+import javax.persistence.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Sequences are taken with NEXT VALUE FOR on H2 and nextval() on PostgreSQL. MySQL and SQLite have none, so only the table generator is tested there.
+ */
+public class IdAllocatorTest extends GeneralTestConfigurator {
+
+   @Table(name = "SEQUENCE_NOTE")
+   public static class MismatchTest {
+      @Id
+      @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mismatchGen")
+      @SequenceGenerator(name = "mismatchGen", sequenceName = "MISMATCH_SEQ")
+      long id;
+      @Column(name = "note")
+      String note;
+   }
+
+   @Table(name = "TABLE_GENERATED_NOTE")
+   public static class FailingGeneratorTest {
+      @Id
+      @GeneratedValue(strategy = GenerationType.TABLE, generator = "failingGen")
+      @TableGenerator(name = "failingGen", table = "FAILING_GEN", pkColumnName = "GEN_NAME", valueColumnName = "GEN_VALUE")
+      Integer id;
+      @Column(name = "note")
+      String note;
+   }
+
+   @Parameterized.Parameters(name = "springTxSupport={0}, database={1}")
+   public static Collection<Object[]> data() {
+      return databases();
+   }
+
+   @Override
+   @Before
+   public void setUp() throws Exception {
+      super.setUp();
+      if (hasSequences()) {
+         SequenceNote.createTable();
+      }
+      TableGeneratedNote.createTable();
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception {
+      try {
+         if (hasSequences()) {
+            SequenceNote.dropTable();
+         }
+         TableGeneratedNote.dropTable();
+         q2o.setBatchSize(1000);
+      }
+      finally {
+         super.tearDown();
+         IdAllocator.clearPools();
+      }
+   }
+
+   private boolean hasSequences() {
+      return database == Database.h2Server || database == Database.postgresql;
+   }
+
+   private static List<SequenceNote> newSequenceNotes(int count) {
+      List<SequenceNote> objs = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         objs.add(new SequenceNote("note" + i));
+      }
+      return objs;
+   }
+
+   @Test
+   public void sequenceIdsAreAssignedBeforeInsert() {
+      assumeTrue(hasSequences());
+      q2o.setBatchSize(4);
+      List<SequenceNote> objs = newSequenceNotes(25);
+      Q2ObjList.insertBatched(objs);
+      for (int i = 0; i < 25; i++) {
+         assertThat(objs.get(i).getId()).isEqualTo(i + 1);
+         assertThat(Q2Obj.byId(SequenceNote.class, objs.get(i).getId()).getNote()).isEqualTo("note" + i);
+      }
+
+      SequenceNote single = Q2Obj.insert(newSequenceNotes(1).get(0));
+      assertThat(single.getId()).isEqualTo(26);
+      // Three trips for 26 ids.
+      String nextValue = database == Database.postgresql ? "SELECT nextval('SEQUENCE_NOTE_SEQ')" : "SELECT NEXT VALUE FOR SEQUENCE_NOTE_SEQ";
+      assertThat(Q2Sql.numberFromSql(nextValue).intValue()).isEqualTo(31);
+   }
+
+   @Test
+   public void idsSetByTheApplicationAreKept() {
+      assumeTrue(hasSequences());
+      SequenceNote obj = new SequenceNote("note0");
+      obj.setId(100);
+      Q2Obj.insert(obj);
+      assertThat(obj.getId()).isEqualTo(100);
+      assertThat(Q2Obj.byId(SequenceNote.class, 100).getNote()).isEqualTo("note0");
+   }
+
+   @Test
+   public void tableIdsAreAssignedBeforeInsert() {
+      List<TableGeneratedNote> objs = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+         objs.add(new TableGeneratedNote("note" + i));
+      }
+      Q2ObjList.insertNotBatched(objs);
+      for (int i = 0; i < 7; i++) {
+         assertThat(objs.get(i).getId()).isEqualTo(i + 1);
+      }
+      assertThat(Q2Obj.countFromClause(TableGeneratedNote.class, null)).isEqualTo(7);
+      assertThat(Q2Sql.numberFromSql("SELECT GEN_VALUE FROM ID_GEN WHERE GEN_NAME = ?", "tableGeneratedNoteGen").intValue()).isEqualTo(10);
+   }
+
+   @Test
+   public void concurrentAllocationsAreDistinct() throws Exception {
+      assumeTrue(hasSequences());
+      IdAllocator idAllocator = Introspected.getInstance(SequenceNote.class).getIdAllocator();
+      assertThat(idAllocator).isNotNull();
+      Set<Long> ids = ConcurrentHashMap.newKeySet();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> SqlClosure.sqlExecute(connection -> {
+               for (int i = 0; i < 250; i++) {
+                  assertThat(ids.add(idAllocator.next(connection))).isTrue();
+               }
+               return null;
+            })));
+         }
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      }
+      finally {
+         executor.shutdown();
+      }
+      assertThat(ids).hasSize(1000);
+   }
+
+   @Test
+   public void identityIdsHaveNoAllocator() {
+      assertThat(Introspected.getInstance(Note.class).getIdAllocator()).isNull();
+      assertThat(Introspected.getInstance(Note.class).hasGeneratedId()).isTrue();
+      assertThat(Introspected.getInstance(SequenceNote.class).hasGeneratedId()).isFalse();
+   }
+
+   /**
+    * Not on SQLite, whose single connection can not reserve ids in a transaction of its own.
+    */
+   @Test
+   public void tableReservationSurvivesRollback() throws Exception {
+      assumeTrue(database != Database.sqlite);
+      try (Connection connection = q2o.dataSource.getConnection()) {
+         connection.setAutoCommit(false);
+         TableGeneratedNote obj = new TableGeneratedNote("rolled back");
+         Q2Obj.insert(connection, obj);
+         assertThat(obj.getId()).isEqualTo(1);
+         connection.rollback();
+      }
+      assertThat(Q2Obj.countFromClause(TableGeneratedNote.class, null)).isEqualTo(0);
+      assertThat(Q2Sql.numberFromSql("SELECT GEN_VALUE FROM ID_GEN WHERE GEN_NAME = ?", "tableGeneratedNoteGen").intValue()).isEqualTo(5);
+   }
+
+   @Test
+   public void tableReservationSurvivesRollbackOfManagedTransaction() {
+      assumeTrue(database != Database.sqlite);
+      q2o.initializeTxSimple(dataSource);
+      assertThatThrownBy(() -> SqlClosure.sqlExecute(connection -> {
+         Q2Obj.insert(connection, new TableGeneratedNote("rolled back"));
+         throw new IllegalStateException("roll back");
+      })).isInstanceOf(IllegalStateException.class);
+      assertThat(Q2Obj.countFromClause(TableGeneratedNote.class, null)).isEqualTo(0);
+      assertThat(Q2Sql.numberFromSql("SELECT GEN_VALUE FROM ID_GEN WHERE GEN_NAME = ?", "tableGeneratedNoteGen").intValue()).isEqualTo(5);
+   }
+
+   @Test
+   public void sequenceIncrementMustMatchAllocationSize() {
+      assumeTrue(hasSequences());
+      Q2Sql.executeUpdate("CREATE SEQUENCE MISMATCH_SEQ START WITH 1 INCREMENT BY 1");
+      try {
+         MismatchTest obj = new MismatchTest();
+         obj.note = "note";
+         assertThatThrownBy(() -> Q2Obj.insert(obj)).hasMessageContaining("incremented by 1");
+      }
+      finally {
+         Q2Sql.executeUpdate("DROP SEQUENCE MISMATCH_SEQ");
+      }
+   }
+
+   /**
+    * The generator row can not be inserted, as a column the generator does not know is NOT NULL.
+    */
+   @Test(timeout = 10_000)
+   public void failingInsertOfGeneratorRowIsThrown() {
+      Q2Sql.executeUpdate("CREATE TABLE FAILING_GEN (GEN_NAME VARCHAR(64) NOT NULL PRIMARY KEY, GEN_VALUE BIGINT, REQUIRED VARCHAR(1) NOT NULL)");
+      try {
+         assertThatThrownBy(() -> Q2Obj.insert(new FailingGeneratorTest())).hasRootCauseInstanceOf(SQLException.class);
+         assertThat(Q2Obj.countFromClause(TableGeneratedNote.class, null)).isEqualTo(0);
+      }
+      finally {
+         Q2Sql.executeUpdate("DROP TABLE FAILING_GEN");
+      }
+   }
+}
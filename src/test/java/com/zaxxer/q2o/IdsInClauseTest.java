@@ -0,0 +1,102 @@
+package com.zaxxer.q2o;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IdsInClauseTest {
+
+   @Table(name = "INCLAUSETEST")
+   public static class InClauseTest {
+      @Id
+      @Column(name = "id1")
+      int id1;
+      @Id
+      @Column(name = "id2")
+      String id2;
+   }
+
+   private JdbcDataSource ds;
+
+   @Before
+   public void setUp() {
+      ds = DataSources.getH2ImMemoryDataSource(true);
+      q2o.initializeTxNone(ds);
+      Q2Sql.executeUpdate("CREATE TABLE INCLAUSETEST (id1 INTEGER NOT NULL, id2 VARCHAR(10) NOT NULL, PRIMARY KEY (id1, id2))");
+   }
+
+   @After
+   public void tearDown() {
+      Q2Sql.executeUpdate("DROP TABLE INCLAUSETEST");
+      q2o.setMaxInClauseParameters(1000);
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void bucketSizes() {
+      assertEquals(1, IdsInClause.bucketSize(0));
+      assertEquals(1, IdsInClause.bucketSize(1));
+      assertEquals(2, IdsInClause.bucketSize(2));
+      assertEquals(4, IdsInClause.bucketSize(3));
+      assertEquals(8, IdsInClause.bucketSize(5));
+      assertEquals(1024, IdsInClause.bucketSize(1000));
+   }
+
+   @Test
+   public void singleIdsArePaddedAndChunked() throws SQLException {
+      q2o.setMaxInClauseParameters(6);
+      List<Object[]> ids = new ArrayList<>();
+      for (int i = 0; i < 9; i++) {
+         ids.add(new Object[]{i});
+      }
+      try (Connection con = ds.getConnection()) {
+         List<IdsInClause> clauses = IdsInClause.forIds(con, new String[]{"id"}, ids);
+         assertEquals(2, clauses.size());
+         assertEquals("id IN (?,?,?,?,?,?)", clauses.get(0).getCondition());
+         assertArrayEquals(new Object[]{0, 1, 2, 3, 4, 5}, clauses.get(0).getArgs());
+         assertEquals("id IN (?,?,?,?)", clauses.get(1).getCondition());
+         assertArrayEquals(new Object[]{6, 7, 8, 8}, clauses.get(1).getArgs());
+         assertTrue(IdsInClause.forIds(con, new String[]{"id"}, new ArrayList<>()).isEmpty());
+      }
+   }
+
+   @Test
+   public void compositeIds() throws SQLException {
+      List<Object[]> ids = Arrays.asList(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"});
+      try (Connection con = ds.getConnection()) {
+         List<IdsInClause> clauses = IdsInClause.forIds(con, new String[]{"id1", "id2"}, ids);
+         assertEquals(1, clauses.size());
+         assertEquals("((id1=? AND id2=?) OR (id1=? AND id2=?) OR (id1=? AND id2=?) OR (id1=? AND id2=?))", clauses.get(0).getCondition());
+         assertArrayEquals(new Object[]{1, "a", 2, "b", 3, "c", 3, "c"}, clauses.get(0).getArgs());
+      }
+   }
+
+   @Test
+   public void deleteInChunks() {
+      q2o.setMaxInClauseParameters(4);
+      List<InClauseTest> objs = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+         InClauseTest obj = new InClauseTest();
+         obj.id1 = i;
+         obj.id2 = "x" + i;
+         objs.add(obj);
+      }
+      Q2ObjList.insertBatched(objs);
+
+      assertEquals(5, Q2ObjList.delete(objs.subList(0, 5)));
+      assertEquals(2, Q2Obj.countFromClause(InClauseTest.class, null));
+   }
+}
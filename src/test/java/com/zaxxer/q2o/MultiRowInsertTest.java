@@ -0,0 +1,84 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+import org.sansorm.testutils.Database;
+import org.sansorm.testutils.GeneralTestConfigurator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiRowInsertTest extends GeneralTestConfigurator {
+
+   @Parameterized.Parameters(name = "springTxSupport={0}, database={1}")
+   public static Collection<Object[]> data() {
+      return databases();
+   }
+
+   @Override
+   @Before
+   public void setUp() throws Exception {
+      super.setUp();
+      Note.createTable(database);
+      q2o.setMultiRowInsert(true);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception {
+      try {
+         Note.dropTable();
+         q2o.setMultiRowInsert(false);
+         q2o.setBatchSize(1000);
+      }
+      finally {
+         super.tearDown();
+      }
+   }
+
+   private static List<Note> newObjects(int count) {
+      List<Note> objs = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         objs.add(new Note("note" + i));
+      }
+      return objs;
+   }
+
+   @Test
+   public void insertInStatementsOfManyRows() {
+      q2o.setBatchSize(4);
+      List<Note> objs = newObjects(11);
+      Q2ObjList.insertBatched(objs);
+
+      List<Note> inserted = Q2ObjList.fromClause(Note.class, "id > 0 ORDER BY id");
+      assertThat(inserted).extracting(Note::getNote).containsExactly("note0", "note1", "note2", "note3", "note4", "note5", "note6", "note7", "note8", "note9", "note10");
+      // 4 + 4 + 2 + 1 rows.
+      if (database == Database.postgresql || database == Database.mysql) {
+         // RETURNING resp. the keys Connector/J derives from LAST_INSERT_ID().
+         assertThat(objs).extracting(Note::getId).containsExactlyElementsOf(inserted.stream().map(Note::getId).collect(Collectors.toList()));
+      }
+      else {
+         // H2 and SQLite return only the last generated key of a statement, so only the single row statement's id is set.
+         assertThat(objs.get(10).getId()).isEqualTo(inserted.get(10).getId());
+      }
+   }
+
+   @Test
+   public void derivedParameterTypes() {
+      q2o.setDeriveParameterTypes(true);
+      try {
+         Q2ObjList.insertBatched(newObjects(3));
+         assertThat(Q2Obj.countFromClause(Note.class, "note LIKE ?", "note%")).isEqualTo(3);
+      }
+      finally {
+         q2o.setDeriveParameterTypes(false);
+      }
+   }
+}
@@ -0,0 +1,76 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.OneToManyTest.Book;
+import com.zaxxer.q2o.OneToManyTest.Chapter;
+import com.zaxxer.q2o.OneToManyTest.Library;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rows of a join with a {@literal @}OneToMany relationship are merged by entity id.
+ */
+public class OneToManyJoinTest {
+
+   private static final String SELECT = "select * from library"
+      + " left join book on libraryId = referencedLibraryId"
+      + " left join chapter on bookId = referencedBookId"
+      + " order by libraryId, bookId, chapterId";
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Q2Sql.executeUpdate("CREATE TABLE LIBRARY (libraryId INTEGER NOT NULL IDENTITY PRIMARY KEY, name VARCHAR(128))");
+      Q2Sql.executeUpdate("CREATE TABLE BOOK (bookId INTEGER NOT NULL IDENTITY PRIMARY KEY, referencedlibraryId INTEGER NOT NULL, title VARCHAR(128))");
+      Q2Sql.executeUpdate("CREATE TABLE CHAPTER (chapterId INTEGER NOT NULL IDENTITY PRIMARY KEY, referencedBookId INTEGER NOT NULL, chapterTitle VARCHAR(128))");
+      Q2Sql.executeUpdate("insert into LIBRARY (name) values ('library 1'), ('library 2')");
+      Q2Sql.executeUpdate("insert into BOOK (referencedlibraryId, title) values (1, 'book 1'), (1, 'book 2'), (2, 'book 3')");
+      Q2Sql.executeUpdate("insert into CHAPTER (referencedBookId, chapterTitle) values (1, 'chapter 1'), (1, 'chapter 2'), (3, 'chapter 3')");
+   }
+
+   @After
+   public void tearDown() {
+      Q2Sql.executeUpdate("DROP TABLE CHAPTER");
+      Q2Sql.executeUpdate("DROP TABLE BOOK");
+      Q2Sql.executeUpdate("DROP TABLE LIBRARY");
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void listHasEachParentOnce() {
+      List<Library> libraries = Q2ObjList.fromSelect(Library.class, SELECT);
+      assertEquals(2, libraries.size());
+
+      Library library1 = libraries.get(0);
+      assertEquals("library 1", library1.name);
+      List<Book> books = new ArrayList<>(library1.books);
+      assertEquals(2, books.size());
+      assertEquals("book 1", books.get(0).title);
+      assertEquals(2, books.get(0).chapters.size());
+      assertEquals("book 2", books.get(1).title);
+      // Outer join without a chapter
+      assertNull(books.get(1).chapters);
+
+      Library library2 = libraries.get(1);
+      assertEquals(1, library2.books.size());
+      Book book3 = library2.books.iterator().next();
+      assertEquals("book 3", book3.title);
+      List<Chapter> chapters = new ArrayList<>(book3.chapters);
+      assertEquals(1, chapters.size());
+      assertEquals("chapter 3", chapters.get(0).chapterTitle);
+   }
+
+   @Test
+   public void singleParentCollectsItsRows() {
+      Library library = Q2Obj.fromSelect(Library.class, SELECT);
+      assertEquals(1, library.libraryId);
+      assertEquals(2, library.books.size());
+      assertEquals(2, library.books.iterator().next().chapters.size());
+   }
+}
@@ -0,0 +1,261 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.TimestampVersionedNote;
+import com.zaxxer.q2o.entities.VersionedNote;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.Version;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OptimisticLockingTest {
+
+   public static class NotUpdatableVersion {
+      @Id
+      int id;
+      @Version
+      @Column(updatable = false)
+      Long version;
+   }
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      VersionedNote.createTable(Database.h2InMemory);
+      TimestampVersionedNote.createTable(Database.h2InMemory);
+   }
+
+   @After
+   public void tearDown() {
+      VersionedNote.dropTable();
+      TimestampVersionedNote.dropTable();
+      q2o.setDirtyTracking(false);
+      q2o.setBatchSize(1000);
+      q2o.deinitialize();
+   }
+
+   private static VersionedNote insert(String note) {
+      return Q2Obj.insert(new VersionedNote(note));
+   }
+
+   @Test
+   public void versionIsInitializedAndIncremented() {
+      VersionedNote obj = insert("a");
+      assertEquals(Long.valueOf(0), obj.getVersion());
+
+      obj.setNote("b");
+      Q2Obj.update(obj);
+      assertEquals(Long.valueOf(1), obj.getVersion());
+      assertEquals(Long.valueOf(1), Q2Obj.byId(VersionedNote.class, obj.getId()).getVersion());
+   }
+
+   @Test
+   public void staleUpdateIsRejected() {
+      VersionedNote obj = insert("a");
+      VersionedNote stale = Q2Obj.byId(VersionedNote.class, obj.getId());
+      obj.setNote("b");
+      Q2Obj.update(obj);
+
+      stale.setNote("c");
+      try {
+         Q2Obj.update(stale);
+         fail();
+      }
+      catch (OptimisticLockException e) {
+         assertSame(stale, e.getEntity());
+      }
+      assertEquals(Long.valueOf(0), stale.getVersion());
+      assertEquals("b", Q2Obj.byId(VersionedNote.class, obj.getId()).getNote());
+   }
+
+   @Test
+   public void staleDeleteIsRejected() {
+      VersionedNote obj = insert("a");
+      VersionedNote stale = Q2Obj.byId(VersionedNote.class, obj.getId());
+      Q2Obj.update(obj);
+
+      try {
+         Q2Obj.delete(stale);
+         fail();
+      }
+      catch (OptimisticLockException expected) {
+      }
+      assertEquals(1, Q2Obj.delete(obj));
+      assertEquals(0, Q2Obj.countFromClause(VersionedNote.class, null));
+   }
+
+   @Test
+   public void staleBatchedUpdateIsRejected() {
+      q2o.setBatchSize(2);
+      List<VersionedNote> objs = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+         objs.add(insert("n" + i));
+      }
+      VersionedNote concurrent = Q2Obj.byId(VersionedNote.class, objs.get(2).getId());
+      Q2Obj.update(concurrent);
+
+      try {
+         Q2ObjList.updateBatched(objs);
+         fail();
+      }
+      catch (OptimisticLockException e) {
+         assertSame(objs.get(2), e.getEntity());
+      }
+      assertEquals(Long.valueOf(1), objs.get(0).getVersion());
+      assertEquals(Long.valueOf(1), objs.get(1).getVersion());
+      assertEquals(Long.valueOf(0), objs.get(2).getVersion());
+   }
+
+   @Test
+   public void batchedDeleteChecksVersion() {
+      VersionedNote a = insert("a");
+      VersionedNote b = insert("b");
+      assertArrayEquals(new int[]{2}, Q2ObjList.deleteBatched(Arrays.asList(a, b)));
+   }
+
+   @Test
+   public void partialUpdatesWriteVersion() {
+      VersionedNote obj = insert("a");
+      VersionedNote stale = Q2Obj.byId(VersionedNote.class, obj.getId());
+      obj.setNote("b");
+      Q2Obj.updateIncludeColumns(obj, "note");
+      assertEquals(Long.valueOf(1), Q2Obj.byId(VersionedNote.class, obj.getId()).getVersion());
+
+      obj.setNote("c");
+      Q2Obj.updateExcludeColumns(obj, "version");
+      assertEquals(Long.valueOf(2), Q2Obj.byId(VersionedNote.class, obj.getId()).getVersion());
+
+      obj.setNote("d");
+      Q2Obj.update(obj);
+      assertEquals("d", Q2Obj.byId(VersionedNote.class, obj.getId()).getNote());
+      try {
+         Q2Obj.updateIncludeColumns(stale, "note");
+         fail();
+      }
+      catch (OptimisticLockException e) {
+         assertSame(stale, e.getEntity());
+      }
+   }
+
+   @Test
+   public void versionMustBeUpdatable() {
+      try {
+         Introspected.getInstance(NotUpdatableVersion.class);
+         fail();
+      }
+      catch (RuntimeException e) {
+         assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("must be updatable"));
+      }
+   }
+
+   @Test
+   public void dirtyUpdateWritesVersion() {
+      q2o.setDirtyTracking(true);
+      VersionedNote obj = Q2Obj.byId(VersionedNote.class, insert("a").getId());
+      Q2Obj.update(obj);
+      assertEquals(Long.valueOf(0), obj.getVersion());
+
+      obj.setNote("b");
+      Q2Obj.update(obj);
+      assertEquals(Long.valueOf(1), Q2Obj.byId(VersionedNote.class, obj.getId()).getVersion());
+   }
+
+   @Test
+   public void timestampVersion() {
+      TimestampVersionedNote obj = Q2Obj.insert(new TimestampVersionedNote("a"));
+      Timestamp inserted = obj.getModified();
+      assertNotNull(inserted);
+
+      TimestampVersionedNote stale = Q2Obj.byId(TimestampVersionedNote.class, obj.getId());
+      Q2Obj.update(obj);
+      assertTrue(obj.getModified().after(inserted));
+      try {
+         Q2Obj.update(stale);
+         fail();
+      }
+      catch (OptimisticLockException expected) {
+      }
+   }
+
+   /**
+    * @return connection whose batches report Statement.SUCCESS_NO_INFO for each row.
+    */
+   private static Connection withoutBatchCounts(Connection connection) {
+      return (Connection) Proxy.newProxyInstance(OptimisticLockingTest.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+         Object result = invoke(connection, method, args);
+         if (!(result instanceof PreparedStatement)) {
+            return result;
+         }
+         PreparedStatement stmt = (PreparedStatement) result;
+         return Proxy.newProxyInstance(OptimisticLockingTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+            Object r = invoke(stmt, m, a);
+            if ("executeBatch".equals(m.getName())) {
+               int[] counts = (int[]) r;
+               Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            }
+            return r;
+         });
+      });
+   }
+
+   private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+
+   @Test
+   public void batchWithoutRowCountsFailsThenUpdatesOneByOne() throws SQLException {
+      VersionedNote a = insert("a");
+      VersionedNote b = insert("b");
+      VersionedNote stale = Q2Obj.byId(VersionedNote.class, b.getId());
+      try (Connection connection = withoutBatchCounts(q2o.dataSource.getConnection())) {
+         connection.setAutoCommit(false);
+         try {
+            Q2ObjList.updateBatched(connection, Arrays.asList(a, b));
+            fail();
+         }
+         catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("could not be checked"));
+            connection.rollback();
+         }
+         assertEquals(Long.valueOf(0), a.getVersion());
+         assertEquals(Long.valueOf(0), b.getVersion());
+
+         assertArrayEquals(new int[]{2}, Q2ObjList.updateBatched(connection, Arrays.asList(a, b)));
+         try {
+            Q2ObjList.deleteBatched(connection, Arrays.asList(a, stale));
+            fail();
+         }
+         catch (OptimisticLockException e) {
+            assertSame(stale, e.getEntity());
+         }
+         connection.rollback();
+      }
+   }
+
+   @Test(expected = RuntimeException.class)
+   public void upsertRejectsVersionedObjects() {
+      Q2ObjList.upsertBatched(Arrays.asList(insert("a")));
+   }
+}
@@ -0,0 +1,104 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Item;
+import com.zaxxer.q2o.entities.Item.Color;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParameterTypesTest {
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Item.createTable(Database.h2InMemory);
+   }
+
+   @After
+   public void tearDown() {
+      Item.dropTable();
+      q2o.setDeriveParameterTypes(false);
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void typesAreCachedBySql() {
+      // Reset the counters of setUp()'s CREATE TABLE.
+      q2o.deinitialize();
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Q2Sql.executeUpdate("INSERT INTO ITEM (note, amount) VALUES (?, ?)", "one", 10L);
+      Q2Sql.executeUpdate("INSERT INTO ITEM (note, amount) VALUES (?, ?)", "two", 20L);
+      assertEquals(1, q2o.getParameterTypeCacheStatistics().getMisses());
+      assertEquals(1, q2o.getParameterTypeCacheStatistics().getHits());
+
+      assertEquals(1, Q2ObjList.fromClause(Item.class, "amount > ?", 10L).size());
+      assertEquals(2, Q2ObjList.fromClause(Item.class, "amount > ?", 0L).size());
+      assertEquals(2, q2o.getParameterTypeCacheStatistics().getMisses());
+      assertEquals(2, q2o.getParameterTypeCacheStatistics().getHits());
+
+      Item obj = Q2Obj.byId(Item.class, 1);
+      obj.setNote("uno");
+      Q2Obj.update(obj);
+      obj.setNote("eins");
+      Q2Obj.update(obj);
+      assertEquals("eins", Q2Obj.byId(Item.class, 1).getNote());
+      assertEquals(4, q2o.getParameterTypeCacheStatistics().getMisses());
+      assertEquals(4, q2o.getParameterTypeCacheStatistics().getHits());
+   }
+
+   @Test
+   public void derivedTypesNeedNoMetaData() {
+      q2o.setDeriveParameterTypes(true);
+      final long missesBefore = q2o.getParameterTypeCacheStatistics().getMisses();
+
+      Item obj = new Item();
+      obj.setNote("derived");
+      obj.setAmount(42L);
+      obj.setPrice(new BigDecimal("1.50"));
+      obj.setCreated(new Timestamp(1_500_000_000_000L));
+      obj.setColor(Color.GREEN);
+      Q2Obj.insert(obj);
+      assertTrue(obj.getId() > 0);
+
+      Item nulls = new Item();
+      Q2Obj.insert(nulls);
+
+      obj.setAmount(null);
+      obj.setColor(Color.RED);
+      Q2Obj.update(obj);
+
+      Item read = Q2Obj.fromClause(Item.class, "note = ? AND created = ?", "derived", new java.util.Date(1_500_000_000_000L));
+      assertNotNull(read);
+      assertNull(read.getAmount());
+      assertEquals(Color.RED, read.getColor());
+      assertEquals(0, new BigDecimal("1.50").compareTo(read.getPrice()));
+
+      List<Item> withNullArg = Q2ObjList.fromClause(Item.class, "note IS NULL OR note = ?", (Object) null);
+      assertEquals(1, withNullArg.size());
+      assertEquals(1, Q2Sql.executeUpdate("DELETE FROM ITEM WHERE id = ?", nulls.getId()));
+      assertEquals(missesBefore, q2o.getParameterTypeCacheStatistics().getMisses());
+   }
+
+   @Test
+   public void typesOfValuesAndAttributes() throws Exception {
+      assertEquals(Types.VARCHAR, ParameterTypes.ofValue("x"));
+      assertEquals(Types.BIGINT, ParameterTypes.ofValue(1L));
+      assertEquals(Types.TIMESTAMP, ParameterTypes.ofValue(new java.util.Date()));
+      assertEquals(ParameterTypes.UNKNOWN, ParameterTypes.ofValue(null));
+      assertEquals(ParameterTypes.UNKNOWN, ParameterTypes.ofValue(Arrays.asList(1, 2)));
+
+      Introspected introspected = Introspected.getInstance(Item.class);
+      assertEquals(Types.INTEGER, ParameterTypes.ofAttribute(introspected.getFieldColumnInfo("id")));
+      assertEquals(Types.DECIMAL, ParameterTypes.ofAttribute(introspected.getFieldColumnInfo("price")));
+      assertEquals(Types.VARCHAR, ParameterTypes.ofAttribute(introspected.getFieldColumnInfo("color")));
+   }
+}
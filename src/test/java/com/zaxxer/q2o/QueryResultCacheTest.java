@@ -0,0 +1,183 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Item;
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryResultCacheTest {
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Note.createTable(Database.h2InMemory);
+      Item.createTable(Database.h2InMemory);
+      q2o.setQueryCacheSize(100);
+   }
+
+   @After
+   public void tearDown() {
+      q2o.setQueryCacheSize(0);
+      q2o.setQueryCacheTtlMillis(60_000);
+      Note.dropTable();
+      Item.dropTable();
+      q2o.deinitialize();
+   }
+
+   private static Note insert(String note) {
+      Note obj = new Note();
+      obj.setNote(note);
+      return Q2Obj.insert(obj);
+   }
+
+   /**
+    * Writes with a connection of its own, bypassing q2o's invalidation.
+    */
+   private static void updateUnnoticed(String note) throws Exception {
+      try (Connection connection = q2o.dataSource.getConnection();
+           Statement stmt = connection.createStatement()) {
+         stmt.executeUpdate("UPDATE NOTE SET note = '" + note + "'");
+      }
+   }
+
+   private static List<Note> query(String note) {
+      return Q2ObjList.fromClause(Note.class, "note = ?", note);
+   }
+
+   @Test
+   public void identicalQueriesAreServedFromCache() throws Exception {
+      insert("a");
+      List<Note> first = query("a");
+      updateUnnoticed("b");
+      List<Note> second = query("a");
+
+      assertEquals(1, second.size());
+      assertNotSame(first.get(0), second.get(0));
+      assertEquals("a", second.get(0).getNote());
+      assertEquals(1, query("b").size());
+      CacheStatistics statistics = q2o.getQueryCacheStatistics();
+      assertEquals(1, statistics.getHits());
+      assertEquals(2, statistics.getMisses());
+      assertEquals(2, statistics.getSize());
+   }
+
+   @Test
+   public void changesOfReturnedObjectsDoNotReachTheCache() {
+      insert("a");
+      List<Note> result = query("a");
+      result.get(0).setNote("changed");
+      result.clear();
+      assertEquals("a", query("a").get(0).getNote());
+   }
+
+   @Test
+   public void writesInvalidateQueriesOfTheTable() {
+      Note obj = insert("a");
+      assertEquals(1, query("a").size());
+      insert("a");
+      assertEquals(2, query("a").size());
+
+      obj.setNote("b");
+      Q2Obj.update(obj);
+      assertEquals(1, query("a").size());
+
+      Q2Obj.delete(obj);
+      assertEquals(0, Q2ObjList.fromSelect(Note.class, "SELECT * FROM NOTE WHERE note = ?", "b").size());
+      Q2ObjList.insertBatched(Collections.singletonList(obj));
+      assertEquals(1, Q2ObjList.fromSelect(Note.class, "SELECT * FROM NOTE WHERE note = ?", "b").size());
+
+      Q2Sql.executeUpdate("DELETE FROM note");
+      assertEquals(0, query("a").size());
+   }
+
+   @Test
+   public void writesToOtherTablesDoNotInvalidate() throws Exception {
+      insert("a");
+      query("a");
+      updateUnnoticed("b");
+      Item item = new Item();
+      item.setNote("a");
+      Q2Obj.insert(item);
+      assertEquals(1, query("a").size());
+   }
+
+   @Test
+   public void entriesExpire() throws Exception {
+      q2o.setQueryCacheTtlMillis(10);
+      insert("a");
+      query("a");
+      updateUnnoticed("b");
+      Thread.sleep(50);
+      assertTrue(query("a").isEmpty());
+   }
+
+   @Test
+   public void disabledByDefault() throws Exception {
+      q2o.setQueryCacheSize(0);
+      insert("a");
+      query("a");
+      updateUnnoticed("b");
+      assertTrue(query("a").isEmpty());
+      assertEquals(0, q2o.getQueryCacheStatistics().getSize());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void timeToLiveIsMandatory() {
+      q2o.setQueryCacheTtlMillis(0);
+   }
+
+   @Test
+   public void queriesInTransactionAreNotCached() throws Exception {
+      insert("a");
+      try (Connection connection = q2o.dataSource.getConnection()) {
+         connection.setAutoCommit(false);
+         assertEquals(1, Q2ObjList.fromClause(connection, Note.class, "note = ?", "a").size());
+         connection.rollback();
+      }
+      assertEquals(0, q2o.getQueryCacheStatistics().getSize());
+   }
+
+   @Test
+   public void queryRacingWithWriteIsNotPut() {
+      insert("a");
+      List<Object> key = QueryResultCache.key("note = ?", Note.class, new Object[]{"a"});
+      long generation = QueryResultCache.generation();
+      List<Note> stale = query("a");
+      insert("a");
+
+      QueryResultCache.put(key, "SELECT * FROM NOTE WHERE note = ?", stale, generation);
+      assertNull(QueryResultCache.get(key));
+   }
+
+   @Test
+   public void writeInTransactionIsInvalidatedAfterCommit() throws Exception {
+      DataSource plain = DataSources.getH2ImMemoryDataSource(true);
+      q2o.initializeTxSimple(plain);
+      q2o.setQueryCacheSize(100);
+      insert("a");
+      try (Connection autoCommit = plain.getConnection()) {
+         SqlClosure.sqlExecute(connection -> {
+            Note obj = new Note();
+            obj.setNote("a");
+            Q2Obj.insert(connection, obj);
+            // Another connection still reads the committed rows, which must not be cached.
+            assertEquals(1, Q2ObjList.fromClause(autoCommit, Note.class, "note = ?", "a").size());
+            assertEquals(0, q2o.getQueryCacheStatistics().getSize());
+            return null;
+         });
+         assertEquals(2, Q2ObjList.fromClause(autoCommit, Note.class, "note = ?", "a").size());
+         assertEquals(1, q2o.getQueryCacheStatistics().getSize());
+      }
+   }
+}
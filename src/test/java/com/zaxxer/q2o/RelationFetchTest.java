@@ -0,0 +1,91 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.OneToManyTest.Book;
+import com.zaxxer.q2o.OneToManyTest.Library;
+import com.zaxxer.q2o.entities.Left;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Relations of many entities loaded by {@link Q2ObjList#fetchRelations(List, String)}.
+ */
+public class RelationFetchTest {
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      q2o.setMaxInClauseParameters(2);
+   }
+
+   @After
+   public void tearDown() {
+      q2o.setMaxInClauseParameters(1000);
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void toOne() {
+      try {
+         Q2Sql.executeUpdate("CREATE TABLE RIGHT_TABLE (id INTEGER NOT NULL IDENTITY PRIMARY KEY, type VARCHAR(128))");
+         Q2Sql.executeUpdate("CREATE TABLE LEFT_TABLE (id INTEGER NOT NULL IDENTITY PRIMARY KEY, type VARCHAR(128), rightId INTEGER)");
+         Q2Sql.executeUpdate("insert into RIGHT_TABLE (type) values ('right 1'), ('right 2')");
+         Q2Sql.executeUpdate("insert into LEFT_TABLE (type, rightId) values ('left 1', 1), ('left 2', 2), ('left 3', 1), ('left 4', null), ('left 5', 2)");
+
+         List<Left> lefts = Q2ObjList.fromRawClause(Left.class, "ORDER BY id");
+         assertEquals(5, lefts.size());
+         assertNull(lefts.get(0).getRight());
+
+         Q2ObjList.fetchRelations(lefts, "right");
+
+         assertEquals("right 1", lefts.get(0).getRight().getType());
+         assertEquals("right 2", lefts.get(1).getRight().getType());
+         // Each target is loaded once
+         assertSame(lefts.get(0).getRight(), lefts.get(2).getRight());
+         assertNull(lefts.get(3).getRight());
+         assertSame(lefts.get(1).getRight(), lefts.get(4).getRight());
+      }
+      finally {
+         Q2Sql.executeUpdate("DROP TABLE LEFT_TABLE");
+         Q2Sql.executeUpdate("DROP TABLE RIGHT_TABLE");
+      }
+   }
+
+   @Test
+   public void toMany() {
+      try {
+         Q2Sql.executeUpdate("CREATE TABLE LIBRARY (libraryId INTEGER NOT NULL IDENTITY PRIMARY KEY, name VARCHAR(128))");
+         Q2Sql.executeUpdate("CREATE TABLE BOOK (bookId INTEGER NOT NULL IDENTITY PRIMARY KEY, referencedlibraryId INTEGER NOT NULL, title VARCHAR(128))");
+         Q2Sql.executeUpdate("insert into LIBRARY (name) values ('library 1'), ('library 2'), ('library 3')");
+         Q2Sql.executeUpdate("insert into BOOK (referencedlibraryId, title) values (1, 'book 1'), (3, 'book 2'), (1, 'book 3')");
+
+         List<Library> libraries = Q2ObjList.fromRawClause(Library.class, "ORDER BY libraryId");
+         Q2ObjList.fetchRelations(libraries, "books");
+
+         List<Book> books = new ArrayList<>(libraries.get(0).books);
+         assertEquals(2, books.size());
+         assertEquals("book 1", books.get(0).title);
+         assertEquals("book 3", books.get(1).title);
+         assertTrue(libraries.get(1).books.isEmpty());
+         assertEquals("book 2", libraries.get(2).books.iterator().next().title);
+      }
+      finally {
+         Q2Sql.executeUpdate("DROP TABLE BOOK");
+         Q2Sql.executeUpdate("DROP TABLE LIBRARY");
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void noRelation() {
+      Left left = new Left();
+      List<Left> lefts = new ArrayList<>();
+      lefts.add(left);
+      Q2ObjList.fetchRelations(lefts, "type");
+   }
+}
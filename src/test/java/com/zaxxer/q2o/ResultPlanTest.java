@@ -0,0 +1,168 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Left;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResultPlanTest {
+
+   @Table(name = "PLANTEST")
+   public static class PlanTest {
+      @Id
+      int id;
+      @Column(name = "note")
+      String note;
+      @Column(name = "amount")
+      long amount;
+   }
+
+   private JdbcDataSource ds;
+
+   @Before
+   public void setUp() {
+      ds = DataSources.getH2ImMemoryDataSource(true);
+      q2o.initializeTxNone(ds);
+      Q2Sql.executeUpdate("CREATE TABLE PLANTEST (id INTEGER NOT NULL PRIMARY KEY, note VARCHAR(128), amount BIGINT)");
+      Q2Sql.executeUpdate("INSERT INTO PLANTEST VALUES (1, 'one', 10), (2, 'two', 20), (3, NULL, 30)");
+   }
+
+   @After
+   public void tearDown() {
+      Q2Sql.executeUpdate("DROP TABLE PLANTEST");
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void planIsReusedForSameShape() throws SQLException {
+      try (Connection con = ds.getConnection();
+           PreparedStatement stmt = con.prepareStatement("SELECT * FROM PLANTEST");
+           ResultSet rs = stmt.executeQuery()) {
+         Introspected introspected = Introspected.getInstance(PlanTest.class);
+         ResultPlan plan = ResultPlan.getInstance(rs.getMetaData(), introspected, Collections.emptySet());
+         assertTrue(plan.isSingleTable());
+         assertEquals(3, plan.getColumnCount());
+         assertEquals("id", plan.getFieldColumnInfo(1).getName());
+         assertSame(plan, ResultPlan.getInstance(rs.getMetaData(), introspected, Collections.emptySet()));
+
+         ResultPlan ignoring = ResultPlan.getInstance(rs.getMetaData(), introspected, new HashSet<>(Collections.singletonList("NOTE")));
+         assertNotSame(plan, ignoring);
+         assertNull(ignoring.getFieldColumnInfo(2));
+      }
+   }
+
+   @Test
+   public void listIsMappedByPlan() {
+      List<PlanTest> objs = Q2ObjList.fromClause(PlanTest.class, "id > 0 ORDER BY id");
+      assertEquals(3, objs.size());
+      assertEquals(2, objs.get(1).id);
+      assertEquals("two", objs.get(1).note);
+      assertEquals(20, objs.get(1).amount);
+      assertNull(objs.get(2).note);
+
+      List<PlanTest> again = Q2ObjList.fromClause(PlanTest.class, "id > ? ORDER BY id", 2);
+      assertEquals(1, again.size());
+      assertEquals(30, again.get(0).amount);
+   }
+
+   @Test
+   public void unknownColumnIsSkipped() {
+      PlanTest obj = Q2Obj.fromSelect(PlanTest.class, "SELECT id, note, 'x' AS unknown FROM PLANTEST WHERE id = 1");
+      assertEquals(1, obj.id);
+      assertEquals("one", obj.note);
+   }
+
+   @Test
+   public void planIsFoundBySql() {
+      q2o.deinitialize();
+      q2o.initializeTxNone(ds);
+      Q2ObjList.fromClause(PlanTest.class, "id > ?", 0);
+      CacheStatistics stats = q2o.getResultPlanCacheStatistics();
+      assertEquals(0, stats.getHits());
+      assertEquals(1, stats.getMisses());
+
+      Q2ObjList.fromClause(PlanTest.class, "id > ?", 1);
+      Q2Obj.fromClause(PlanTest.class, "id > ?", 2);
+      stats = q2o.getResultPlanCacheStatistics();
+      assertEquals(2, stats.getHits());
+      assertEquals(1, stats.getMisses());
+      assertEquals(1, stats.getSize());
+
+      q2o.deinitialize();
+      stats = q2o.getResultPlanCacheStatistics();
+      assertEquals(0, stats.getHits() + stats.getMisses() + stats.getSize());
+      q2o.initializeTxNone(ds);
+   }
+
+   @Test
+   public void joinedTablesGetSlots() throws SQLException {
+      Q2Sql.executeUpdate("CREATE TABLE LEFT_TABLE (id INTEGER NOT NULL PRIMARY KEY, type VARCHAR(128), rightId INTEGER NULL)");
+      Q2Sql.executeUpdate("CREATE TABLE RIGHT_TABLE (id INTEGER NOT NULL PRIMARY KEY, type VARCHAR(128))");
+      try {
+         Q2Sql.executeUpdate("INSERT INTO RIGHT_TABLE VALUES (1, 'right 1'), (2, 'right 2')");
+         Q2Sql.executeUpdate("INSERT INTO LEFT_TABLE VALUES (1, 'left 1', 1), (2, 'left 2', 2)");
+         String sql = "SELECT * FROM LEFT_TABLE, RIGHT_TABLE WHERE LEFT_TABLE.rightId = RIGHT_TABLE.id ORDER BY LEFT_TABLE.id";
+         try (Connection con = ds.getConnection();
+              PreparedStatement stmt = con.prepareStatement(sql);
+              ResultSet rs = stmt.executeQuery()) {
+            ResultPlan plan = ResultPlan.getInstance(rs.getMetaData(), Introspected.getInstance(Left.class), Collections.emptySet());
+            assertFalse(plan.isSingleTable());
+            JoinPlan joinPlan = plan.getJoinPlan();
+            assertEquals(2, joinPlan.getSlotCount());
+            assertEquals(JoinPlan.TARGET_SLOT, joinPlan.getSlot(1));
+            assertFalse(joinPlan.isOfJoinedTable(1));
+            assertEquals(1, joinPlan.getSlot(4));
+            assertTrue(joinPlan.isOfJoinedTable(4));
+            assertEquals(JoinPlan.TARGET_SLOT, joinPlan.getParentSlot(4));
+            assertEquals("right", joinPlan.getParentInfo(4).getName());
+         }
+
+         List<Left> lefts = Q2ObjList.fromSelect(Left.class, sql);
+         assertEquals(2, lefts.size());
+         assertEquals("right 1", lefts.get(0).getRight().getType());
+         assertEquals("right 2", lefts.get(1).getRight().getType());
+         assertNotSame(lefts.get(0).getRight(), lefts.get(1).getRight());
+      }
+      finally {
+         Q2Sql.executeUpdate("DROP TABLE LEFT_TABLE");
+         Q2Sql.executeUpdate("DROP TABLE RIGHT_TABLE");
+      }
+   }
+
+   @Test
+   public void planIsRenewedWhenColumnsChange() {
+      PlanTest obj = Q2Obj.fromSelect(PlanTest.class, "SELECT * FROM PLANTEST WHERE id = 1");
+      assertEquals(10, obj.amount);
+      Q2Sql.executeUpdate("ALTER TABLE PLANTEST ADD COLUMN extra VARCHAR(10) BEFORE amount");
+      obj = Q2Obj.fromSelect(PlanTest.class, "SELECT * FROM PLANTEST WHERE id = 1");
+      assertEquals("one", obj.note);
+      assertEquals(10, obj.amount);
+   }
+
+   @Test
+   public void planIsRenewedWhenColumnOrderChanges() {
+      PlanTest obj = Q2Obj.fromSelect(PlanTest.class, "SELECT * FROM PLANTEST WHERE id = 2");
+      assertEquals("two", obj.note);
+      Q2Sql.executeUpdate("DROP TABLE PLANTEST");
+      Q2Sql.executeUpdate("CREATE TABLE PLANTEST (id INTEGER NOT NULL PRIMARY KEY, amount BIGINT, note VARCHAR(128))");
+      Q2Sql.executeUpdate("INSERT INTO PLANTEST VALUES (2, 20, 'two')");
+      obj = Q2Obj.fromSelect(PlanTest.class, "SELECT * FROM PLANTEST WHERE id = 2");
+      assertEquals("two", obj.note);
+      assertEquals(20, obj.amount);
+   }
+}
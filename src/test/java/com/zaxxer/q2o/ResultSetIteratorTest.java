@@ -0,0 +1,130 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ResultSetIteratorTest {
+
+   private JdbcDataSource ds;
+
+   @Before
+   public void setUp() {
+      ds = DataSources.getH2ImMemoryDataSource(true);
+      q2o.initializeTxNone(ds);
+      Note.createTable(Database.h2InMemory);
+      Q2Sql.executeUpdate("INSERT INTO NOTE VALUES (1, 'one'), (2, 'two'), (3, 'three')");
+   }
+
+   @After
+   public void tearDown() {
+      Note.dropTable();
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void streamFromClause() {
+      try (Stream<Note> stream = Q2ObjList.streamFromClause(Note.class, "id > ? ORDER BY id", 1)) {
+         List<String> notes = stream.map(Note::getNote).collect(Collectors.toList());
+         assertEquals(2, notes.size());
+         assertEquals("two", notes.get(0));
+         assertEquals("three", notes.get(1));
+      }
+   }
+
+   @Test
+   public void iterateFromSelect() {
+      try (CloseableIterator<Note> it = Q2ObjList.iterateFromSelect(Note.class, "SELECT id, note FROM NOTE WHERE id = ?", 3)) {
+         assertTrue(it.hasNext());
+         assertTrue(it.hasNext());
+         assertEquals("three", it.next().getNote());
+         assertFalse(it.hasNext());
+      }
+   }
+
+   @Test
+   public void statementIsClosedWhenExhausted() throws SQLException {
+      try (Connection con = ds.getConnection()) {
+         PreparedStatement stmt = con.prepareStatement("SELECT * FROM NOTE ORDER BY id");
+         CloseableIterator<Note> it = Q2ObjList.iterateFromStatement(stmt, Note.class);
+         int count = 0;
+         while (it.hasNext()) {
+            assertEquals(++count, it.next().getId());
+         }
+         assertEquals(3, count);
+         assertTrue(stmt.isClosed());
+         try {
+            it.next();
+            fail();
+         }
+         catch (NoSuchElementException ignored) {
+         }
+      }
+   }
+
+   @Test
+   public void statementIsClosedWithStream() throws SQLException {
+      try (Connection con = ds.getConnection()) {
+         PreparedStatement stmt = con.prepareStatement("SELECT * FROM NOTE ORDER BY id");
+         try (Stream<Note> stream = Q2ObjList.streamFromStatement(stmt, Note.class)) {
+            assertEquals(1, stream.findFirst().get().getId());
+            assertFalse(stmt.isClosed());
+         }
+         assertTrue(stmt.isClosed());
+         assertFalse(con.isClosed());
+      }
+   }
+
+   @Test
+   public void emptyResult() {
+      try (CloseableIterator<Note> it = Q2ObjList.iterateFromClause(Note.class, "id > ?", 10)) {
+         assertFalse(it.hasNext());
+      }
+   }
+
+   @Test
+   public void streamIsReadInTransaction() {
+      List<Connection> connections = new ArrayList<>();
+      q2o.initializeTxNone((DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+         Object result = method.invoke(ds, args);
+         if (result instanceof Connection) {
+            connections.add((Connection) result);
+         }
+         return result;
+      }));
+      try (Stream<Note> stream = Q2ObjList.streamFromClause(Note.class, "id > ?", 0)) {
+         stream.forEach(obj -> {
+            try {
+               assertFalse(connections.get(0).getAutoCommit());
+            }
+            catch (SQLException e) {
+               throw new RuntimeException(e);
+            }
+         });
+      }
+      assertEquals(1, connections.size());
+      try {
+         assertTrue(connections.get(0).isClosed());
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
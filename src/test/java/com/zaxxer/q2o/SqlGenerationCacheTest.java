@@ -0,0 +1,60 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Note;
+import com.zaxxer.q2o.entities.VersionedNote;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SqlGenerationCacheTest {
+
+   @Before
+   public void setUp() {
+      q2o.deinitialize();
+   }
+
+   @After
+   public void tearDown() {
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void hitReturnsTheSameInstance() {
+      String sql = OrmReader.generateSelectFromWhereClause(Note.class, "note = ?", true);
+      assertSame(sql, OrmReader.generateSelectFromWhereClause(Note.class, "note = ?", true));
+      assertEquals("SELECT NOTE.id,NOTE.note FROM NOTE NOTE WHERE  note = ?", sql);
+
+      CacheStatistics statistics = q2o.getStatementCacheStatistics();
+      assertEquals(1, statistics.getHits());
+      assertEquals(1, statistics.getMisses());
+   }
+
+   @Test
+   public void rawClausesAreCachedSeparately() {
+      assertEquals("SELECT NOTE.id,NOTE.note FROM NOTE NOTE WHERE  id > 0", OrmReader.generateSelectFromWhereClause(Note.class, "id > 0", true));
+      assertEquals("SELECT NOTE.id,NOTE.note FROM NOTE NOTE id > 0", OrmReader.generateSelectFromWhereClause(Note.class, "id > 0", false));
+   }
+
+   @Test
+   public void nullClause() {
+      assertEquals("SELECT NOTE.id,NOTE.note FROM NOTE NOTE", OrmReader.generateSelectFromWhereClause(Note.class, null, true));
+   }
+
+   @Test
+   public void columnsCsvByPrefix() {
+      assertEquals("NOTE.id,NOTE.note", OrmReader.getColumnsCsv(Note.class));
+      assertEquals("NOTE.id,NOTE.note", OrmReader.getColumnsCsv(Note.class, "S"));
+   }
+
+   @Test
+   public void boundedOverAllClasses() {
+      int cacheSize = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
+      for (int i = 0; i < cacheSize; i++) {
+         OrmReader.generateSelectFromWhereClause(Note.class, "id = " + i, true);
+         OrmReader.generateSelectFromWhereClause(VersionedNote.class, "id = " + i, true);
+      }
+      assertEquals(cacheSize, q2o.getStatementCacheStatistics().getSize());
+   }
+}
@@ -0,0 +1,68 @@
+package com.zaxxer.q2o;
+
+import com.zaxxer.q2o.entities.Left;
+import com.zaxxer.q2o.entities.Note;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.DataSources;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.Id;
+import javax.persistence.Version;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WarmUpTest {
+
+   public static class InvalidVersion {
+      @Id
+      int id;
+      @Version
+      String version;
+   }
+
+   @Before
+   public void setUp() {
+      q2o.initializeTxNone(DataSources.getH2ImMemoryDataSource(true));
+      Note.createTable(Database.h2InMemory);
+   }
+
+   @After
+   public void tearDown() {
+      Note.dropTable();
+      q2o.deinitialize();
+   }
+
+   @Test
+   public void statementsAreGeneratedAhead() {
+      WarmUpStatistics statistics = q2o.warmUp(Note.class, InvalidVersion.class);
+      assertEquals(1, statistics.getEntities());
+      assertEquals(1, statistics.getFailures());
+
+      long misses = q2o.getStatementCacheStatistics().getMisses();
+      Note obj = new Note();
+      obj.setNote("a");
+      Q2Obj.insert(obj);
+      Q2Obj.byId(Note.class, obj.getId());
+      Q2Obj.update(obj);
+      Q2Obj.delete(obj);
+      assertEquals(misses, q2o.getStatementCacheStatistics().getMisses());
+   }
+
+   @Test
+   public void scanFindsAnnotatedClassesOfPackageAndSubPackages() {
+      List<Class<?>> classes = WarmUp.scan(getClass().getClassLoader(), "com.zaxxer.q2o");
+      assertTrue(classes.contains(Note.class));
+      assertTrue(classes.contains(Left.class));
+      assertFalse(classes.contains(InvalidVersion.class));
+      assertFalse(classes.contains(WarmUpTest.class));
+   }
+
+   @Test
+   public void scanOfJarWithoutEntities() {
+      List<Class<?>> classes = WarmUp.scan(getClass().getClassLoader(), "org.junit");
+      assertTrue(classes.isEmpty());
+   }
+}
@@ -0,0 +1,40 @@
+package com.zaxxer.q2o.entities;
+
+import javax.persistence.*;
+
+/**
+ * {@link Note}, kept in q2o's entity cache. Its id is a long to check that ids of other types find the same cache entry.
+ */
+@Cacheable
+@Entity
+@Table(name = "NOTE")
+public class CachedNote {
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   private long id;
+   @Column(name = "note")
+   private String note;
+
+   public CachedNote() {
+   }
+
+   public CachedNote(String note) {
+      this.note = note;
+   }
+
+   public long getId() {
+      return id;
+   }
+
+   public void setId(long id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+}
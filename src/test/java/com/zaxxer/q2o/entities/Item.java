@@ -0,0 +1,112 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Entity of tests that need columns of the common types, all nullable, and enums stored by ordinal and by name.
+ */
+@Entity
+@Table(name = "ITEM")
+public class Item {
+   public enum Kind { SMALL, LARGE }
+
+   public enum Color { RED, GREEN }
+
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   private int id;
+   @Column(name = "note")
+   private String note;
+   @Column(name = "amount")
+   private Long amount;
+   @Column(name = "price")
+   private BigDecimal price;
+   @Column(name = "active")
+   private Boolean active;
+   @Column(name = "created")
+   private Timestamp created;
+   @Enumerated(EnumType.ORDINAL)
+   @Column(name = "kind")
+   private Kind kind;
+   @Enumerated(EnumType.STRING)
+   @Column(name = "color")
+   private Color color;
+
+   public static void createTable(Database database) {
+      Q2Sql.executeUpdate("CREATE TABLE ITEM (" + database.identityPrimaryKey("id")
+         + ", note VARCHAR(128), amount BIGINT, price DECIMAL(10,2), active BOOLEAN, created " + database.timestampType() + ", kind INTEGER, color VARCHAR(10))");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE ITEM");
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public void setId(int id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+
+   public Long getAmount() {
+      return amount;
+   }
+
+   public void setAmount(Long amount) {
+      this.amount = amount;
+   }
+
+   public BigDecimal getPrice() {
+      return price;
+   }
+
+   public void setPrice(BigDecimal price) {
+      this.price = price;
+   }
+
+   public Boolean getActive() {
+      return active;
+   }
+
+   public void setActive(Boolean active) {
+      this.active = active;
+   }
+
+   public Timestamp getCreated() {
+      return created;
+   }
+
+   public void setCreated(Timestamp created) {
+      this.created = created;
+   }
+
+   public Kind getKind() {
+      return kind;
+   }
+
+   public void setKind(Kind kind) {
+      this.kind = kind;
+   }
+
+   public Color getColor() {
+      return color;
+   }
+
+   public void setColor(Color color) {
+      this.color = color;
+   }
+}
@@ -0,0 +1,50 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.*;
+
+/**
+ * Entity of tests that need no more than a generated id and one column.
+ */
+@Entity
+@Table(name = "NOTE")
+public class Note {
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   private int id;
+   @Column(name = "note")
+   private String note;
+
+   public Note() {
+   }
+
+   public Note(String note) {
+      this.note = note;
+   }
+
+   public static void createTable(Database database) {
+      Q2Sql.executeUpdate("CREATE TABLE NOTE (" + database.identityPrimaryKey("id") + ", note VARCHAR(128))");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE NOTE");
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public void setId(int id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+}
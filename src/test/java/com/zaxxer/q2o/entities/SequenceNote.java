@@ -0,0 +1,52 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+
+import javax.persistence.*;
+
+/**
+ * {@link Note} whose ids q2o takes from a sequence, ten per trip.
+ */
+@Entity
+@Table(name = "SEQUENCE_NOTE")
+public class SequenceNote {
+   @Id
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceNoteGen")
+   @SequenceGenerator(name = "sequenceNoteGen", sequenceName = "SEQUENCE_NOTE_SEQ", allocationSize = 10)
+   private long id;
+   @Column(name = "note")
+   private String note;
+
+   public SequenceNote() {
+   }
+
+   public SequenceNote(String note) {
+      this.note = note;
+   }
+
+   public static void createTable() {
+      Q2Sql.executeUpdate("CREATE SEQUENCE SEQUENCE_NOTE_SEQ START WITH 1 INCREMENT BY 10");
+      Q2Sql.executeUpdate("CREATE TABLE SEQUENCE_NOTE (id BIGINT NOT NULL PRIMARY KEY, note VARCHAR(128))");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE SEQUENCE_NOTE");
+      Q2Sql.executeUpdate("DROP SEQUENCE SEQUENCE_NOTE_SEQ");
+   }
+
+   public long getId() {
+      return id;
+   }
+
+   public void setId(long id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+}
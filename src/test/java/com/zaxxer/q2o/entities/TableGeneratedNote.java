@@ -0,0 +1,52 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+
+import javax.persistence.*;
+
+/**
+ * {@link Note} whose ids q2o reserves in table ID_GEN, five per trip.
+ */
+@Entity
+@Table(name = "TABLE_GENERATED_NOTE")
+@TableGenerator(name = "tableGeneratedNoteGen", table = "ID_GEN", pkColumnName = "GEN_NAME", valueColumnName = "GEN_VALUE", allocationSize = 5)
+public class TableGeneratedNote {
+   @Id
+   @GeneratedValue(strategy = GenerationType.TABLE, generator = "tableGeneratedNoteGen")
+   private Integer id;
+   @Column(name = "note")
+   private String note;
+
+   public TableGeneratedNote() {
+   }
+
+   public TableGeneratedNote(String note) {
+      this.note = note;
+   }
+
+   public static void createTable() {
+      Q2Sql.executeUpdate("CREATE TABLE ID_GEN (GEN_NAME VARCHAR(64) NOT NULL PRIMARY KEY, GEN_VALUE BIGINT)");
+      Q2Sql.executeUpdate("CREATE TABLE TABLE_GENERATED_NOTE (id INTEGER NOT NULL PRIMARY KEY, note VARCHAR(128))");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE TABLE_GENERATED_NOTE");
+      Q2Sql.executeUpdate("DROP TABLE ID_GEN");
+   }
+
+   public Integer getId() {
+      return id;
+   }
+
+   public void setId(Integer id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+}
@@ -0,0 +1,62 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * {@link Note} with a {@link Timestamp} as {@link Version}.
+ */
+@Entity
+@Table(name = "TIMESTAMP_VERSIONED_NOTE")
+public class TimestampVersionedNote {
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   private int id;
+   @Column(name = "note")
+   private String note;
+   @Version
+   @Column(name = "modified")
+   private Timestamp modified;
+
+   public TimestampVersionedNote() {
+   }
+
+   public TimestampVersionedNote(String note) {
+      this.note = note;
+   }
+
+   public static void createTable(Database database) {
+      Q2Sql.executeUpdate("CREATE TABLE TIMESTAMP_VERSIONED_NOTE (" + database.identityPrimaryKey("id") + ", note VARCHAR(128), modified " + database.timestampType() + ")");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE TIMESTAMP_VERSIONED_NOTE");
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public void setId(int id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+
+   public Timestamp getModified() {
+      return modified;
+   }
+
+   public void setModified(Timestamp modified) {
+      this.modified = modified;
+   }
+}
@@ -0,0 +1,61 @@
+package com.zaxxer.q2o.entities;
+
+import com.zaxxer.q2o.Q2Sql;
+import org.sansorm.testutils.Database;
+
+import javax.persistence.*;
+
+/**
+ * {@link Note} with a numeric {@link Version}.
+ */
+@Entity
+@Table(name = "VERSIONED_NOTE")
+public class VersionedNote {
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   private int id;
+   @Column(name = "note")
+   private String note;
+   @Version
+   @Column(name = "version")
+   private Long version;
+
+   public VersionedNote() {
+   }
+
+   public VersionedNote(String note) {
+      this.note = note;
+   }
+
+   public static void createTable(Database database) {
+      Q2Sql.executeUpdate("CREATE TABLE VERSIONED_NOTE (" + database.identityPrimaryKey("id") + ", note VARCHAR(128), version BIGINT)");
+   }
+
+   public static void dropTable() {
+      Q2Sql.executeUpdate("DROP TABLE VERSIONED_NOTE");
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public void setId(int id) {
+      this.id = id;
+   }
+
+   public String getNote() {
+      return note;
+   }
+
+   public void setNote(String note) {
+      this.note = note;
+   }
+
+   public Long getVersion() {
+      return version;
+   }
+
+   public void setVersion(Long version) {
+      this.version = version;
+   }
+}
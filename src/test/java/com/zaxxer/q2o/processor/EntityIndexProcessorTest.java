@@ -0,0 +1,107 @@
+package com.zaxxer.q2o.processor;
+
+import com.zaxxer.q2o.GeneratedAccessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNotNull;
+
+public class EntityIndexProcessorTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private File compile(String className, String source) throws IOException {
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      assumeNotNull(compiler);
+      File src = new File(folder.getRoot(), "src/" + className.replace('.', '/') + ".java");
+      src.getParentFile().mkdirs();
+      Files.write(src.toPath(), source.getBytes(StandardCharsets.UTF_8));
+      File out = new File(folder.getRoot(), "out");
+      out.mkdirs();
+      int result = compiler.run(null, null, null,
+         "-classpath", System.getProperty("java.class.path"),
+         "-processor", EntityIndexProcessor.class.getName(),
+         "-d", out.getPath(),
+         src.getPath());
+      assertEquals(0, result);
+      return out;
+   }
+
+   private static List<String> index(File out) throws IOException {
+      return Files.readAllLines(new File(out, EntityIndexProcessor.INDEX).toPath(), StandardCharsets.UTF_8);
+   }
+
+   @Test
+   public void indexesEntityAndTableClasses() throws IOException {
+      File out = compile("sample.Customer", "package sample;\n"
+         + "import javax.persistence.*;\n"
+         + "@Entity public class Customer {\n"
+         + "   @Id int id;\n"
+         + "   @Table(name = \"ADDRESS\") public static class Address { @Id int id; }\n"
+         + "   @Table(name = \"INNER\") public class Inner { }\n"
+         + "   @Table(name = \"ABSTRACT\") public abstract static class Base { }\n"
+         + "}\n");
+
+      assertEquals(Arrays.asList("sample.Customer", "sample.Customer$Address"), index(out));
+   }
+
+   @Test
+   public void keepsEntriesOfPreviousCompilations() throws IOException {
+      compile("sample.First", "package sample;\n@javax.persistence.Table(name = \"FIRST\") public class First { }\n");
+      File out = compile("sample.Second", "package sample;\n@javax.persistence.Table(name = \"SECOND\") public class Second { }\n");
+
+      assertEquals(Arrays.asList("sample.First", "sample.Second"), index(out));
+   }
+
+   @Test
+   public void generatesAccessorOfNonPrivateFields() throws Exception {
+      File out = compile("sample.Order", "package sample;\n"
+         + "import java.util.List;\n"
+         + "@javax.persistence.Table(name = \"ORDERS\") public class Order {\n"
+         + "   long id;\n"
+         + "   protected List<String> notes;\n"
+         + "   private String secret;\n"
+         + "   static int count;\n"
+         + "}\n");
+
+      try (URLClassLoader classLoader = new URLClassLoader(new URL[]{out.toURI().toURL()}, getClass().getClassLoader())) {
+         Class<?> orderClass = classLoader.loadClass("sample.Order");
+         GeneratedAccessor accessor = (GeneratedAccessor) classLoader.loadClass(GeneratedAccessor.nameOf("sample.Order")).getConstructor().newInstance();
+         assertEquals(-1, accessor.indexOf("secret"));
+         assertEquals(-1, accessor.indexOf("count"));
+
+         Object order = orderClass.getConstructor().newInstance();
+         int id = accessor.indexOf("id");
+         // Widening like Field.set().
+         accessor.set(id, order, 7);
+         assertEquals(7L, accessor.get(id, order));
+         int notes = accessor.indexOf("notes");
+         accessor.set(notes, order, Arrays.asList("a", "b"));
+         assertEquals(Arrays.asList("a", "b"), accessor.get(notes, order));
+         accessor.set(notes, order, null);
+         assertNull(accessor.get(notes, order));
+         try {
+            accessor.set(id, order, null);
+            fail();
+         }
+         catch (IllegalArgumentException expected) {
+         }
+      }
+   }
+}
@@ -5,6 +5,7 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.h2.jdbcx.JdbcDataSource;
 import org.jetbrains.annotations.Nullable;
+import org.postgresql.ds.PGSimpleDataSource;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 
 import javax.sql.DataSource;
@@ -45,7 +46,16 @@ public final class DataSources {
 //      dataSource.setGenerateSimpleParameterMetadata(true);
 
       MysqlDataSource dataSource = new MysqlDataSource();
-      dataSource.setUrl(String.format("jdbc:mysql://localhost/%s?user=%s&password=%s&generateSimpleParameterMetadata=true&emulateLocators=true&serverTimezone=UTC", dbName, user, password)); //
+      dataSource.setUrl(String.format("jdbc:mysql://localhost/%s?user=%s&password=%s&generateSimpleParameterMetadata=true&emulateLocators=true&serverTimezone=UTC&allowLoadLocalInfile=true", dbName, user, password)); //
+      return dataSource;
+   }
+
+   public static DataSource getPostgreSqlDataSource(String dbName, String user, String password) {
+      PGSimpleDataSource dataSource = new PGSimpleDataSource();
+      dataSource.setServerName("localhost");
+      dataSource.setDatabaseName(dbName);
+      dataSource.setUser(user);
+      dataSource.setPassword(password);
       return dataSource;
    }
 
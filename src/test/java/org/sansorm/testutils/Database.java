@@ -5,5 +5,28 @@ package org.sansorm.testutils;
  * @since 12.01.20
  */
 public enum Database {
-   mysql, sqlite, sybase, h2Server, h2InMemory
+   mysql, sqlite, sybase, h2Server, h2InMemory, postgresql;
+
+   /**
+    * @return Column definition of an INTEGER primary key generated by the database, for CREATE TABLE.
+    */
+   public String identityPrimaryKey(final String column) {
+      switch (this) {
+         case mysql:
+            return column + " INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY";
+         case sqlite:
+            return column + " INTEGER PRIMARY KEY AUTOINCREMENT";
+         case postgresql:
+            return column + " SERIAL PRIMARY KEY";
+         default:
+            return column + " INTEGER NOT NULL IDENTITY PRIMARY KEY";
+      }
+   }
+
+   /**
+    * @return Column type of timestamps with at least milliseconds.
+    */
+   public String timestampType() {
+      return this == mysql ? "DATETIME(3)" : "TIMESTAMP";
+   }
 }
@@ -28,6 +28,15 @@ public class GeneralTestConfigurator {
       });
    }
 
+   /**
+    * Parameters of tests of the database specific SQL q2o generates, e.g. upserts. One per database, including PostgreSQL, without Spring.
+    */
+   public static Collection<Object[]> databases() {
+      return Arrays.asList(new Object[][] {
+         {false, Database.h2Server}, {false, Database.mysql}, {false, Database.postgresql}, {false, Database.sqlite}
+      });
+   }
+
    @Parameterized.Parameter(0)
    public boolean withSpringTx;
 
@@ -49,6 +58,9 @@ public class GeneralTestConfigurator {
          case sqlite:
             dataSource = DataSources.getSqLiteDataSource(null);
             break;
+         case postgresql:
+            dataSource = DataSources.getPostgreSqlDataSource("q2o", "postgres", "yxcvbnm");
+            break;
       }
 
       if (!withSpringTx) {